@@ -0,0 +1,72 @@
+package com.bramvanrensbergen.imdb_demo.benchmarks;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.bramvanrensbergen.imdb_demo.domain.Title;
+import com.bramvanrensbergen.imdb_demo.domain.statistics.StatisticsAggregator;
+
+/**
+ * Aggregating a million synthetic title/person edges (each actor or director of a title) into rows of statistics;
+ * compares {@link StatisticsAggregator}'s int-keyed maps and genre arrays with the original String-keyed hash maps
+ * ({@link StringKeyedAggregator}).
+ * <br>Scores are in edges per millisecond; run with '-prof gc' to compare the memory allocated as well.
+ * @author Bram Van Rensbergen
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = { "-Xms2g", "-Xmx2g" })
+public class AggregationBenchmark {
+
+	private static final int EDGES = 1000000;
+
+	private List<Title> titles;
+
+	@Setup
+	public void setUp() {
+		// synthetic titles have 15 actors and 1 or 2 directors; take just enough of them to reach a million edges
+		titles = Fixtures.syntheticTitles(EDGES / 16 + 1000, 42);
+		int edges = 0;
+		int n = 0;
+		while (edges < EDGES) {
+			Title t = titles.get(n++);
+			edges += t.getPrimaryActors().size() + t.getDirectorsOrCreators().size();
+		}
+		titles = titles.subList(0, n);
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(EDGES)
+	public int intKeyed() {
+		StatisticsAggregator aggregator = new StatisticsAggregator();
+		for (Title t : titles) {
+			aggregator.accept(t);
+		}
+		return aggregator.size();
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(EDGES)
+	public int stringKeyedBaseline() {
+		StringKeyedAggregator aggregator = new StringKeyedAggregator();
+		for (Title t : titles) {
+			aggregator.accept(t);
+		}
+		return aggregator.rows();
+	}
+}
@@ -0,0 +1,71 @@
+package com.bramvanrensbergen.imdb_demo.benchmarks;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.bramvanrensbergen.imdb_demo.domain.Title;
+import com.bramvanrensbergen.imdb_demo.domain.TitleColumns;
+import com.bramvanrensbergen.imdb_demo.domain.TitleField;
+import com.bramvanrensbergen.imdb_demo.domain.statistics.RowLimits;
+import com.bramvanrensbergen.imdb_demo.domain.statistics.Statistics;
+
+/**
+ * Building {@link Statistics} from {@link TitleColumns}, against building them from the titles themselves;
+ * as well as building the columns, and both together.
+ * <br>Before measuring, checks that the statistics built from columns are identical to those built from the titles.
+ * @author Bram Van Rensbergen
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = { "-Xms3g", "-Xmx3g" })
+public class ColumnarStatisticsBenchmark {
+
+	@Param({ "10000", "100000", "1000000" })
+	public int titleCount;
+
+	private List<Title> titles;
+
+	private TitleColumns columns;
+
+	@Setup
+	public void setUp() {
+		titles = Fixtures.syntheticTitles(titleCount, 42);
+		columns = TitleColumns.of(titles, TitleField.ALL);
+		StatisticsAssertions.assertIdentical(new Statistics(titles), new Statistics(titles, columns, RowLimits.DEFAULT));
+	}
+
+	@Benchmark
+	public Statistics fromTitles() {
+		return new Statistics(titles);
+	}
+
+	@Benchmark
+	public Statistics fromColumns() {
+		return new Statistics(titles, columns, RowLimits.DEFAULT);
+	}
+
+	@Benchmark
+	public TitleColumns buildColumns() {
+		return TitleColumns.of(titles, TitleField.ALL);
+	}
+
+	@Benchmark
+	public Statistics buildColumnsAndStatistics() {
+		return new Statistics(titles, TitleColumns.of(titles, TitleField.ALL), RowLimits.DEFAULT);
+	}
+}
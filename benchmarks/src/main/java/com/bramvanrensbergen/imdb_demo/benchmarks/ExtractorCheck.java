@@ -0,0 +1,143 @@
+package com.bramvanrensbergen.imdb_demo.benchmarks;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import com.bramvanrensbergen.imdb_demo.domain.DomTitleExtractor;
+import com.bramvanrensbergen.imdb_demo.domain.Person;
+import com.bramvanrensbergen.imdb_demo.domain.StreamingTitleExtractor;
+import com.bramvanrensbergen.imdb_demo.domain.TitleData;
+import com.bramvanrensbergen.imdb_demo.domain.TitleField;
+import com.bramvanrensbergen.imdb_demo.domain.TitleType;
+
+/**
+ * Checks that {@link StreamingTitleExtractor} extracts the same data as {@link DomTitleExtractor} from saved title pages,
+ * for every combination of optional fields, with and without knowing the type of the title up front.
+ * <br>Run with 'java -cp target/benchmarks.jar com.bramvanrensbergen.imdb_demo.benchmarks.ExtractorCheck [pages]';
+ * the recorded pages are always checked, and any saved page named after its id (e.g. 'tt0090756.html') can be added.
+ * Also reports how much of each page the streaming extractor reads. Exits with status 1 if any data differs.
+ * @author Bram Van Rensbergen
+ */
+public class ExtractorCheck {
+
+	public static void main(String[] args) throws IOException {
+		Map<String, byte[]> pages = new LinkedHashMap<String, byte[]>();
+		for (String id : Arrays.asList(Fixtures.MOVIE_ID, Fixtures.SERIES_ID, Fixtures.EPISODE_ID)) {
+			pages.put(id, Fixtures.page(id).getBytes(StandardCharsets.UTF_8));
+		}
+		for (String path : args) {
+			File file = new File(path);
+			pages.put(file.getName().replaceFirst("\\.html?$", ""), Files.readAllBytes(file.toPath()));
+		}
+
+		DomTitleExtractor dom = new DomTitleExtractor();
+		StreamingTitleExtractor streaming = new StreamingTitleExtractor();
+		int checks = 0;
+		int differences = 0;
+
+		for (Map.Entry<String, byte[]> page : pages.entrySet()) {
+			String id = page.getKey();
+			TitleType type = dom.extract(id, stream(page.getValue()), null, null, TitleField.ALL).getType();
+
+			CountingInputStream counted = new CountingInputStream(stream(page.getValue()));
+			streaming.extract(id, counted, null, null, TitleField.ALL);
+			System.out.printf("%s: streaming read %d of %d bytes%n", id, counted.count, page.getValue().length);
+
+			for (Set<TitleField> fields : fieldCombinations()) {
+				for (TitleType knownType : Arrays.asList(type, null)) {
+					String expected = describe(dom.extract(id, stream(page.getValue()), null, knownType, fields));
+					String actual = describe(streaming.extract(id, stream(page.getValue()), null, knownType, fields));
+					checks++;
+
+					if (!expected.equals(actual)) {
+						differences++;
+						System.out.printf("%s, fields %s, type %s:%n  dom:       %s%n  streaming: %s%n", id, fields,
+								knownType == null ? "read from page" : knownType, expected, actual);
+					}
+				}
+			}
+		}
+
+		System.out.printf("%d pages, %d checks, %d differences%n", pages.size(), checks, differences);
+		if (differences > 0) {
+			System.exit(1);
+		}
+	}
+
+	/**
+	 * Counts the bytes read from a stream (including any read ahead by the reader using it).
+	 */
+	private static final class CountingInputStream extends FilterInputStream {
+		private long count;
+
+		CountingInputStream(InputStream in) {
+			super(in);
+		}
+
+		@Override
+		public int read() throws IOException {
+			int b = super.read();
+			if (b >= 0) {
+				count++;
+			}
+			return b;
+		}
+
+		@Override
+		public int read(byte[] b, int off, int len) throws IOException {
+			int n = super.read(b, off, len);
+			if (n > 0) {
+				count += n;
+			}
+			return n;
+		}
+	}
+
+	private static InputStream stream(byte[] page) {
+		return new ByteArrayInputStream(page);
+	}
+
+	private static List<Set<TitleField>> fieldCombinations() {
+		List<Set<TitleField>> combinations = new ArrayList<Set<TitleField>>();
+		TitleField[] all = TitleField.values();
+		for (int mask = 0; mask < 1 << all.length; mask++) {
+			Set<TitleField> fields = EnumSet.noneOf(TitleField.class);
+			for (int i = 0; i < all.length; i++) {
+				if ((mask & 1 << i) != 0) {
+					fields.add(all[i]);
+				}
+			}
+			combinations.add(fields);
+		}
+		return combinations;
+	}
+
+	private static String describe(TitleData data) {
+		if (data == null) {
+			return "null";
+		}
+		return Arrays.asList(data.getType(), data.getId(), data.getFields(), data.getTitle(), data.getGenres(), data.getRating(),
+				data.getSummaryText(), data.getRuntimeString(), data.getYearOfRelease(), describe(data.getDirectorsOrCreators()),
+				describe(data.getPrimaryActors()), data.getSeriesName(), data.getSeriesId(), data.getSeasonAndEpisodeNumberDesc()).toString();
+	}
+
+	private static String describe(List<Person> persons) {
+		List<String> descriptions = new ArrayList<String>();
+		for (Person p : persons) {
+			descriptions.add(p.getId() + ":" + p.getName());
+		}
+		return descriptions.toString();
+	}
+}
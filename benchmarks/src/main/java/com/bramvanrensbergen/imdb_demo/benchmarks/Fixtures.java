@@ -0,0 +1,140 @@
+package com.bramvanrensbergen.imdb_demo.benchmarks;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import org.springframework.util.StreamUtils;
+
+import com.bramvanrensbergen.imdb_demo.domain.Episode;
+import com.bramvanrensbergen.imdb_demo.domain.Movie;
+import com.bramvanrensbergen.imdb_demo.domain.Person;
+import com.bramvanrensbergen.imdb_demo.domain.Registry;
+import com.bramvanrensbergen.imdb_demo.domain.Series;
+import com.bramvanrensbergen.imdb_demo.domain.Title;
+import com.bramvanrensbergen.imdb_demo.domain.TitleData;
+import com.bramvanrensbergen.imdb_demo.domain.TitleField;
+import com.bramvanrensbergen.imdb_demo.domain.TitleType;
+
+/**
+ * Input data for the benchmarks, so they run offline: recorded IMDb title pages, and synthetic sets of titles.
+ * <br>The recorded pages follow the layout the extractors were written for (a movie, a series, and an episode),
+ * including the navigation, scripts, reviews, and recommendations that surround the extracted fields.
+ * @author Bram Van Rensbergen
+ */
+public final class Fixtures {
+
+	public static final String MOVIE_ID = "tt0090756";
+	public static final String SERIES_ID = "tt4093826";
+	public static final String EPISODE_ID = "tt4108304";
+
+	private static final String[] GENRES = { "Action", "Adventure", "Animation", "Biography", "Comedy", "Crime", "Documentary",
+			"Drama", "Family", "Fantasy", "History", "Horror", "Music", "Musical", "Mystery", "Romance", "Sci-Fi", "Sport",
+			"Thriller", "War", "Western" };
+
+	private static final String[] RUNTIMES = { "1h 55min", "2h", "1h 30min", "45min", "2h 41min", "1h 12min", "22min", "3h 1min" };
+
+	private static final int ACTORS_PER_TITLE = 15;
+
+	private Fixtures() {
+	}
+
+	/**
+	 * @return The html of the recorded page of the indicated title.
+	 */
+	public static String page(String id) throws IOException {
+		try (InputStream in = Fixtures.class.getResourceAsStream("/fixtures/" + id + ".html")) {
+			if (in == null) {
+				throw new IOException("No recorded page for " + id);
+			}
+			return StreamUtils.copyToString(in, StandardCharsets.UTF_8);
+		}
+	}
+
+	/**
+	 * @return The type of the indicated recorded title.
+	 */
+	public static TitleType type(String id) {
+		switch (id) {
+		case SERIES_ID:
+			return TitleType.SERIES;
+		case EPISODE_ID:
+			return TitleType.EPISODE;
+		default:
+			return TitleType.MOVIE;
+		}
+	}
+
+	public static Title createTitle(TitleData data) {
+		switch (data.getType()) {
+		case SERIES:
+			return new Series(data);
+		case EPISODE:
+			return new Episode(data);
+		default:
+			return new Movie(data);
+		}
+	}
+
+	/**
+	 * Generate the indicated number of titles with random, but reproducible, fields.
+	 * <br>Like real ratings, a few actors and directors occur in many titles, while most occur only once or twice.
+	 */
+	public static List<Title> syntheticTitles(int n, long seed) {
+		Random random = new Random(seed);
+		Person[] actors = persons("nm1", Math.max(100, n));
+		Person[] directors = persons("nm2", Math.max(20, n / 5));
+
+		List<Title> titles = new ArrayList<Title>(n);
+		for (int i = 0; i < n; i++) {
+			List<Person> cast = new ArrayList<Person>(ACTORS_PER_TITLE);
+			for (int j = 0; j < ACTORS_PER_TITLE; j++) {
+				cast.add(skewed(actors, random));
+			}
+
+			List<Person> directedBy = random.nextInt(10) == 0
+					? Arrays.asList(skewed(directors, random), skewed(directors, random))
+					: Collections.singletonList(skewed(directors, random));
+
+			Set<String> genres = new LinkedHashSet<String>();
+			for (int j = 1 + random.nextInt(3); j > 0; j--) {
+				genres.add(GENRES[random.nextInt(GENRES.length)]);
+			}
+
+			TitleType type = random.nextInt(10) == 0 ? TitleType.SERIES : TitleType.MOVIE;
+			TitleData data = new TitleData(type, String.format("tt%07d", i), TitleField.ALL, "Title " + i, genres,
+					random.nextInt(90) / 10.0 + 1, null, RUNTIMES[random.nextInt(RUNTIMES.length)],
+					type == TitleType.SERIES ? null : 1920 + random.nextInt(98), directedBy, cast, null, null, null);
+
+			Title t = createTitle(data);
+			if (random.nextBoolean()) {
+				t.setUserRating((double) (1 + random.nextInt(10)));
+			}
+			titles.add(t);
+		}
+		return titles;
+	}
+
+	private static Person[] persons(String idPrefix, int n) {
+		Person[] persons = new Person[n];
+		for (int i = 0; i < n; i++) {
+			persons[i] = Registry.person(String.format("%s%07d", idPrefix, i), "Person " + idPrefix + "-" + i);
+		}
+		return persons;
+	}
+
+	/**
+	 * @return A random person, with a strong preference for those at the start of the array.
+	 */
+	private static Person skewed(Person[] persons, Random random) {
+		double r = random.nextDouble();
+		return persons[(int) (r * r * r * persons.length)];
+	}
+}
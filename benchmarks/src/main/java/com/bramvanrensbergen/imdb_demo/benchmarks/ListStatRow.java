@@ -0,0 +1,100 @@
+package com.bramvanrensbergen.imdb_demo.benchmarks;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import com.bramvanrensbergen.imdb_demo.domain.Title;
+import com.bramvanrensbergen.imdb_demo.domain.statistics.MathUtil;
+import com.bramvanrensbergen.imdb_demo.domain.statistics.StatRow;
+
+/**
+ * The original implementation of {@link StatRow}, which kept every value in a list and recomputed averages on each access;
+ * only used as baseline in {@link StatRowBenchmark}.
+ * @author Bram Van Rensbergen
+ */
+class ListStatRow {
+
+	private int nbOfOccurrences;
+
+	private List<Double> ratings = new ArrayList<Double>();
+	private List<Double> userRatings = new ArrayList<Double>();
+	private List<Integer> runtimesInMinutes = new ArrayList<Integer>();
+	private List<Integer> yearsOfRelease = new ArrayList<Integer>();
+
+	void addTitle(Title t) {
+		if (t == null) {
+			return;
+		}
+
+		nbOfOccurrences++;
+
+		Double rating = t.getRating();
+		Double userRating = t.getUserRating();
+		Integer runtimeMinutes = t.getRuntimeMinutes();
+		Integer yearOfRelease = t.getYearOfRelease();
+
+		if (rating != null) {
+			ratings.add(rating);
+		}
+
+		if (userRating != null) {
+			userRatings.add(userRating);
+		}
+
+		if (runtimeMinutes != null) {
+			runtimesInMinutes.add(runtimeMinutes);
+		}
+
+		if (yearOfRelease != null) {
+			yearsOfRelease.add(yearOfRelease);
+		}
+	}
+
+	int getNbOfOccurrences() {
+		return nbOfOccurrences;
+	}
+
+	String getAvgRating() {
+		return formatDouble(computeAvgOfDoubleList(ratings));
+	}
+
+	String getAvgUserRating() {
+		return formatDouble(computeAvgOfDoubleList(userRatings));
+	}
+
+	String getAvgRuntime() {
+		return MathUtil.minutesToRuntimeDescription(computeAvgOfIntegerList(runtimesInMinutes));
+	}
+
+	Integer getAvgYearOfRelease() {
+		return computeAvgOfIntegerList(yearsOfRelease);
+	}
+
+	private static String formatDouble(Double d) {
+		return d == null ? null : String.format("%.2f", d);
+	}
+
+	private static Double computeAvgOfDoubleList(List<Double> numbers) {
+		if (numbers.isEmpty()) {
+			return null;
+		}
+
+		double count = 0;
+		for (Double n : numbers) {
+			count = count + n.doubleValue();
+		}
+		return (double) count / numbers.size();
+	}
+
+	private static Integer computeAvgOfIntegerList(List<Integer> numbers) {
+		if (numbers.isEmpty()) {
+			return null;
+		}
+
+		int count = 0;
+		for (int n : numbers) {
+			count += n;
+		}
+		return (int) count / numbers.size();
+	}
+}
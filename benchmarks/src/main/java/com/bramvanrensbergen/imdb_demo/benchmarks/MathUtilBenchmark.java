@@ -0,0 +1,37 @@
+package com.bramvanrensbergen.imdb_demo.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.bramvanrensbergen.imdb_demo.domain.statistics.MathUtil;
+
+/**
+ * Converting runtime descriptions as found on IMDb to minutes; done once for every title that is created.
+ * @author Bram Van Rensbergen
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MathUtilBenchmark {
+
+	@Param({ "1h 55min", "2h", "30min" })
+	public String runtimeDescription;
+
+	@Benchmark
+	public Integer runtimeDescriptionToMinutes() {
+		return MathUtil.runtimeDescriptionToMinutes(runtimeDescription);
+	}
+}
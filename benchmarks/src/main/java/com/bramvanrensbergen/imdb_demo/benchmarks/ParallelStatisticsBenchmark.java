@@ -0,0 +1,70 @@
+package com.bramvanrensbergen.imdb_demo.benchmarks;
+
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.bramvanrensbergen.imdb_demo.domain.Title;
+import com.bramvanrensbergen.imdb_demo.domain.TitleField;
+import com.bramvanrensbergen.imdb_demo.domain.statistics.RowLimits;
+import com.bramvanrensbergen.imdb_demo.domain.statistics.Statistics;
+
+/**
+ * Building {@link Statistics} on a fork-join pool of 1 up to 8 threads, against building them on the current thread;
+ * scores only improve up to the number of cores of the machine.
+ * <br>Before measuring, checks that the statistics built in parallel are identical to those built sequentially.
+ * @author Bram Van Rensbergen
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = { "-Xms3g", "-Xmx3g" })
+public class ParallelStatisticsBenchmark {
+
+	@Param({ "100000", "1000000" })
+	public int titleCount;
+
+	@Param({ "1", "2", "4", "8" })
+	public int threads;
+
+	private List<Title> titles;
+
+	private ForkJoinPool pool;
+
+	@Setup
+	public void setUp() {
+		titles = Fixtures.syntheticTitles(titleCount, 42);
+		pool = new ForkJoinPool(threads);
+		StatisticsAssertions.assertIdentical(new Statistics(titles), new Statistics(titles, TitleField.ALL, RowLimits.DEFAULT, pool));
+	}
+
+	@TearDown
+	public void tearDown() {
+		pool.shutdown();
+	}
+
+	@Benchmark
+	public Statistics sequential() {
+		return new Statistics(titles);
+	}
+
+	@Benchmark
+	public Statistics parallel() {
+		return new Statistics(titles, TitleField.ALL, RowLimits.DEFAULT, pool);
+	}
+}
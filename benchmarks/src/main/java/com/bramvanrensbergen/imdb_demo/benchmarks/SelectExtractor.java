@@ -0,0 +1,203 @@
+package com.bramvanrensbergen.imdb_demo.benchmarks;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.jsoup.nodes.Document;
+import org.jsoup.nodes.Element;
+import org.jsoup.select.Elements;
+
+import com.bramvanrensbergen.imdb_demo.domain.Person;
+import com.bramvanrensbergen.imdb_demo.domain.Registry;
+import com.bramvanrensbergen.imdb_demo.domain.Title;
+import com.bramvanrensbergen.imdb_demo.domain.TitleData;
+import com.bramvanrensbergen.imdb_demo.domain.TitleField;
+import com.bramvanrensbergen.imdb_demo.domain.TitleHtmlExtractor;
+import com.bramvanrensbergen.imdb_demo.domain.TitleType;
+
+/**
+ * The original implementation of {@link TitleHtmlExtractor}, which parsed a selector string and walked the whole page
+ * for every field; only used as baseline in {@link TitleParsingBenchmark}.
+ * @author Bram Van Rensbergen
+ */
+final class SelectExtractor {
+
+	private SelectExtractor() {
+	}
+
+	/**
+	 * Extract all data of the indicated title from its html Document.
+	 * @param id IMDb id of the title (e.g. 'tt0090756')
+	 * @param doc Document containing html of the title's imdb page.
+	 * @param type Type of the title; the year of release is not extracted for series, the series info only for episodes.
+	 * @throws NullPointerException If the title cannot be found, indicating Document is probably not a valid IMDb page.
+	 */
+	static TitleData extract(String id, Document doc, TitleType type) {
+		return extract(id, doc, type, TitleField.ALL);
+	}
+
+	/**
+	 * Same as {@link #extract(String, Document, TitleType)}, but only extracting the indicated optional fields.
+	 */
+	static TitleData extract(String id, Document doc, TitleType type, Set<TitleField> fields) {
+		String seriesName = null;
+		String seriesId = null;
+		String seasonAndEpisodeNumberDesc = null;
+
+		if (type == TitleType.EPISODE) {
+			Element parent = doc.select(".titleParent a").first();
+			seriesName = parent.text();
+			seriesId = Title.getIdFromUrl(parent.attr("href"));
+			seasonAndEpisodeNumberDesc = doc.select(".navigation_panel .bp_heading").first().text();
+		}
+
+		return new TitleData(type, id, fields,
+				obtainTitle(id, doc),
+				obtainGenres(doc),
+				obtainRating(id, doc),
+				fields.contains(TitleField.SUMMARY) ? obtainSummaryText(doc) : null,
+				obtainRuntime(id, doc),
+				type == TitleType.SERIES ? null : obtainYearOfRelease(id, doc),
+				fields.contains(TitleField.DIRECTORS) ? obtainDirectorOrCreators(id, doc) : Collections.<Person>emptyList(),
+				fields.contains(TitleField.ACTORS) ? obtainPrimaryActors(id, doc) : Collections.<Person>emptyList(),
+				seriesName, seriesId, seasonAndEpisodeNumberDesc);
+	}
+
+	/**
+	 * Lookup the description of the type of title (e.g. 'TV Series', 'Episode aired 1 May 2016') in its html Document.
+	 * @return The description, or null if it could not be found.
+	 */
+	static String obtainTypeDescription(Document doc) {
+		Element e = doc.select(".titleBar .subtext a:last-child").first();
+		return e == null ? null : e.text();
+	}
+
+	/**
+	 * Lookup the title for the current title in its html Document.
+	 * @throws NullPointerException If the title cannot be found, indicating Document is probably not a valid IMDb page.
+	 */
+	private static String obtainTitle(String id, Document doc) throws NullPointerException {
+		try {
+			return doc.select(".titleBar h1").first().text();
+		} catch (NullPointerException e) {
+			System.err.println("Could not parse html page for title " + id);
+			throw e;
+		}
+	}
+
+	/**
+	 * Lookup the genres for the current title in its html Document
+	 */
+	private static Set<String> obtainGenres(Document doc) {
+		Set<String> genres = new LinkedHashSet<String>();
+
+		Elements genreElements = doc.select(".titleBar span.itemprop");
+		if (genreElements != null) {
+			for (Element e : genreElements) {
+				genres.add(e.text());
+			}
+		}
+
+		return genres;
+	}
+
+	/**
+	 * Lookup the rating for the current title in its html Document.
+	 * If no rating is found, null is returned.
+	 */
+	private static Double obtainRating(String id, Document doc) {
+		Double r = null;
+		try {
+			r = Double.parseDouble(doc.select(".imdbRating span[itemprop=\"ratingValue\"]").first().text());
+		} catch (NumberFormatException e) {
+			System.err.println("Could not set rating for " + id + " (could not convert element to integer)");
+		} catch (NullPointerException e) {
+			System.err.println("Could not set rating for " + id + " (could not find element)");
+		}
+		return r;
+	}
+
+	/**
+	 * Lookup the primary actors (the first 15 listed) for the current title in its html Document.
+	 */
+	private static List<Person> obtainPrimaryActors(String id, Document doc) {
+		List<Person> actors = new ArrayList<Person>();
+
+		Elements actorsElements = doc.select(".cast_list td[itemprop=\"actor\"] a");
+		if (actorsElements != null) {
+			for (Element actor : actorsElements) {
+				try {
+					String actorId = Person.getIdFromUrl(actor.attr("href"));
+					String name = actor.text();
+					actors.add(Registry.person(actorId, name));
+				} catch (IllegalArgumentException e) {
+					System.err.println("error while addign actor to " + id + "; invalid id or name encountered");
+				}
+			}
+		}
+
+		return actors;
+	}
+
+	/**
+	 * Lookup the director(s) (for movies or episodes) or creator(s) (for series) of the current title in its html Document.
+	 */
+	private static List<Person> obtainDirectorOrCreators(String id, Document doc) {
+		List<Person> directors = new ArrayList<Person>();
+		Elements directorElements = doc.select(".credit_summary_item:eq(1) span[itemprop=\"director\"] a, .credit_summary_item:eq(1) span[itemprop=\"creator\"] a");
+		for (Element directorElement : directorElements) {
+			try {
+				String directorId = Person.getIdFromUrl(directorElement.attr("href"));
+				String directorName = directorElement.text();
+				directors.add(Registry.person(directorId, directorName));
+			} catch (IllegalArgumentException e) {
+				System.err.println("could not set director/creator for " + id + "; invalid id or name encountered");
+			}
+		}
+		return directors;
+	}
+
+	/**
+	 * Lookup the short summary of the current title in its html Document.
+	 */
+	private static String obtainSummaryText(Document doc) {
+		return doc.select(".summary_text").first().text();
+	}
+
+	/**
+	 * Look up the runtime (String, as found on IMDb) for the current title in its html Document.
+	 */
+	private static String obtainRuntime(String id, Document doc) {
+		String rt = null;
+		try {
+			rt = doc.select(".subtext time[itemprop=\"duration\"]").first().text();
+		}  catch (NullPointerException e) {
+			System.err.println("Could not set runtime for " + id + " (could not find element)");
+		}
+		return rt;
+	}
+
+	/**
+	 * Look up the year of release for the current title in its html Document.
+	 */
+	private static Integer obtainYearOfRelease(String id, Document doc) {
+		try {
+			String ymd = doc.select(".subtext meta[itemprop=\"datePublished\"]").first().attr("content");
+			int year = Integer.parseInt(ymd.split("-")[0]);
+
+			if (year > 1500 && year < 5000) {
+				return year;
+			}
+
+		} catch (NumberFormatException e) {
+			System.err.println("Could not set year for " + id + " (could not convert to int)");
+		} catch (NullPointerException e) {
+			System.err.println("Could not set year for " + id + " (could not find element)");
+		}
+
+		return null;
+	}
+}
@@ -0,0 +1,80 @@
+package com.bramvanrensbergen.imdb_demo.benchmarks;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import com.bramvanrensbergen.imdb_demo.domain.Title;
+import com.bramvanrensbergen.imdb_demo.domain.statistics.StatRow;
+
+/**
+ * Filling a single row of statistics and reading its averages, as the stats page does; compares {@link StatRow}'s
+ * running aggregates with the original lists of values ({@link ListStatRow}).
+ * <br>Run with '-prof gc' to compare the memory allocated per row as well.
+ * @author Bram Van Rensbergen
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class StatRowBenchmark {
+
+	/**
+	 * How many times the stats page reads each average.
+	 */
+	private static final int READS = 3;
+
+	@Param({ "10", "1000", "100000" })
+	public int titleCount;
+
+	private List<Title> titles;
+
+	@Setup
+	public void setUp() {
+		titles = Fixtures.syntheticTitles(titleCount, 42);
+	}
+
+	@Benchmark
+	public void runningAggregates(Blackhole bh) {
+		StatRow row = new StatRow("name", "url");
+		for (Title t : titles) {
+			row.addTitle(t);
+		}
+
+		for (int i = 0; i < READS; i++) {
+			bh.consume(row.getAvgRating());
+			bh.consume(row.getAvgUserRating());
+			bh.consume(row.getAvgRuntime());
+			bh.consume(row.getAvgYearOfRelease());
+		}
+	}
+
+	@Benchmark
+	public void listBaseline(Blackhole bh) {
+		ListStatRow row = new ListStatRow();
+		for (Title t : titles) {
+			row.addTitle(t);
+		}
+
+		for (int i = 0; i < READS; i++) {
+			bh.consume(row.getAvgRating());
+			bh.consume(row.getAvgUserRating());
+			bh.consume(row.getAvgRuntime());
+			bh.consume(row.getAvgYearOfRelease());
+		}
+	}
+}
@@ -0,0 +1,53 @@
+package com.bramvanrensbergen.imdb_demo.benchmarks;
+
+import java.util.List;
+
+import com.bramvanrensbergen.imdb_demo.domain.statistics.StatRow;
+import com.bramvanrensbergen.imdb_demo.domain.statistics.Statistics;
+
+/**
+ * Checks that statistics built in different ways are identical, before measuring how fast each way is.
+ * @author Bram Van Rensbergen
+ */
+final class StatisticsAssertions {
+
+	private StatisticsAssertions() {
+	}
+
+	/**
+	 * @throws IllegalStateException if the indicated statistics differ in any count or row, or in the order of their rows.
+	 */
+	static void assertIdentical(Statistics expected, Statistics actual) {
+		if (expected.getnMovies() != actual.getnMovies() || expected.getnEpisodes() != actual.getnEpisodes()
+				|| expected.getnSeries() != actual.getnSeries()) {
+			throw new IllegalStateException("Statistics count other titles");
+		}
+		assertIdentical(expected.getGlobalStats(), actual.getGlobalStats());
+		assertIdentical(expected.getActorStats(), actual.getActorStats());
+		assertIdentical(expected.getDirectorStats(), actual.getDirectorStats());
+		assertIdentical(expected.getGenreStats(), actual.getGenreStats());
+	}
+
+	private static void assertIdentical(List<StatRow> expected, List<StatRow> actual) {
+		if (expected.size() != actual.size()) {
+			throw new IllegalStateException("Statistics hold " + actual.size() + " rows instead of " + expected.size());
+		}
+		for (int i = 0; i < expected.size(); i++) {
+			assertIdentical(expected.get(i), actual.get(i));
+		}
+	}
+
+	private static void assertIdentical(StatRow expected, StatRow actual) {
+		String e = describe(expected);
+		String a = describe(actual);
+		if (!e.equals(a)) {
+			throw new IllegalStateException("Statistics differ: expected " + e + " but was " + a);
+		}
+	}
+
+	private static String describe(StatRow row) {
+		return row.getName() + " " + row.getUrl() + " " + row.getNbOfOccurrences() + " " + row.getAvgRating() + " " + row.getMinRating()
+				+ " " + row.getMaxRating() + " " + row.getRatingStdDev() + " " + row.getAvgUserRating() + " " + row.getAvgRuntime() + " "
+				+ row.getAvgYearOfRelease();
+	}
+}
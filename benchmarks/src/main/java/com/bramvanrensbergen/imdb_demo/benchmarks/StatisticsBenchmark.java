@@ -0,0 +1,47 @@
+package com.bramvanrensbergen.imdb_demo.benchmarks;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.bramvanrensbergen.imdb_demo.domain.Title;
+import com.bramvanrensbergen.imdb_demo.domain.statistics.Statistics;
+
+/**
+ * Building {@link Statistics} over synthetic sets of titles, from a thousand up to a million titles.
+ * @author Bram Van Rensbergen
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = { "-Xms3g", "-Xmx3g" })
+public class StatisticsBenchmark {
+
+	@Param({ "1000", "10000", "100000", "1000000" })
+	public int titleCount;
+
+	private List<Title> titles;
+
+	@Setup
+	public void setUp() {
+		titles = Fixtures.syntheticTitles(titleCount, 42);
+	}
+
+	@Benchmark
+	public Statistics buildStatistics() {
+		return new Statistics(titles);
+	}
+}
@@ -0,0 +1,66 @@
+package com.bramvanrensbergen.imdb_demo.benchmarks;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.bramvanrensbergen.imdb_demo.domain.Person;
+import com.bramvanrensbergen.imdb_demo.domain.Title;
+import com.bramvanrensbergen.imdb_demo.domain.statistics.StatRow;
+import com.bramvanrensbergen.imdb_demo.domain.statistics.StatisticsAggregator;
+
+/**
+ * The original aggregation of {@link StatisticsAggregator}, which kept rows in hash maps keyed by IMDb id (or name),
+ * and looked each person up three times per title (containsKey, put, get); only used as baseline in {@link AggregationBenchmark}.
+ * @author Bram Van Rensbergen
+ */
+class StringKeyedAggregator {
+
+	private List<Title> analyzedTitles = new ArrayList<Title>();
+
+	private StatRow globalStats = new StatRow();
+
+	private Map<String, StatRow> actorStatsMap = new HashMap<String, StatRow>();
+
+	private Map<String, StatRow> directorStatsMap = new HashMap<String, StatRow>();
+
+	private Map<String, StatRow> genreStatsMap = new HashMap<String, StatRow>();
+
+	synchronized void accept(Title t) {
+		analyzedTitles.add(t);
+		globalStats.addTitle(t);
+
+		for (Person p : t.getPrimaryActors()) {
+			String key = p.getId();
+
+			if (!actorStatsMap.containsKey(key)) {
+				actorStatsMap.put(key, new StatRow(p.getName(), p.getUrl()));
+			}
+
+			actorStatsMap.get(key).addTitle(t);
+		}
+
+		for (Person p : t.getDirectorsOrCreators()) {
+			String key = p.getId() != null ? p.getId() : p.getName();
+
+			if (!directorStatsMap.containsKey(key)) {
+				directorStatsMap.put(key, new StatRow(p.getName(), p.getUrl()));
+			}
+
+			directorStatsMap.get(key).addTitle(t);
+		}
+
+		for (String g : t.getGenresSet()) {
+			if (!genreStatsMap.containsKey(g)) {
+				genreStatsMap.put(g, new StatRow(g));
+			}
+
+			genreStatsMap.get(g).addTitle(t);
+		}
+	}
+
+	int rows() {
+		return actorStatsMap.size() + directorStatsMap.size() + genreStatsMap.size();
+	}
+}
@@ -0,0 +1,68 @@
+package com.bramvanrensbergen.imdb_demo.benchmarks;
+
+import java.util.Collections;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.mock.web.MockServletContext;
+import org.thymeleaf.context.WebContext;
+import org.thymeleaf.spring4.SpringTemplateEngine;
+import org.thymeleaf.templateresolver.ClassLoaderTemplateResolver;
+
+import com.bramvanrensbergen.imdb_demo.domain.statistics.Statistics;
+
+/**
+ * Rendering the complete 'stats' page, with the same template engine and settings the application uses.
+ * <br>The page lists every analyzed title, so rendering time grows with the number of titles.
+ * @author Bram Van Rensbergen
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TemplateRenderingBenchmark {
+
+	@Param({ "100", "1000", "10000" })
+	public int titleCount;
+
+	private SpringTemplateEngine engine;
+
+	private WebContext context;
+
+	@Setup
+	public void setUp() {
+		ClassLoaderTemplateResolver resolver = new ClassLoaderTemplateResolver();
+		resolver.setPrefix("templates/");
+		resolver.setSuffix(".html");
+		resolver.setTemplateMode("HTML5");
+		resolver.setCharacterEncoding("UTF-8");
+		resolver.setCacheable(true);
+
+		engine = new SpringTemplateEngine();
+		engine.setTemplateResolver(resolver);
+
+		MockServletContext servletContext = new MockServletContext();
+		context = new WebContext(new MockHttpServletRequest(servletContext), new MockHttpServletResponse(), servletContext, Locale.ENGLISH,
+				Collections.<String, Object>singletonMap("stats", new Statistics(Fixtures.syntheticTitles(titleCount, 42))));
+	}
+
+	@Benchmark
+	public String renderStats() {
+		return engine.process("stats", context);
+	}
+}
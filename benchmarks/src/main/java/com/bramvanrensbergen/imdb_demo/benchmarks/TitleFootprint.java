@@ -0,0 +1,71 @@
+package com.bramvanrensbergen.imdb_demo.benchmarks;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.jsoup.Jsoup;
+import org.jsoup.nodes.Document;
+
+import com.bramvanrensbergen.imdb_demo.domain.Title;
+import com.bramvanrensbergen.imdb_demo.domain.TitleHtmlExtractor;
+
+/**
+ * Measures the heap retained per title, with and without keeping the parsed page of each title alive
+ * (titles used to hold on to their html Document, they now only keep the extracted fields).
+ * <br>Titles share their actors, directors, and genres through the {@link com.bramvanrensbergen.imdb_demo.domain.Registry},
+ * so those are hardly part of the heap retained per title.
+ * <br>Not a JMH benchmark, as it measures memory rather than time; run with
+ * 'java -cp target/benchmarks.jar com.bramvanrensbergen.imdb_demo.benchmarks.TitleFootprint [titles]'.
+ * @author Bram Van Rensbergen
+ */
+public class TitleFootprint {
+
+	private static final String[] IDS = { Fixtures.MOVIE_ID, Fixtures.SERIES_ID, Fixtures.EPISODE_ID };
+
+	public static void main(String[] args) throws IOException {
+		int n = args.length > 0 ? Integer.parseInt(args[0]) : 1000;
+
+		String[] pages = new String[IDS.length];
+		for (int i = 0; i < IDS.length; i++) {
+			pages[i] = Fixtures.page(IDS[i]);
+		}
+
+		long baseline = usedHeap();
+		List<Object> retained = create(n, pages, true);
+		long withDocuments = usedHeap() - baseline;
+		retained.clear();
+
+		baseline = usedHeap();
+		retained = create(n, pages, false);
+		long titlesOnly = usedHeap() - baseline;
+
+		System.out.printf("%d titles%n", retained.size());
+		System.out.printf("titles with their Documents: %8.1f KB per title%n", withDocuments / 1024.0 / n);
+		System.out.printf("titles only:                 %8.1f KB per title%n", titlesOnly / 1024.0 / n);
+	}
+
+	/**
+	 * @return n titles created from the recorded pages, with their parsed Documents if requested.
+	 */
+	private static List<Object> create(int n, String[] pages, boolean keepDocuments) {
+		List<Object> retained = new ArrayList<Object>(keepDocuments ? 2 * n : n);
+		for (int i = 0; i < n; i++) {
+			String id = IDS[i % IDS.length];
+			Document doc = Jsoup.parse(pages[i % pages.length], Title.BASE_URL + id);
+			retained.add(Fixtures.createTitle(TitleHtmlExtractor.extract(id, doc, Fixtures.type(id))));
+			if (keepDocuments) {
+				retained.add(doc);
+			}
+		}
+		return retained;
+	}
+
+	private static long usedHeap() {
+		Runtime runtime = Runtime.getRuntime();
+		for (int i = 0; i < 5; i++) {
+			System.gc();
+		}
+		return runtime.totalMemory() - runtime.freeMemory();
+	}
+}
@@ -0,0 +1,120 @@
+package com.bramvanrensbergen.imdb_demo.benchmarks;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+import org.jsoup.Jsoup;
+import org.jsoup.nodes.Document;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.bramvanrensbergen.imdb_demo.domain.DomTitleExtractor;
+import com.bramvanrensbergen.imdb_demo.domain.StreamingTitleExtractor;
+import com.bramvanrensbergen.imdb_demo.domain.Title;
+import com.bramvanrensbergen.imdb_demo.domain.TitleData;
+import com.bramvanrensbergen.imdb_demo.domain.TitleField;
+import com.bramvanrensbergen.imdb_demo.domain.TitleHtmlExtractor;
+import com.bramvanrensbergen.imdb_demo.domain.TitlePageExtractor;
+import com.bramvanrensbergen.imdb_demo.domain.TitleType;
+
+/**
+ * Creating a title from its recorded IMDb page: parsing the html, and extracting the title's fields from the parsed page.
+ * <br>Extraction is compared with the original selector-per-field implementation ({@link SelectExtractor}),
+ * and the Document-based extractor with the streaming one, which never parses the whole page (run with '-prof gc' to compare allocations).
+ * @author Bram Van Rensbergen
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TitleParsingBenchmark {
+
+	@Param({ Fixtures.MOVIE_ID, Fixtures.SERIES_ID, Fixtures.EPISODE_ID })
+	public String id;
+
+	private String html;
+
+	private Document doc;
+
+	private TitleType type;
+
+	private byte[] bytes;
+
+	private final TitlePageExtractor domExtractor = new DomTitleExtractor();
+
+	private final TitlePageExtractor streamingExtractor = new StreamingTitleExtractor();
+
+	@Setup
+	public void setUp() throws IOException {
+		html = Fixtures.page(id);
+		doc = Jsoup.parse(html, Title.BASE_URL + id);
+		type = Fixtures.type(id);
+		bytes = html.getBytes(StandardCharsets.UTF_8);
+	}
+
+	/**
+	 * Everything that happens after a page is downloaded: parse, extract all fields including the type, and create the title.
+	 */
+	@Benchmark
+	public Title parseAndCreateTitle() {
+		Document parsed = Jsoup.parse(html, Title.BASE_URL + id);
+		return Fixtures.createTitle(TitleHtmlExtractor.extract(id, parsed, TitleField.ALL));
+	}
+
+	@Benchmark
+	public Title parseAndCreateTitleSelectBaseline() {
+		Document parsed = Jsoup.parse(html, Title.BASE_URL + id);
+		TitleType parsedType = TitleType.fromDescription(SelectExtractor.obtainTypeDescription(parsed));
+		return Fixtures.createTitle(SelectExtractor.extract(id, parsed, parsedType));
+	}
+
+	/**
+	 * Only parsing the html.
+	 */
+	@Benchmark
+	public Document parse() {
+		return Jsoup.parse(html, Title.BASE_URL + id);
+	}
+
+	/**
+	 * Only extracting the fields from an already parsed page.
+	 */
+	@Benchmark
+	public TitleData extract() {
+		return TitleHtmlExtractor.extract(id, doc, type);
+	}
+
+	@Benchmark
+	public TitleData extractSelectBaseline() {
+		return SelectExtractor.extract(id, doc, type);
+	}
+
+	/**
+	 * Extracting all fields including the type from the page as downloaded, by parsing it into a Document first.
+	 */
+	@Benchmark
+	public TitleData extractFromPageDom() throws IOException {
+		return domExtractor.extract(id, new ByteArrayInputStream(bytes), "UTF-8", null, TitleField.ALL);
+	}
+
+	/**
+	 * Extracting all fields including the type from the page as downloaded, while reading it.
+	 */
+	@Benchmark
+	public TitleData extractFromPageStreaming() throws IOException {
+		return streamingExtractor.extract(id, new ByteArrayInputStream(bytes), "UTF-8", null, TitleField.ALL);
+	}
+}
@@ -0,0 +1,97 @@
+package com.bramvanrensbergen.imdb_demo.domain;
+
+import org.jsoup.nodes.Element;
+import org.jsoup.nodes.Node;
+import org.jsoup.select.Collector;
+import org.jsoup.select.Elements;
+import org.jsoup.select.Evaluator;
+import org.jsoup.select.QueryParser;
+
+/**
+ * A CSS selector that is parsed only once, rather than on every call of {@code Element.select(String)}.
+ * <br>Also offers the pre-order walk over elements used to look up several selectors in a single traversal of a page.
+ * @author Bram Van Rensbergen
+ */
+public final class CompiledSelector {
+
+	private final String query;
+
+	private final Evaluator evaluator;
+
+	private CompiledSelector(String query) {
+		this.query = query;
+		this.evaluator = QueryParser.parse(query);
+	}
+
+	/**
+	 * @param query CSS selector, in the syntax of {@code Element.select(String)}.
+	 * @throws org.jsoup.select.Selector.SelectorParseException If the query is not a valid selector.
+	 */
+	public static CompiledSelector compile(String query) {
+		return new CompiledSelector(query);
+	}
+
+	/**
+	 * @return Whether the indicated element, which is part of the tree under root, matches this selector.
+	 */
+	public boolean matches(Element root, Element element) {
+		return evaluator.matches(root, element);
+	}
+
+	/**
+	 * @return The first element under (and including) root that matches this selector, in document order; or null if none does.
+	 * <br>Unlike {@code root.select(query).first()}, this stops at the first match.
+	 */
+	public Element first(Element root) {
+		for (Element e = root; e != null; e = next(root, e)) {
+			if (evaluator.matches(root, e)) {
+				return e;
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * @return All elements under (and including) root that match this selector, in document order.
+	 */
+	public Elements all(Element root) {
+		return Collector.collect(evaluator, root);
+	}
+
+	/**
+	 * @return The element after the indicated one in a pre-order walk over all elements under root; or null once the walk is done.
+	 * <br>Avoids {@code Element.children()} and {@code Element.nextElementSibling()}, which copy the list of children on every call.
+	 */
+	static Element next(Element root, Element current) {
+		Element child = elementFrom(current, 0);
+		if (child != null) {
+			return child;
+		}
+
+		for (Node n = current; n != root && n.parentNode() != null; n = n.parentNode()) {
+			Element sibling = elementFrom(n.parentNode(), n.siblingIndex() + 1);
+			if (sibling != null) {
+				return sibling;
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * @return The first child element of parent at or after the indicated index, or null if there is none.
+	 */
+	private static Element elementFrom(Node parent, int index) {
+		for (int i = index; i < parent.childNodeSize(); i++) {
+			Node n = parent.childNode(i);
+			if (n instanceof Element) {
+				return (Element) n;
+			}
+		}
+		return null;
+	}
+
+	@Override
+	public String toString() {
+		return query;
+	}
+}
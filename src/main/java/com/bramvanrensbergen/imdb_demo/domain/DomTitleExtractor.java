@@ -0,0 +1,21 @@
+package com.bramvanrensbergen.imdb_demo.domain;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Set;
+
+import org.jsoup.Jsoup;
+import org.jsoup.nodes.Document;
+
+/**
+ * Parses the whole page into a jsoup Document, and extracts the title's fields from it with {@link TitleHtmlExtractor}.
+ * @author Bram Van Rensbergen
+ */
+public final class DomTitleExtractor implements TitlePageExtractor {
+
+	@Override
+	public TitleData extract(String id, InputStream page, String charset, TitleType type, Set<TitleField> fields) throws IOException {
+		Document doc = Jsoup.parse(page, charset, Title.BASE_URL + id);
+		return type != null ? TitleHtmlExtractor.extract(id, doc, type, fields) : TitleHtmlExtractor.extract(id, doc, fields);
+	}
+}
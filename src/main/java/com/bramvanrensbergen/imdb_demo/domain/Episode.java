@@ -1,9 +1,6 @@
 package com.bramvanrensbergen.imdb_demo.domain;
 
-import java.io.IOException;
-
 import org.jsoup.nodes.Document;
-import org.jsoup.nodes.Element;
 
 /**
  * Represents a single episode in a TV-Series.
@@ -20,50 +17,76 @@ public class Episode extends Title {
 	/**
 	 * @param id IMDb id of the episode (e.g. 'tt4108304')
 	 * @param doc Document containing html of the episode's imdb page.
-	 * @throws IOException If {@code doc} is not a valid imdb page.
 	 */
-	public Episode(String id, Document doc) throws IOException {
-		super(id, doc);		
-		
-		Element parent = doc.select(".titleParent a").first();		
-		
-		seriesName = parent.text();
-		seriesId = Title.getIdFromUrl(parent.attr("href"));
-		
-		Element seasonInfo = doc.select(".navigation_panel .bp_heading").first();		
-		seasonAndEpisodeNumberDesc = seasonInfo.text();		
+	public Episode(String id, Document doc) {
+		this(TitleHtmlExtractor.extract(id, doc, TitleType.EPISODE));
+	}
+	
+	/**
+	 * @param data Previously obtained data of the episode, including the series info.
+	 */
+	public Episode(TitleData data) {
+		this(data, null);
+	}
+	
+	/**
+	 * @param data Previously obtained data of the episode, including the series info, possibly lacking some {@link TitleField}s.
+	 * @param enricher Looks up the missing fields on first access; or null, to leave them empty.
+	 */
+	public Episode(TitleData data, TitleEnricher enricher) {
+		super(data, enricher);
 		
-		this.yearOfRelease = obtainYearOfReleaseFromHtml();
+		seriesName = data.getSeriesName();
+		seriesId = data.getSeriesId();
+		seasonAndEpisodeNumberDesc = data.getSeasonAndEpisodeNumberDesc();
 	}
 	
 	/**
-	 * @return Name of the series of which this episode is part.
+	 * @return Name of the series of which this episode is part; or null if unknown (e.g. for episodes read from exported ratings).
 	 */
 	public String getSeriesName() {
 		return seriesName;
 	}
 
 	/**
-	 * @return IMDb id of the series of which this episode is part.
+	 * @return IMDb id of the series of which this episode is part; or null if unknown.
 	 */
 	public String getSeriesId() {
 		return seriesId;
 	}
 	
 	/**
-	 * @return String containing season and episode number of this episode.
+	 * @return String containing season and episode number of this episode; or null if unknown.
 	 */
 	public String getSeasonAndEpisodeNumberDesc() {
 		return seasonAndEpisodeNumberDesc;
 	}
 
+	@Override
+	public TitleData toData() {
+		return toData(seriesName, seriesId, seasonAndEpisodeNumberDesc);
+	}
+	
+	@Override
+	public TitleType getType() {
+		return TitleType.EPISODE;
+	}
+
 	@Override
 	public String getDirectorFunctionName() {
 		return "Director";
 	}
 
+	/**
+	 * @return Name of the series, followed by season and episode number; either is left out if unknown,
+	 * 	and null is returned if both are.
+	 */
 	@Override
 	public String getSubTitle() {
-		return seriesName + ", " + seasonAndEpisodeNumberDesc.replace(" |", ", ");
+		String episodeNumber = seasonAndEpisodeNumberDesc == null ? null : seasonAndEpisodeNumberDesc.replace(" |", ", ");
+		if (seriesName == null) {
+			return episodeNumber;
+		}
+		return episodeNumber == null ? seriesName : seriesName + ", " + episodeNumber;
 	}	
 }
\ No newline at end of file
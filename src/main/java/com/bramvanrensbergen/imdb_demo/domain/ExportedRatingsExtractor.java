@@ -0,0 +1,173 @@
+package com.bramvanrensbergen.imdb_demo.domain;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.apache.commons.csv.CSVRecord;
+import org.apache.commons.lang3.StringUtils;
+
+import com.bramvanrensbergen.imdb_demo.domain.statistics.MathUtil;
+
+/**
+ * Extracts the data of a title from a row of exported IMDb ratings, without looking up its IMDb page.
+ * <br>Exported ratings hold the title, type, directors (names only), rating, runtime, year, and genres;
+ * they hold no cast, no summary, and no ids of directors.
+ * <br>Use a single extractor per file: directors of whom only the name is known are shared by all titles of the file,
+ * but not kept any longer (see {@link Registry#newPersonWithoutId(String)}). Genres that IMDb does not list are left out.
+ * Safe for use by multiple threads.
+ * @author Bram Van Rensbergen
+ */
+public final class ExportedRatingsExtractor {
+
+	private static final int ID_COLUMN = 1;
+	private static final int TITLE_COLUMN = 5;
+	private static final int TYPE_COLUMN = 6;
+	private static final int DIRECTORS_COLUMN = 7;
+	private static final int RATING_COLUMN = 9;
+	private static final int RUNTIME_COLUMN = 10;
+	private static final int YEAR_COLUMN = 11;
+	private static final int GENRES_COLUMN = 12;
+
+	/**
+	 * The optional fields present in exported ratings; directors only by name.
+	 */
+	public static final Set<TitleField> FIELDS = Collections.unmodifiableSet(EnumSet.of(TitleField.DIRECTORS));
+
+	/**
+	 * The genres listed on IMDb, as named on its pages.
+	 */
+	private static final Set<String> GENRES = Collections.unmodifiableSet(new HashSet<String>(Arrays.asList(
+			"Action", "Adult", "Adventure", "Animation", "Biography", "Comedy", "Crime", "Documentary", "Drama", "Family",
+			"Fantasy", "Film-Noir", "Game-Show", "History", "Horror", "Music", "Musical", "Mystery", "News", "Reality-TV",
+			"Romance", "Sci-Fi", "Short", "Sport", "Talk-Show", "Thriller", "War", "Western")));
+
+	/**
+	 * Directors encountered so far, by name.
+	 */
+	private final ConcurrentMap<String, Person> directorsByName = new ConcurrentHashMap<String, Person>();
+
+	/**
+	 * Extract all data present in the indicated row of exported ratings.
+	 * @return The data of the title, or null if the row does not hold all columns of exported ratings.
+	 */
+	public TitleData extract(CSVRecord record) {
+		if (record.size() <= GENRES_COLUMN) {
+			return null;
+		}
+
+		TitleType type = TitleType.fromDescription(record.get(TYPE_COLUMN));
+		Integer runtimeMinutes = parseInteger(record.get(RUNTIME_COLUMN));
+		Integer year = parseInteger(record.get(YEAR_COLUMN));
+
+		return new TitleData(type, record.get(ID_COLUMN), FIELDS,
+				record.get(TITLE_COLUMN),
+				obtainGenres(record.get(GENRES_COLUMN)),
+				parseDouble(record.get(RATING_COLUMN)),
+				null,
+				MathUtil.minutesToRuntimeDescription(runtimeMinutes),
+				type == TitleType.SERIES ? null : year,
+				obtainDirectors(record.get(DIRECTORS_COLUMN)),
+				Collections.<Person>emptyList(),
+				null, null, null);
+	}
+
+	/**
+	 * Complete data of the title obtained before (e.g. from a cache) with the data in the indicated row of exported ratings,
+	 * for the fields present in exported ratings that it lacks.
+	 * @param known Data of the title in the row; it is kept for all fields it holds.
+	 * @return The known data, if it holds all fields present in exported ratings, or if the row does not hold all columns;
+	 * 	else, the known data with the missing fields taken from the row.
+	 */
+	public TitleData complete(TitleData known, CSVRecord record) {
+		if (known.getFields().containsAll(FIELDS)) {
+			return known;
+		}
+
+		TitleData extracted = extract(record);
+		if (extracted == null) {
+			return known;
+		}
+
+		Set<TitleField> fields = EnumSet.copyOf(FIELDS);
+		fields.addAll(known.getFields());
+		return new TitleData(known.getType(), known.getId(), fields,
+				known.getTitle() != null ? known.getTitle() : extracted.getTitle(),
+				known.getGenres().isEmpty() ? extracted.getGenres() : known.getGenres(),
+				known.getRating() != null ? known.getRating() : extracted.getRating(),
+				known.getSummaryText(),
+				known.getRuntimeString() != null ? known.getRuntimeString() : extracted.getRuntimeString(),
+				known.getYearOfRelease() != null ? known.getYearOfRelease() : extracted.getYearOfRelease(),
+				extracted.getDirectorsOrCreators(),
+				known.getPrimaryActors(),
+				known.getSeriesName(), known.getSeriesId(), known.getSeasonAndEpisodeNumberDesc());
+	}
+
+	/**
+	 * Convert genres as found in exported ratings (e.g. 'crime, sci_fi') to the names used on IMDb pages (e.g. 'Crime', 'Sci-Fi');
+	 * genres that IMDb does not list are left out.
+	 */
+	private static Set<String> obtainGenres(String genresColumn) {
+		Set<String> genres = new LinkedHashSet<String>();
+		for (String genre : StringUtils.split(genresColumn, ',')) {
+			String[] parts = StringUtils.split(genre.trim(), '_');
+			for (int i = 0; i < parts.length; i++) {
+				parts[i] = parts[i].equals("tv") ? "TV" : StringUtils.capitalize(parts[i]);
+			}
+
+			String name = StringUtils.join(parts, '-');
+			if (GENRES.contains(name)) {
+				genres.add(name);
+			}
+		}
+		return genres;
+	}
+
+	private List<Person> obtainDirectors(String directorsColumn) {
+		List<Person> directors = new ArrayList<Person>();
+		for (String name : StringUtils.split(directorsColumn, ',')) {
+			if (!name.trim().isEmpty()) {
+				directors.add(director(name.trim()));
+			}
+		}
+		return directors;
+	}
+
+	/**
+	 * @return The director with the indicated name, created if not encountered before by this extractor.
+	 */
+	private Person director(String name) {
+		Person director = directorsByName.get(name);
+		if (director == null) {
+			Person created = Registry.newPersonWithoutId(name);
+			director = directorsByName.putIfAbsent(name, created);
+			if (director == null) {
+				director = created;
+			}
+		}
+		return director;
+	}
+
+	private static Integer parseInteger(String s) {
+		try {
+			return Integer.valueOf(s.trim());
+		} catch (NumberFormatException e) {
+			return null;
+		}
+	}
+
+	private static Double parseDouble(String s) {
+		try {
+			return Double.valueOf(s.trim());
+		} catch (NumberFormatException e) {
+			return null;
+		}
+	}
+}
@@ -0,0 +1,34 @@
+package com.bramvanrensbergen.imdb_demo.domain;
+
+import java.util.Set;
+
+/**
+ * The genres of a title, as names and as keys (see {@link Registry#genreKey(String)}); obtained from the {@link Registry},
+ * so all titles that list the same genres share a single instance.
+ * @author Bram Van Rensbergen
+ */
+public final class GenreSet {
+
+	private final Set<String> names;
+
+	private final int[] keys;
+
+	GenreSet(Set<String> names, int[] keys) {
+		this.names = names;
+		this.keys = keys;
+	}
+
+	/**
+	 * @return An unmodifiable set of the canonical names of these genres.
+	 */
+	public Set<String> getNames() {
+		return names;
+	}
+
+	/**
+	 * @return The keys of these genres, in the order they are listed in {@link #getNames()}; shared, so must not be modified.
+	 */
+	public int[] getKeys() {
+		return keys;
+	}
+}
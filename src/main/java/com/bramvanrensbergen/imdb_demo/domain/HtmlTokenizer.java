@@ -0,0 +1,505 @@
+package com.bramvanrensbergen.imdb_demo.domain;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+
+import org.jsoup.parser.Parser;
+import org.jsoup.parser.Tag;
+
+/**
+ * Reads html as a stream of start tags, end tags, and text (SAX-style), without building a tree of the page.
+ * <br>Elements are reported properly nested, the way jsoup would build them for ordinary pages: void elements are closed
+ * right away, elements whose end tag may be left out (list items, table cells, paragraphs, ...) are closed where the next
+ * one starts, and end tags without a matching open element are ignored.
+ * Comments, doctypes, and the contents of scripts and styles are skipped.
+ * @author Bram Van Rensbergen
+ */
+final class HtmlTokenizer {
+
+	/**
+	 * Receives the elements and text of a page, in document order.
+	 */
+	interface Handler {
+
+		/**
+		 * An element was opened; the tag is only valid during this call.
+		 */
+		void start(StartTag tag);
+
+		/**
+		 * The innermost open element was closed.
+		 */
+		void end(String name);
+
+		/**
+		 * Text within the innermost open element, with entities decoded; only reported while {@link #wantsText()}.
+		 */
+		void text(String text);
+
+		boolean wantsText();
+
+		/**
+		 * @return Whether the rest of the page can be skipped.
+		 */
+		boolean isDone();
+	}
+
+	/**
+	 * The name and attributes of an element being opened, and its position among the elements of its parent.
+	 */
+	static final class StartTag {
+		private String name;
+
+		private int elementIndex;
+
+		private final List<String> attributeNames = new ArrayList<String>();
+
+		private final List<String> attributeValues = new ArrayList<String>();
+
+		/**
+		 * @return The name of the element, in lower case.
+		 */
+		String getName() {
+			return name;
+		}
+
+		/**
+		 * @return The index of the element among the elements of its parent (jsoup's {@code elementSiblingIndex()}).
+		 */
+		int getElementIndex() {
+			return elementIndex;
+		}
+
+		/**
+		 * @return The value of the indicated attribute (lower case), or an empty String if the element does not have it.
+		 */
+		String attr(String key) {
+			int i = attributeNames.indexOf(key);
+			return i < 0 ? "" : attributeValues.get(i);
+		}
+
+		/**
+		 * @return Whether the class attribute of the element holds the indicated class, ignoring case.
+		 */
+		boolean hasClass(String className) {
+			String classes = attr("class");
+			int length = classes.length();
+			int start = 0;
+			for (int i = 0; i <= length; i++) {
+				if (i == length || Character.isWhitespace(classes.charAt(i))) {
+					if (i - start == className.length() && classes.regionMatches(true, start, className, 0, i - start)) {
+						return true;
+					}
+					start = i + 1;
+				}
+			}
+			return false;
+		}
+	}
+
+	private static final Set<String> VOID_ELEMENTS = set("area", "base", "br", "col", "embed", "hr", "img", "input", "keygen",
+			"link", "meta", "param", "source", "track", "wbr");
+
+	/**
+	 * Elements whose contents are not html, and are skipped.
+	 */
+	private static final Set<String> RAW_TEXT_ELEMENTS = set("script", "style", "textarea", "title", "iframe", "noembed",
+			"noframes", "xmp");
+
+	/**
+	 * Elements that close an open paragraph.
+	 */
+	private static final Set<String> CLOSES_PARAGRAPH = set("address", "article", "aside", "blockquote", "center", "details",
+			"dir", "div", "dl", "fieldset", "figcaption", "figure", "footer", "form", "h1", "h2", "h3", "h4", "h5", "h6", "header",
+			"hr", "main", "menu", "nav", "ol", "p", "pre", "section", "summary", "table", "ul");
+
+	private static final Set<String> PARAGRAPH_SCOPE = set("applet", "button", "caption", "html", "marquee", "object", "table", "td", "th");
+	private static final Set<String> LIST_ITEM_SCOPE = set("ol", "ul", "table", "td", "th", "html");
+	private static final Set<String> DEFINITION_SCOPE = set("dl", "table", "td", "th", "html");
+	private static final Set<String> CELL_SCOPE = set("tr", "table", "html");
+	private static final Set<String> ROW_SCOPE = set("tbody", "thead", "tfoot", "table", "html");
+	private static final Set<String> TABLE_SCOPE = set("table", "html");
+	private static final Set<String> SELECT_SCOPE = set("select", "datalist", "html");
+
+	private static final String[] PARAGRAPH = { "p" };
+	private static final String[] LIST_ITEM = { "li" };
+	private static final String[] DEFINITION = { "dd", "dt" };
+	private static final String[] CELL = { "td", "th" };
+	private static final String[] ROW = { "tr" };
+	private static final String[] SECTION = { "tbody", "thead", "tfoot" };
+	private static final String[] OPTION = { "option" };
+	private static final String[] HEAD = { "head" };
+
+	private static final int EOF = -1;
+
+	private final Reader in;
+
+	private final char[] buffer = new char[8192];
+
+	private int pos;
+
+	private int limit;
+
+	private final StringBuilder text = new StringBuilder();
+
+	private final StringBuilder scratch = new StringBuilder();
+
+	private final StartTag tag = new StartTag();
+
+	/**
+	 * Names of the open elements; index 0 is the document itself.
+	 */
+	private String[] openElements = new String[64];
+
+	/**
+	 * Number of child elements seen so far, for each open element.
+	 */
+	private int[] childCounts = new int[64];
+
+	private int depth;
+
+	private Handler handler;
+
+	private boolean collectingText;
+
+	HtmlTokenizer(Reader in) {
+		this.in = in;
+	}
+
+	/**
+	 * Read the page up to its end, or until the handler is done.
+	 */
+	void run(Handler handler) throws IOException {
+		this.handler = handler;
+		collectingText = handler.wantsText();
+
+		int c;
+		while (!handler.isDone() && (c = read()) != EOF) {
+			if (c != '<') {
+				if (collectingText) {
+					text.append((char) c);
+				}
+				continue;
+			}
+
+			int next = peek();
+			if (isLetter(next)) {
+				readStartTag();
+			} else if (next == '/') {
+				read();
+				if (isLetter(peek())) {
+					readEndTag();
+				} else {
+					skipPast('>');
+				}
+			} else if (next == '!') {
+				read();
+				skipDeclaration();
+			} else if (next == '?') {
+				skipPast('>');
+			} else if (collectingText) {
+				text.append('<');
+			}
+		}
+
+		while (depth > 0 && !handler.isDone()) {
+			pop();
+		}
+	}
+
+	private void readStartTag() throws IOException {
+		String name = readName();
+		tag.attributeNames.clear();
+		tag.attributeValues.clear();
+		boolean selfClosing = false;
+
+		while (true) {
+			skipWhitespace();
+			int c = peek();
+			if (c == EOF) {
+				return;
+			} else if (c == '>') {
+				read();
+				break;
+			} else if (c == '/') {
+				read();
+				if (peek() == '>') {
+					read();
+					selfClosing = true;
+					break;
+				}
+				continue;
+			}
+
+			String attributeName = readName();
+			if (attributeName.isEmpty()) {
+				read();
+				continue;
+			}
+
+			skipWhitespace();
+			String value = "";
+			if (peek() == '=') {
+				read();
+				skipWhitespace();
+				value = readAttributeValue();
+			}
+			if (!tag.attributeNames.contains(attributeName)) {
+				tag.attributeNames.add(attributeName);
+				tag.attributeValues.add(value);
+			}
+		}
+
+		open(name, selfClosing);
+	}
+
+	private void readEndTag() throws IOException {
+		String name = readName();
+		skipPast('>');
+
+		// content after the end of body is still treated as part of it
+		if (name.equals("body") || name.equals("html")) {
+			return;
+		}
+
+		for (int i = depth; i > 0; i--) {
+			if (openElements[i].equals(name)) {
+				popTo(i);
+				return;
+			}
+		}
+	}
+
+	private void open(String name, boolean selfClosing) throws IOException {
+		closeImpliedElements(name);
+		flushText();
+
+		tag.name = name;
+		tag.elementIndex = childCounts[depth]++;
+		handler.start(tag);
+
+		if (VOID_ELEMENTS.contains(name) || (selfClosing && !Tag.isKnownTag(name))) {
+			handler.end(name);
+		} else {
+			push(name);
+			if (RAW_TEXT_ELEMENTS.contains(name)) {
+				skipRawText(name);
+				pop();
+			}
+		}
+		collectingText = handler.wantsText();
+	}
+
+	/**
+	 * Close the elements that end where an element with the indicated name starts.
+	 */
+	private void closeImpliedElements(String name) {
+		if (CLOSES_PARAGRAPH.contains(name)) {
+			closeOpen(PARAGRAPH, PARAGRAPH_SCOPE);
+		}
+
+		switch (name) {
+		case "li":
+			closeOpen(LIST_ITEM, LIST_ITEM_SCOPE);
+			break;
+		case "dd":
+		case "dt":
+			closeOpen(DEFINITION, DEFINITION_SCOPE);
+			break;
+		case "td":
+		case "th":
+			closeOpen(CELL, CELL_SCOPE);
+			break;
+		case "tr":
+			closeOpen(ROW, ROW_SCOPE);
+			break;
+		case "tbody":
+		case "thead":
+		case "tfoot":
+			closeOpen(SECTION, TABLE_SCOPE);
+			break;
+		case "option":
+			closeOpen(OPTION, SELECT_SCOPE);
+			break;
+		case "body":
+			closeOpen(HEAD, TABLE_SCOPE);
+			break;
+		default:
+			break;
+		}
+	}
+
+	/**
+	 * Close the innermost open element with one of the indicated names, and all elements within it;
+	 * unless an element of {@code scope} is found first.
+	 */
+	private void closeOpen(String[] names, Set<String> scope) {
+		for (int i = depth; i > 0; i--) {
+			String open = openElements[i];
+			for (String name : names) {
+				if (open.equals(name)) {
+					popTo(i);
+					return;
+				}
+			}
+			if (scope.contains(open)) {
+				return;
+			}
+		}
+	}
+
+	private void push(String name) {
+		if (++depth == openElements.length) {
+			openElements = Arrays.copyOf(openElements, depth * 2);
+			childCounts = Arrays.copyOf(childCounts, depth * 2);
+		}
+		openElements[depth] = name;
+		childCounts[depth] = 0;
+	}
+
+	private void popTo(int index) {
+		while (depth >= index) {
+			pop();
+		}
+	}
+
+	private void pop() {
+		flushText();
+		handler.end(openElements[depth]);
+		openElements[depth--] = null;
+		collectingText = handler.wantsText();
+	}
+
+	private void flushText() {
+		if (text.length() > 0) {
+			handler.text(decode(text, false));
+			text.setLength(0);
+		}
+	}
+
+	/**
+	 * Skip the contents of a script, style, or similar element, up to its end tag.
+	 */
+	private void skipRawText(String name) throws IOException {
+		int c;
+		while ((c = read()) != EOF) {
+			if (c == '<' && peek() == '/') {
+				read();
+				if (readName().equals(name)) {
+					skipPast('>');
+					return;
+				}
+			}
+		}
+	}
+
+	/**
+	 * Skip a comment, doctype, or CDATA section; the '&lt;!' has been read.
+	 */
+	private void skipDeclaration() throws IOException {
+		if (peek() != '-') {
+			skipPast('>');
+			return;
+		}
+
+		read();
+		if (peek() != '-') {
+			skipPast('>');
+			return;
+		}
+
+		read();
+		int dashes = 0;
+		int c;
+		while ((c = read()) != EOF) {
+			if (c == '>' && dashes >= 2) {
+				return;
+			}
+			dashes = c == '-' ? dashes + 1 : 0;
+		}
+	}
+
+	/**
+	 * @return The name of a tag or attribute, in lower case; empty if none starts here.
+	 */
+	private String readName() throws IOException {
+		scratch.setLength(0);
+		int c;
+		while ((c = peek()) != EOF && !Character.isWhitespace(c) && c != '/' && c != '>' && c != '=') {
+			scratch.append((char) read());
+		}
+		return scratch.toString().toLowerCase(Locale.ROOT);
+	}
+
+	private String readAttributeValue() throws IOException {
+		scratch.setLength(0);
+		int quote = peek();
+		int c;
+		if (quote == '"' || quote == '\'') {
+			read();
+			while ((c = read()) != EOF && c != quote) {
+				scratch.append((char) c);
+			}
+		} else {
+			while ((c = peek()) != EOF && !Character.isWhitespace(c) && c != '>') {
+				scratch.append((char) read());
+			}
+		}
+		return decode(scratch, true);
+	}
+
+	private static String decode(StringBuilder s, boolean inAttribute) {
+		return s.indexOf("&") < 0 ? s.toString() : Parser.unescapeEntities(s.toString(), inAttribute);
+	}
+
+	private void skipWhitespace() throws IOException {
+		while (Character.isWhitespace(peek())) {
+			read();
+		}
+	}
+
+	private void skipPast(char end) throws IOException {
+		int c;
+		while ((c = read()) != EOF && c != end) {
+			// skip
+		}
+	}
+
+	private int read() throws IOException {
+		if (pos == limit && !fill()) {
+			return EOF;
+		}
+		return buffer[pos++];
+	}
+
+	private int peek() throws IOException {
+		if (pos == limit && !fill()) {
+			return EOF;
+		}
+		return buffer[pos];
+	}
+
+	private boolean fill() throws IOException {
+		int n = in.read(buffer);
+		if (n <= 0) {
+			return false;
+		}
+		pos = 0;
+		limit = n;
+		return true;
+	}
+
+	private static boolean isLetter(int c) {
+		return (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z');
+	}
+
+	private static Set<String> set(String... names) {
+		return new HashSet<String>(Arrays.asList(names));
+	}
+}
@@ -1,7 +1,5 @@
 package com.bramvanrensbergen.imdb_demo.domain;
 
-import java.io.IOException;
-
 import org.jsoup.nodes.Document;
 
 public class Movie extends Title {
@@ -9,12 +7,29 @@ public class Movie extends Title {
 	/**
 	 * @param id IMDb id of the movie (e.g. 'tt0090756')
 	 * @param doc Document containing html of the movie's imdb page.
-	 * @throws IOException If {@code doc} is not a valid imdb page.
 	 */
-	public Movie(String id, Document doc) throws IOException {
-		super(id, doc);
-		
-		this.yearOfRelease = obtainYearOfReleaseFromHtml();
+	public Movie(String id, Document doc) {
+		super(TitleHtmlExtractor.extract(id, doc, TitleType.MOVIE));
+	}
+	
+	/**
+	 * @param data Previously obtained data of the movie.
+	 */
+	public Movie(TitleData data) {
+		super(data);
+	}
+	
+	/**
+	 * @param data Previously obtained data of the movie, possibly lacking some {@link TitleField}s.
+	 * @param enricher Looks up the missing fields on first access; or null, to leave them empty.
+	 */
+	public Movie(TitleData data, TitleEnricher enricher) {
+		super(data, enricher);
+	}
+	
+	@Override
+	public TitleType getType() {
+		return TitleType.MOVIE;
 	}
 
 	@Override
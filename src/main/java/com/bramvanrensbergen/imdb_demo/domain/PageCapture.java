@@ -0,0 +1,81 @@
+package com.bramvanrensbergen.imdb_demo.domain;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+
+import com.bramvanrensbergen.imdb_demo.domain.TitleHtmlExtractor.Target;
+
+/**
+ * The parts of a title page found by an extractor, as plain text; whichever way the page was read,
+ * the title's data is then built from these by {@link TitleHtmlExtractor#toData(String, TitleType, java.util.Set, PageCapture)}.
+ * @author Bram Van Rensbergen
+ */
+final class PageCapture {
+
+	/**
+	 * The text of a matched element, and the value of the attribute its target needs (or null, if none).
+	 */
+	static final class Item {
+		private String text;
+
+		private final String attribute;
+
+		Item(String text, String attribute) {
+			this.text = text;
+			this.attribute = attribute;
+		}
+
+		String getText() {
+			return text;
+		}
+
+		void setText(String text) {
+			this.text = text;
+		}
+
+		String getAttribute() {
+			return attribute;
+		}
+	}
+
+	private final Map<Target, Item> firsts = new EnumMap<Target, Item>(Target.class);
+
+	private final Map<Target, List<Item>> items = new EnumMap<Target, List<Item>>(Target.class);
+
+	/**
+	 * Record the first match of a target.
+	 */
+	void put(Target target, Item item) {
+		firsts.put(target, item);
+	}
+
+	/**
+	 * Record an item found within the container of a target with multiple values.
+	 */
+	void add(Target target, Item item) {
+		List<Item> list = items.get(target);
+		if (list == null) {
+			list = new ArrayList<Item>();
+			items.put(target, list);
+		}
+		list.add(item);
+	}
+
+	/**
+	 * @return The first match of the target, or null if none was found.
+	 */
+	Item first(Target target) {
+		return firsts.get(target);
+	}
+
+	/**
+	 * @return All items of the target, in document order; empty if its container was not found.
+	 */
+	List<Item> all(Target target) {
+		List<Item> list = items.get(target);
+		return list == null ? Collections.<Item>emptyList() : list;
+	}
+}
@@ -1,18 +1,26 @@
 package com.bramvanrensbergen.imdb_demo.domain;
 
+import java.io.UnsupportedEncodingException;
+import java.net.URLEncoder;
+
 /**
  * Object representing an actor or director/creator.
+ * <br>Obtained from the {@link Registry}, so each person is represented by a single instance, shared by all their titles.
  * @author Bram Van Rensbergen 
  */
 public class Person {
 	
-	private static final String BASE_URL = "http://www.imdb.com/name/";
+	static final String BASE_URL = "http://www.imdb.com/name/";
+	
+	private static final String SEARCH_URL = "http://www.imdb.com/find?s=nm&q=";
 			
+	private final int key;
+	
 	private final String id;
 	
-	private String name;
+	private final String name;
 	
-	private String url;
+	private final String url;
 	
 	/**
 	 * Get the imdb id contained in the indicated url.
@@ -24,26 +32,39 @@ public class Person {
 	}
 	
 	/**
-	 * Create an object representign an actor/director/creator with the indicated name and IMDb id.
-	 * @param id IMDb id, e.g. 'nm0000186'
-	 * @param name
+	 * Create an object representing an actor/director/creator; only used by the {@link Registry}, which hands out a single
+	 * instance per person with an IMDb id.
+	 * @param key Compact key of the person, unique within the registry.
+	 * @param id IMDb id, e.g. 'nm0000186'; or null, if only the name is known.
+	 * @param url URL to the person's IMDb page, or to an IMDb search for their name.
 	 */
-	public Person(String id, String name) {
-		if (id == null || id.isEmpty()) {
-			throw new IllegalArgumentException("No valid id provided, please provide in the format 'nm0000186'.");
-		}
-		
-		if (name == null || name.isEmpty()) {
-			throw new IllegalArgumentException("No valid name provided");
-		}
-		
+	Person(int key, String id, String name, String url) {
+		this.key = key;
 		this.id = id;
-		this.name = name;		
-		this.url = BASE_URL + id;
+		this.name = name;
+		this.url = url;
+	}
+
+	/**
+	 * @return URL to an IMDb search for the indicated name.
+	 */
+	static String searchUrl(String name) {
+		try {
+			return SEARCH_URL + URLEncoder.encode(name, "UTF-8");
+		} catch (UnsupportedEncodingException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+
+	/**
+	 * @return Compact key of the person (0, 1, 2, ...), assigned by the {@link Registry} in the order persons are first encountered.
+	 */
+	public int getKey() {
+		return key;
 	}
 
 	/**
-	 * @return IMDb id of the person, e.g. 'nm0000186'
+	 * @return IMDb id of the person, e.g. 'nm0000186'; or null, if only the name of the person is known.
 	 */
 	public String getId() {
 		return id;
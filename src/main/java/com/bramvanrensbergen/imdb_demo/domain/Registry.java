@@ -0,0 +1,166 @@
+package com.bramvanrensbergen.imdb_demo.domain;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Shared registry of canonical {@link Person}s and genres, so that an actor cast in 40 titles is a single object rather than 40,
+ * and titles with the same genres share a single set of genre names.
+ * <br>Each person and genre is numbered once, in the order they are first registered; these compact keys (0, 1, 2, ...)
+ * let statistics be gathered per person or genre without hashing their ids or names.
+ * <br>Entries are never removed: the registry holds each distinct person (with an IMDb id) and genre encountered since startup,
+ * which is bounded by the number of names and genres on IMDb, and is far smaller than a copy per title.
+ * Names that come from uploaded files rather than IMDb pages are not registered, so they do not pile up:
+ * persons known only by name are created anew (see {@link #newPersonWithoutId(String)}),
+ * and genres that IMDb does not list are dropped from exported ratings (see {@link ExportedRatingsExtractor}).
+ * Safe for use by multiple threads.
+ * @author Bram Van Rensbergen
+ */
+public final class Registry {
+
+	private static final ConcurrentMap<String, Person> personsById = new ConcurrentHashMap<String, Person>();
+
+	/**
+	 * Number of keys handed out to persons so far, with or without id; guarded by the lock on this class.
+	 */
+	private static int nPersons = 0;
+
+	private static final ConcurrentMap<String, Integer> genreKeys = new ConcurrentHashMap<String, Integer>();
+
+	/**
+	 * Canonical genre names, by key.
+	 */
+	private static final List<String> genres = new CopyOnWriteArrayList<String>();
+
+	/**
+	 * Canonical sets of genres, by the genres they hold, in the order they were listed.
+	 * <br>Keyed by order as well, as genres that share a bucket of a hash set are iterated in the order they were added.
+	 */
+	private static final ConcurrentMap<List<String>, GenreSet> genreSets = new ConcurrentHashMap<List<String>, GenreSet>();
+
+	private Registry() {
+	}
+
+	/**
+	 * @return The actor/director/creator with the indicated IMDb id; registered with the indicated name if not encountered before.
+	 * @param id IMDb id, e.g. 'nm0000186'
+	 * @throws IllegalArgumentException if no id or name is provided.
+	 */
+	public static Person person(String id, String name) {
+		if (id == null || id.isEmpty()) {
+			throw new IllegalArgumentException("No valid id provided, please provide in the format 'nm0000186'.");
+		}
+
+		if (name == null || name.isEmpty()) {
+			throw new IllegalArgumentException("No valid name provided");
+		}
+
+		Person person = personsById.get(id);
+		if (person != null) {
+			return person;
+		}
+
+		synchronized (Registry.class) {
+			person = personsById.get(id);
+			if (person == null) {
+				person = new Person(nPersons++, id, name, Person.BASE_URL + id);
+				personsById.put(id, person);
+			}
+			return person;
+		}
+	}
+
+	/**
+	 * @return A new actor/director/creator of whom only the indicated name is known (e.g., from exported ratings),
+	 * 	with a key of their own; their url points to an IMDb search for that name.
+	 * 	<br>The person is not registered, as names without id may come from anywhere: each call creates another person,
+	 * 	so callers that encounter the same name more than once should reuse the person they created first.
+	 * @throws IllegalArgumentException if no name is provided.
+	 */
+	public static Person newPersonWithoutId(String name) {
+		if (name == null || name.isEmpty()) {
+			throw new IllegalArgumentException("No valid name provided");
+		}
+
+		synchronized (Registry.class) {
+			return new Person(nPersons++, null, name, Person.searchUrl(name));
+		}
+	}
+
+	/**
+	 * @return The key of the indicated genre (e.g. 'Sci-Fi'), registering it if not encountered before.
+	 */
+	public static int genreKey(String genre) {
+		Integer key = genreKeys.get(genre);
+		if (key != null) {
+			return key;
+		}
+
+		synchronized (Registry.class) {
+			key = genreKeys.get(genre);
+			if (key == null) {
+				key = genres.size();
+				genres.add(genre);
+				genreKeys.put(genre, key);
+			}
+			return key;
+		}
+	}
+
+	/**
+	 * @return The key of the indicated genre, or -1 if it was never registered; unlike {@link #genreKey(String)}, does not register it.
+	 */
+	public static int findGenreKey(String genre) {
+		Integer key = genreKeys.get(genre);
+		return key == null ? -1 : key;
+	}
+
+	/**
+	 * @return The canonical name of the genre with the indicated key.
+	 */
+	public static String genre(int key) {
+		return genres.get(key);
+	}
+
+	/**
+	 * @return Number of genres registered so far; their keys range from 0 to this number (exclusive).
+	 */
+	public static int genreCount() {
+		return genres.size();
+	}
+
+	/**
+	 * @return The canonical set of the indicated genres, shared by all titles that list the same genres.
+	 */
+	public static GenreSet genres(Collection<String> names) {
+		GenreSet set = genreSets.get(new ArrayList<String>(names));
+		if (set != null) {
+			return set;
+		}
+
+		List<String> key = new ArrayList<String>(names.size());
+		for (String name : names) {
+			key.add(genre(genreKey(name)));
+		}
+		// sized as by HashSet's copy constructor, so the genres are listed in the same order as in a plain copy of the names
+		Set<String> canonical = new HashSet<String>(Math.max((int) (key.size() / .75f) + 1, 16));
+		canonical.addAll(key);
+
+		int[] keys = new int[canonical.size()];
+		int i = 0;
+		for (String name : canonical) {
+			keys[i++] = genreKey(name);
+		}
+
+		GenreSet created = new GenreSet(Collections.unmodifiableSet(canonical), keys);
+		set = genreSets.putIfAbsent(key, created);
+		return set != null ? set : created;
+	}
+}
@@ -1,7 +1,5 @@
 package com.bramvanrensbergen.imdb_demo.domain;
 
-import java.io.IOException;
-
 import org.jsoup.nodes.Document;
 
 /**
@@ -13,10 +11,29 @@ public class Series extends Title {
 	/**
 	 * @param id IMDb id of the TV-series (e.g. 'tt4093826')
 	 * @param doc Document containing html of the series' imdb page.
-	 * @throws IOException If {@code doc} is not a valid imdb page.
 	 */
-	public Series(String id, Document doc) throws IOException {
-		super(id, doc);				
+	public Series(String id, Document doc) {
+		super(TitleHtmlExtractor.extract(id, doc, TitleType.SERIES));
+	}
+	
+	/**
+	 * @param data Previously obtained data of the TV-series.
+	 */
+	public Series(TitleData data) {
+		super(data);
+	}
+	
+	/**
+	 * @param data Previously obtained data of the TV-series, possibly lacking some {@link TitleField}s.
+	 * @param enricher Looks up the missing fields on first access; or null, to leave them empty.
+	 */
+	public Series(TitleData data, TitleEnricher enricher) {
+		super(data, enricher);
+	}
+	
+	@Override
+	public TitleType getType() {
+		return TitleType.SERIES;
 	}
 	
 	@Override
@@ -0,0 +1,381 @@
+package com.bramvanrensbergen.imdb_demo.domain;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+
+import org.jsoup.helper.StringUtil;
+import org.jsoup.parser.Tag;
+
+import com.bramvanrensbergen.imdb_demo.domain.HtmlTokenizer.StartTag;
+import com.bramvanrensbergen.imdb_demo.domain.TitleHtmlExtractor.Target;
+
+/**
+ * Extracts the fields of a title while reading its page, without ever building a Document of it.
+ * <br>The page is read as a stream of tags and text ({@link HtmlTokenizer}); for every element, the selectors of
+ * {@link TitleHtmlExtractor} are matched against what is known of its ancestors, and only the text of matching elements is kept.
+ * Reading stops as soon as all fields have been found, typically well before the reviews and recommendations at the end of a page.
+ * <br>The result is the same as that of {@link DomTitleExtractor}, which can be used to check it.
+ * @author Bram Van Rensbergen
+ */
+public final class StreamingTitleExtractor implements TitlePageExtractor {
+
+	@Override
+	public TitleData extract(String id, InputStream page, String charset, TitleType type, Set<TitleField> fields) throws IOException {
+		return extract(id, new InputStreamReader(page, charsetOf(charset)), type, fields);
+	}
+
+	/**
+	 * Same as {@link #extract(String, InputStream, String, TitleType, Set)}, for a page that has been decoded already.
+	 */
+	public TitleData extract(String id, Reader page, TitleType type, Set<TitleField> fields) throws IOException {
+		Set<Target> targets = TitleHtmlExtractor.targetsFor(type != null ? type : TitleType.EPISODE, fields);
+		if (type == null) {
+			targets.add(Target.TYPE);
+		}
+
+		Scan scan = new Scan(targets, type == null ? fields : null);
+		new HtmlTokenizer(page).run(scan);
+
+		TitleType foundType = type != null ? type : scan.type;
+		return foundType == null ? null : TitleHtmlExtractor.toData(id, foundType, fields, scan.capture);
+	}
+
+	private static Charset charsetOf(String name) {
+		try {
+			return name == null ? StandardCharsets.UTF_8 : Charset.forName(name);
+		} catch (IllegalArgumentException e) {
+			return StandardCharsets.UTF_8;
+		}
+	}
+
+	/**
+	 * Something being picked up from the element it was found in, until that element closes:
+	 * a field, an item within a container, or the container itself.
+	 */
+	private static final class Capture {
+		private final Target target;
+
+		private final PageCapture.Item item;
+
+		/**
+		 * Text of the element so far, normalized as by jsoup's {@code Element.text()}; null for containers.
+		 */
+		private final StringBuilder text;
+
+		/**
+		 * Whether the item is one of the items of a container, rather than the first match of the target.
+		 */
+		private final boolean containerItem;
+
+		/**
+		 * Another capture started at the same element, if any.
+		 */
+		private Capture next;
+
+		Capture(Target target, PageCapture.Item item, boolean containerItem) {
+			this.target = target;
+			this.item = item;
+			this.text = item == null ? null : new StringBuilder();
+			this.containerItem = containerItem;
+		}
+	}
+
+	/**
+	 * Receives the page from the tokenizer, keeping a stack of what is known about the ancestors of the current element.
+	 */
+	private static final class Scan implements HtmlTokenizer.Handler {
+
+		// the ancestors of an element, as far as the selectors of the targets are concerned
+		private static final int TITLE_BAR = 1;
+		private static final int SUBTEXT = 1 << 1;
+		private static final int TITLE_BAR_SUBTEXT = 1 << 2;
+		private static final int IMDB_RATING = 1 << 3;
+		private static final int GENRE_LIST = 1 << 4;
+		private static final int CAST_LIST = 1 << 5;
+		private static final int ACTOR_CELL = 1 << 6;
+		private static final int CREDIT = 1 << 7;
+		private static final int CREDIT_NAME = 1 << 8;
+		private static final int TITLE_PARENT = 1 << 9;
+		private static final int NAVIGATION_PANEL = 1 << 10;
+
+		private final Set<Target> pending;
+
+		private final Set<Target> started = EnumSet.noneOf(Target.class);
+
+		/**
+		 * The optional fields requested, if the type of the title is read from the page; else, null.
+		 */
+		private final Set<TitleField> fieldsForType;
+
+		private final PageCapture capture = new PageCapture();
+
+		private TitleType type;
+
+		/**
+		 * Context of each open element (a combination of the flags above), and the captures started at it.
+		 * Index 0 is the document itself.
+		 */
+		private int[] contexts = new int[64];
+
+		private Capture[] captures = new Capture[64];
+
+		/**
+		 * For each open element, its most recent child if that is a candidate for {@link Target#TYPE} (which has to be a last child).
+		 */
+		private Capture[] lastChildCandidates = new Capture[64];
+
+		private int depth;
+
+		private final List<Capture> collectingText = new ArrayList<Capture>();
+
+		Scan(Set<Target> targets, Set<TitleField> fieldsForType) {
+			this.pending = EnumSet.copyOf(targets);
+			this.fieldsForType = fieldsForType;
+		}
+
+		@Override
+		public void start(StartTag tag) {
+			String name = tag.getName();
+			int parentContext = contexts[depth];
+			lastChildCandidates[depth] = null;
+
+			// separate the text of block elements, as Element.text() does
+			if (!collectingText.isEmpty() && (name.equals("br") || Tag.valueOf(name).isBlock())) {
+				for (Capture c : collectingText) {
+					if (c.text.length() > 0 && c.text.charAt(c.text.length() - 1) != ' ') {
+						c.text.append(' ');
+					}
+				}
+			}
+
+			if (++depth == contexts.length) {
+				contexts = Arrays.copyOf(contexts, depth * 2);
+				captures = Arrays.copyOf(captures, depth * 2);
+				lastChildCandidates = Arrays.copyOf(lastChildCandidates, depth * 2);
+			}
+			captures[depth] = null;
+			lastChildCandidates[depth] = null;
+
+			int context = parentContext;
+			if (!tag.attr("class").isEmpty()) {
+				context = matchClasses(tag, parentContext, context);
+			}
+			String itemprop = tag.attr("itemprop");
+
+			if (name.equals("td") && (context & CAST_LIST) != 0 && itemprop.equalsIgnoreCase("actor")) {
+				context |= ACTOR_CELL;
+			}
+			if (name.equals("span") && (context & CREDIT) != 0 && (itemprop.equalsIgnoreCase("director") || itemprop.equalsIgnoreCase("creator"))) {
+				context |= CREDIT_NAME;
+			}
+			contexts[depth] = context;
+
+			matchFields(tag, name, itemprop, parentContext);
+		}
+
+		/**
+		 * Match the selectors that involve the classes of the element.
+		 * @return The context of the element.
+		 */
+		private int matchClasses(StartTag tag, int parentContext, int context) {
+			if (tag.hasClass("titleBar")) {
+				context |= TITLE_BAR;
+				if (startContainer(Target.GENRES)) {
+					context |= GENRE_LIST;
+				}
+			}
+			if (tag.hasClass("subtext")) {
+				context |= SUBTEXT;
+				if ((parentContext & TITLE_BAR) != 0) {
+					context |= TITLE_BAR_SUBTEXT;
+				}
+			}
+			if (tag.hasClass("imdbRating")) {
+				context |= IMDB_RATING;
+			}
+			if (tag.hasClass("cast_list") && startContainer(Target.ACTORS)) {
+				context |= CAST_LIST;
+			}
+			if (tag.getElementIndex() == 1 && tag.hasClass("credit_summary_item") && startContainer(Target.DIRECTORS)) {
+				context |= CREDIT;
+			}
+			if (tag.hasClass("titleParent")) {
+				context |= TITLE_PARENT;
+			}
+			if (tag.hasClass("navigation_panel")) {
+				context |= NAVIGATION_PANEL;
+			}
+			if (tag.hasClass("summary_text")) {
+				startField(Target.SUMMARY, null);
+			}
+			if ((parentContext & NAVIGATION_PANEL) != 0 && tag.hasClass("bp_heading")) {
+				startField(Target.EPISODE_NUMBER, null);
+			}
+			if ((parentContext & GENRE_LIST) != 0 && tag.getName().equals("span") && tag.hasClass("itemprop")) {
+				startItem(Target.GENRES, null);
+			}
+			return context;
+		}
+
+		/**
+		 * Match the selectors that only involve the name and attributes of the element.
+		 */
+		private void matchFields(StartTag tag, String name, String itemprop, int parentContext) {
+			switch (name) {
+			case "a":
+				if ((parentContext & TITLE_BAR_SUBTEXT) != 0 && pending.contains(Target.TYPE)) {
+					lastChildCandidates[depth - 1] = capture(new Capture(Target.TYPE, new PageCapture.Item(null, null), false));
+				}
+				if ((parentContext & ACTOR_CELL) != 0) {
+					startItem(Target.ACTORS, tag.attr("href"));
+				}
+				if ((parentContext & CREDIT_NAME) != 0) {
+					startItem(Target.DIRECTORS, tag.attr("href"));
+				}
+				if ((parentContext & TITLE_PARENT) != 0) {
+					startField(Target.SERIES, tag.attr("href"));
+				}
+				break;
+			case "h1":
+				if ((parentContext & TITLE_BAR) != 0) {
+					startField(Target.TITLE, null);
+				}
+				break;
+			case "span":
+				if ((parentContext & IMDB_RATING) != 0 && itemprop.equalsIgnoreCase("ratingValue")) {
+					startField(Target.RATING, null);
+				}
+				break;
+			case "time":
+				if ((parentContext & SUBTEXT) != 0 && itemprop.equalsIgnoreCase("duration")) {
+					startField(Target.RUNTIME, null);
+				}
+				break;
+			case "meta":
+				if ((parentContext & SUBTEXT) != 0 && itemprop.equalsIgnoreCase("datePublished")) {
+					startField(Target.YEAR, tag.attr("content"));
+				}
+				break;
+			default:
+				break;
+			}
+		}
+
+		/**
+		 * Start capturing the first match of a single valued target, if it is still pending.
+		 */
+		private void startField(Target target, String attribute) {
+			if (pending.contains(target) && started.add(target)) {
+				capture(new Capture(target, new PageCapture.Item(null, attribute), false));
+			}
+		}
+
+		/**
+		 * Start capturing an item of a container that was found.
+		 */
+		private void startItem(Target target, String attribute) {
+			PageCapture.Item item = new PageCapture.Item(null, attribute);
+			capture.add(target, item);
+			capture(new Capture(target, item, true));
+		}
+
+		/**
+		 * Start capturing the container of a target with multiple values, if it is still pending.
+		 * @return Whether the element is the target's container.
+		 */
+		private boolean startContainer(Target target) {
+			if (!pending.contains(target) || !started.add(target)) {
+				return false;
+			}
+			capture(new Capture(target, null, false));
+			return true;
+		}
+
+		/**
+		 * Attach the capture to the current element.
+		 */
+		private Capture capture(Capture c) {
+			c.next = captures[depth];
+			captures[depth] = c;
+			if (c.text != null) {
+				collectingText.add(c);
+			}
+			return c;
+		}
+
+		@Override
+		public void end(String name) {
+			for (Capture c = captures[depth]; c != null; c = c.next) {
+				finish(c);
+			}
+
+			Capture candidate = lastChildCandidates[depth];
+			if (candidate != null && pending.contains(Target.TYPE)) {
+				found(Target.TYPE, candidate.item);
+			}
+
+			captures[depth] = null;
+			lastChildCandidates[depth] = null;
+			depth--;
+		}
+
+		private void finish(Capture c) {
+			if (c.text != null) {
+				collectingText.remove(c);
+				c.item.setText(c.text.toString().trim());
+			}
+
+			// candidates for the type are only found once their parent closes
+			if (c.target == Target.TYPE) {
+				return;
+			}
+
+			if (c.containerItem) {
+				return;
+			}
+
+			if (c.item != null) {
+				found(c.target, c.item);
+			} else {
+				pending.remove(c.target);
+			}
+		}
+
+		private void found(Target target, PageCapture.Item item) {
+			capture.put(target, item);
+			pending.remove(target);
+
+			// once the type is known, stop looking for targets that do not apply to it
+			if (target == Target.TYPE && fieldsForType != null) {
+				type = TitleType.fromDescription(item.getText());
+				pending.retainAll(TitleHtmlExtractor.targetsFor(type, fieldsForType));
+			}
+		}
+
+		@Override
+		public void text(String text) {
+			for (Capture c : collectingText) {
+				StringUtil.appendNormalisedWhitespace(c.text, text, c.text.length() == 0 || c.text.charAt(c.text.length() - 1) == ' ');
+			}
+		}
+
+		@Override
+		public boolean wantsText() {
+			return !collectingText.isEmpty();
+		}
+
+		@Override
+		public boolean isDone() {
+			return pending.isEmpty();
+		}
+	}
+}
@@ -2,13 +2,12 @@ package com.bramvanrensbergen.imdb_demo.domain;
 
 import java.io.IOException;
 import java.util.ArrayList;
-import java.util.HashSet;
+import java.util.EnumSet;
 import java.util.Set;
 
 import org.apache.commons.lang3.StringUtils;
-import org.jsoup.nodes.Document;
-import org.jsoup.nodes.Element;
-import org.jsoup.select.Elements;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 import com.bramvanrensbergen.imdb_demo.domain.statistics.MathUtil;
 
@@ -18,18 +17,19 @@ import com.bramvanrensbergen.imdb_demo.domain.statistics.MathUtil;
  */
 public abstract class Title {
 	public static final String BASE_URL = "http://www.imdb.com/title/";
+	
+	private static final Logger log = LoggerFactory.getLogger(Title.class);
 			
 	protected final String id;
-	
-	protected Document doc;	
 		
 	private String url;
 	
 	private String title;
 	
-	private String genres;
-	
-	private Set<String> genresSet;
+	/**
+	 * Shared by all titles with the same genres (see {@link Registry#genres(java.util.Collection)}).
+	 */
+	private GenreSet genreSet;
 		
 	private Double rating;	
 	
@@ -44,7 +44,7 @@ public abstract class Title {
 	/**
 	 * Year of release; only used for Movie and Episode (null for Series).
 	 */
-	protected Integer yearOfRelease;
+	private Integer yearOfRelease;
 
 	/**
 	 * The director(s) (for episodes and movies) or creator(s) (for series) of the current title.
@@ -53,6 +53,21 @@ public abstract class Title {
 
 	// currently max. 15
 	private ArrayList<Person> primaryActors;
+	
+	/**
+	 * The {@link TitleField}s that have been obtained so far; the others are loaded through the {@link #enricher} on first access.
+	 */
+	private final EnumSet<TitleField> loadedFields;
+	
+	/**
+	 * Looks up the fields that were not obtained when creating this title, or null if they are never looked up.
+	 */
+	private final TitleEnricher enricher;
+	
+	/**
+	 * Whether all fields have been obtained (or will never be); avoids locking once the title is complete.
+	 */
+	private volatile boolean complete;
 
 	/**
 	 * Get the imdb id contained in the indicated url.
@@ -72,30 +87,112 @@ public abstract class Title {
 		return split[1].split("\\?")[0];
 	}
 			
-	protected Title(String id, Document doc) throws IOException {
-		if (id == null || id.isEmpty()) {
-			throw new IllegalArgumentException("No valid id provided, please provide it in the format 'tt0090756'.");
-		}
-		this.id = id;		
+	/**
+	 * Create a title from the data extracted from its IMDb page (see {@link TitleHtmlExtractor}), or obtained earlier.
+	 * <br>The title does not keep a reference to the html Document it was extracted from.
+	 */
+	protected Title(TitleData data) {
+		this(data, null);
+	}
+	
+	/**
+	 * Same as {@link #Title(TitleData)}, but any {@link TitleField}s lacking from the data are looked up by the indicated enricher
+	 * the first time one of them is accessed.
+	 * @param enricher Enricher to look up the missing fields, or null to leave them empty.
+	 */
+	protected Title(TitleData data, TitleEnricher enricher) {
+		this.id = data.getId();
 		this.url = BASE_URL + id;
-		this.doc = doc;
-		this.title = obtainTitleFromHtml();
-		this.genresSet = obtainGenresFromHtml();
-		this.genres = StringUtils.join(genresSet.toArray(), ", ");
-		this.rating = obtainRatingFromHtml();
-		this.primaryActors = obtainPrimaryActorsFromHtml();
-		this.directorsOrCreators = obtainDirectorOrCreatorsFromHtml();
-		this.summaryText = obtainSummaryTextFromHtml();
-		this.runtimeString = obtainRuntimeFromHtml();
+		this.title = data.getTitle();
+		this.genreSet = Registry.genres(data.getGenres());
+		this.rating = data.getRating();
+		this.primaryActors = new ArrayList<Person>(data.getPrimaryActors());
+		this.directorsOrCreators = new ArrayList<Person>(data.getDirectorsOrCreators());
+		this.summaryText = data.getSummaryText();
+		this.runtimeString = data.getRuntimeString();
+		this.yearOfRelease = data.getYearOfRelease();
+		this.loadedFields = EnumSet.noneOf(TitleField.class);
+		this.loadedFields.addAll(data.getFields());
+		this.enricher = enricher;
+		this.complete = enricher == null || loadedFields.containsAll(TitleField.ALL);
 		
 		if (runtimeString != null) {
 			runtimeMinutes = MathUtil.runtimeDescriptionToMinutes(runtimeString);
 		}
-	}		
+	}
 	
-	protected Title(String id, Document doc, double userRating) throws IOException {
-		this(id, doc);
-		this.userRating = userRating;
+	/**
+	 * @return The data obtained for this title so far, from which it can be rebuilt later on (see {@link #Title(TitleData)});
+	 * 	fields that have not been loaded yet are not looked up.
+	 */
+	public TitleData toData() {
+		return toData(null, null, null);
+	}
+	
+	protected final synchronized TitleData toData(String seriesName, String seriesId, String seasonAndEpisodeNumberDesc) {
+		return new TitleData(getType(), id, loadedFields, title, genreSet.getNames(), rating, summaryText, runtimeString, yearOfRelease, 
+				directorsOrCreators, primaryActors, seriesName, seriesId, seasonAndEpisodeNumberDesc);
+	}
+	
+	/**
+	 * @return Whether the indicated field has been obtained already, so accessing it does not require a lookup.
+	 */
+	public boolean isLoaded(TitleField field) {
+		if (complete) {
+			return true;
+		}
+		
+		synchronized (this) {
+			return loadedFields.contains(field);
+		}
+	}
+	
+	/**
+	 * Make sure the indicated field has been obtained, looking up all missing fields at once if it has not.
+	 * <br>If the lookup fails, the missing fields are left empty and not looked up again.
+	 */
+	private void ensureLoaded(TitleField field) {
+		if (complete) {
+			return;
+		}
+		
+		synchronized (this) {
+			if (loadedFields.contains(field)) {
+				return;
+			}
+			
+			try {
+				TitleData data = enricher.loadFullData(id, getType());
+				if (data != null) {
+					loadMissingFields(data);
+				}
+			} catch (IOException e) {
+				log.debug("Could not load missing fields: id={} field={} error={}", id, field, e.toString());
+			}
+			
+			loadedFields.addAll(TitleField.ALL);
+			complete = true;
+		}
+	}
+	
+	private void loadMissingFields(TitleData data) {
+		for (TitleField missing : EnumSet.complementOf(loadedFields)) {
+			if (!data.getFields().contains(missing)) {
+				continue;
+			}
+			
+			switch (missing) {
+			case DIRECTORS:
+				directorsOrCreators = new ArrayList<Person>(data.getDirectorsOrCreators());
+				break;
+			case ACTORS:
+				primaryActors = new ArrayList<Person>(data.getPrimaryActors());
+				break;
+			case SUMMARY:
+				summaryText = data.getSummaryText();
+				break;
+			}
+		}
 	}
 	
 	/**
@@ -120,14 +217,21 @@ public abstract class Title {
 	 * @return A comma-separated string of all genres of the current title.
 	 */
 	public String getGenres() {
-		return genres;
+		return StringUtils.join(genreSet.getNames(), ", ");
 	}
 	
 	/**
-	 * @return A set of all genres of the current title.
+	 * @return An unmodifiable set of all genres of the current title.
 	 */
 	public Set<String> getGenresSet() {
-		return genresSet;
+		return genreSet.getNames();
+	}
+	
+	/**
+	 * @return The keys of all genres of the current title (see {@link Registry#genreKey(String)}); shared, so must not be modified.
+	 */
+	public int[] getGenreKeys() {
+		return genreSet.getKeys();
 	}
 
 	/**
@@ -141,6 +245,7 @@ public abstract class Title {
 	 * @return Short summary of the title.
 	 */
 	public String getSummaryText() {
+		ensureLoaded(TitleField.SUMMARY);
 		return summaryText;
 	}
 
@@ -183,6 +288,7 @@ public abstract class Title {
 	 * @return The first listed actors of the title (up to 15, usually).
 	 */
 	public ArrayList<Person> getPrimaryActors() {
+		ensureLoaded(TitleField.ACTORS);
 		return primaryActors;
 	}
 	
@@ -190,9 +296,15 @@ public abstract class Title {
 	 * @return The director(s) (for movies of episodes) or creators (for series) of the current title.
 	 */
 	public ArrayList<Person> getDirectorsOrCreators() {
+		ensureLoaded(TitleField.DIRECTORS);
 		return directorsOrCreators;
 	}
 	
+	/**
+	 * @return Whether this title is a movie, series, or episode.
+	 */
+	public abstract TitleType getType();
+	
 	/**
 	 * @return 'Director' for movies or episodes, and 'Creator' for series.
 	 */
@@ -202,131 +314,4 @@ public abstract class Title {
 	 * @return Additional info on the current title; for episodes, this contains the name of the series as well as season and episode number.
 	 */
 	public abstract String getSubTitle();
-		
-	/**
-	 * Lookup the title for the current title in its html Document.
- 	 * @throws NullPointerException If the title cannot be found, indicating Document is probably not a valid IMDb page.
-	 */
-	private String obtainTitleFromHtml() throws NullPointerException {
-		try {
-			return doc.select(".titleBar h1").first().text();			
-		} catch (NullPointerException e) {
-			System.err.println("Could not parse html page for title " + id);
-			throw e;
-		}
-	}
-	
-	/**
-	 * Lookup the genres for the current title in its html Document
-	 */
-	private Set<String> obtainGenresFromHtml() {
-		// get genres
-		Set<String> genres = new HashSet<String>() ;
-		
-		Elements genreElements = doc.select(".titleBar span.itemprop");		
-		if (genreElements != null) {
-			for (Element e : genreElements) {
-				genres.add(e.text());
-			}	
-		}
-		
-		return genres;		
-	}
-
-	/**
-	 * Lookup the rating for the current title in its html Document.
-	 * If no rating is found, null is returned.
-	 */
-	private Double obtainRatingFromHtml() {
-		Double r = null;
-		try {
-			r = Double.parseDouble(doc.select(".imdbRating span[itemprop=\"ratingValue\"]").first().text());
-		} catch (NumberFormatException e) {
-			System.err.println("Could not set rating for " + id + " (could not convert element to integer)");
-		} catch (NullPointerException e) {
-			System.err.println("Could not set rating for " + id + " (could not find element)");
-		}
-		return r;
-	}
-	
-	/**
-	 * Lookup the primary actors (the first 15 listed) for the current title in its html Document.
-	 */
-	private ArrayList<Person> obtainPrimaryActorsFromHtml() {
-		ArrayList<Person> actors = new ArrayList<Person>();
-		
-		Elements actorsElements = doc.select(".cast_list td[itemprop=\"actor\"] a");
-		if (actorsElements != null) {
-			for (Element actor : actorsElements) {		
-				try {
-					String id = Person.getIdFromUrl(actor.attr("href"));
-					String name = actor.text();
-					actors.add(new Person(id, name));
-				} catch (IllegalArgumentException e) {
-					System.err.println("error while addign actor to " + id + "; invalid id or name encountered");
-				}
-			}	
-		}
-		
-		return actors;
-	}
-	
-	/**
-	 * Lookup the director(s) of the current title (movie or episode) in its html Document.
-	 */
-	protected ArrayList<Person> obtainDirectorOrCreatorsFromHtml() {
-		ArrayList<Person> directors = new ArrayList<Person>();
-		Elements directorElements = doc.select(".credit_summary_item:eq(1) span[itemprop=\"director\"] a, .credit_summary_item:eq(1) span[itemprop=\"creator\"] a");		
-		for (Element directorElement : directorElements) {		
-			try {
-				String directorId = Person.getIdFromUrl(directorElement.attr("href"));
-				String directorName = directorElement.text();
-				directors.add(new Person(directorId, directorName));
-			} catch (IllegalArgumentException e) {
-				System.err.println("could not set director/creator for " + id + "; invalid id or name encountered");
-			}
-		}
-		return directors;
-	} 
-	
-	/**
-	 * Lookup the primary actors (the first 15 listed) for the current title in its html Document.
-	 */
-	private String obtainSummaryTextFromHtml() {
-		return doc.select(".summary_text").first().text();			
-	}
-	
-	/**
-	 * Look up the runtime (String, as found on IMDb) for the current title in its html Document.
-	 */
-	private String obtainRuntimeFromHtml() {
-		String rt = null;
-		try {
-			rt = doc.select(".subtext time[itemprop=\"duration\"]").first().text();
-		}  catch (NullPointerException e) {
-			System.err.println("Could not set runtime for " + id + " (could not find element)");
-		}
-		return rt;		
-	}
-	
-	/**
-	 * Look up the year of release for the current title in its html Document.
-	 */
-	protected Integer obtainYearOfReleaseFromHtml() {
-		try {
-			String ymd = doc.select(".subtext meta[itemprop=\"datePublished\"]").first().attr("content");
-			int year = Integer.parseInt(ymd.split("-")[0]);
-			
-			if (year > 1500 && year < 5000) {
-				return year;
-			}
-			
-		} catch (NumberFormatException e) {
-			System.err.println("Could not set year for " + id + " (could not convert to int)");
-		} catch (NullPointerException e) {
-			System.err.println("Could not set year for " + id + " (could not find element)");
-		}
-		
-		return null;
-	}
-}
+}
\ No newline at end of file
@@ -0,0 +1,339 @@
+package com.bramvanrensbergen.imdb_demo.domain;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import com.bramvanrensbergen.imdb_demo.domain.statistics.MathUtil;
+
+/**
+ * The numeric fields of a set of titles, stored column by column in primitive arrays, for scans over many titles
+ * (see {@link com.bramvanrensbergen.imdb_demo.domain.statistics.Statistics}).
+ * <br>Titles are numbered 0, 1, 2, ... in the order they were added. Each column holds one value per title,
+ * and a bitset tells which titles have a value at all; genres, actors, and directors are held as keys in {@link Adjacency} lists.
+ * Genres are keyed as by the {@link Registry}; actors and directors are numbered by the columns themselves (see {@link #getPerson(int)}),
+ * so their keys run from 0 up to the number of persons in these titles.
+ * <br>Can be filled from {@link Title}s, or straight from the {@link TitleData} of an extractor, without building titles.
+ * Not safe for use by multiple threads while titles are being added.
+ * @author Bram Van Rensbergen
+ */
+public final class TitleColumns {
+
+	private static final TitleType[] TYPES = TitleType.values();
+
+	private static final int INITIAL_CAPACITY = 16;
+
+	/**
+	 * Keys per title, in compressed sparse row layout: the keys of all titles are stored back to back in a single array,
+	 * and the keys of title i are found from {@code start(i)} up to {@code end(i)} (exclusive).
+	 * <br>Keys are listed in the same order as by the title itself.
+	 */
+	public static final class Adjacency {
+
+		/**
+		 * Position in {@link #keys} of the first key of each title; one more entry than there are titles.
+		 */
+		private int[] offsets = new int[INITIAL_CAPACITY + 1];
+
+		private int[] keys = new int[INITIAL_CAPACITY];
+
+		private Adjacency() {
+		}
+
+		/**
+		 * @return Position of the first key of the indicated title.
+		 */
+		public int start(int title) {
+			return offsets[title];
+		}
+
+		/**
+		 * @return Position after the last key of the indicated title.
+		 */
+		public int end(int title) {
+			return offsets[title + 1];
+		}
+
+		/**
+		 * @return The key at the indicated position, between {@link #start(int)} and {@link #end(int)} of some title.
+		 */
+		public int key(int position) {
+			return keys[position];
+		}
+
+		private void add(int title, int[] titleKeys) {
+			int start = offsets[title];
+			ensureKeyCapacity(start + titleKeys.length);
+			System.arraycopy(titleKeys, 0, keys, start, titleKeys.length);
+			close(title, start + titleKeys.length);
+		}
+
+		private void add(int title, List<Person> persons, TitleColumns columns) {
+			int start = offsets[title];
+			ensureKeyCapacity(start + persons.size());
+			for (int i = 0; i < persons.size(); i++) {
+				keys[start + i] = columns.personKey(persons.get(i));
+			}
+			close(title, start + persons.size());
+		}
+
+		private void close(int title, int end) {
+			if (title + 2 > offsets.length) {
+				offsets = Arrays.copyOf(offsets, offsets.length * 2);
+			}
+			offsets[title + 1] = end;
+		}
+
+		private void ensureKeyCapacity(int capacity) {
+			if (capacity > keys.length) {
+				keys = Arrays.copyOf(keys, Math.max(capacity, keys.length * 2));
+			}
+		}
+	}
+
+	/**
+	 * The optional fields that are stored; actors and directors are left empty if not included.
+	 */
+	private final Set<TitleField> fields;
+
+	private int size = 0;
+
+	/**
+	 * {@link TitleType#ordinal()} of each title.
+	 */
+	private byte[] types = new byte[INITIAL_CAPACITY];
+
+	private double[] ratings = new double[INITIAL_CAPACITY];
+
+	private double[] userRatings = new double[INITIAL_CAPACITY];
+
+	private int[] runtimesInMinutes = new int[INITIAL_CAPACITY];
+
+	private int[] yearsOfRelease = new int[INITIAL_CAPACITY];
+
+	private final BitSet hasRating = new BitSet();
+
+	private final BitSet hasUserRating = new BitSet();
+
+	private final BitSet hasRuntime = new BitSet();
+
+	private final BitSet hasYearOfRelease = new BitSet();
+
+	private final Adjacency genres = new Adjacency();
+
+	private final Adjacency actors = new Adjacency();
+
+	private final Adjacency directors = new Adjacency();
+
+	/**
+	 * The actors and directors of the titles, by key: numbered 0, 1, 2, ... in the order they were first added.
+	 */
+	private final List<Person> persons = new ArrayList<Person>();
+
+	/**
+	 * Key of each person in {@link #persons}; persons are canonical (see {@link Registry}), so they are compared by identity.
+	 */
+	private final Map<Person, Integer> personKeys = new IdentityHashMap<Person, Integer>();
+
+	/**
+	 * Store all fields, including actors and directors.
+	 */
+	public TitleColumns() {
+		this(TitleField.ALL);
+	}
+
+	/**
+	 * @param fields The optional fields to store; actors and directors are only accessed (and looked up) if included.
+	 */
+	public TitleColumns(Set<TitleField> fields) {
+		this.fields = fields;
+	}
+
+	/**
+	 * @return Columns holding all indicated titles, in order.
+	 */
+	public static TitleColumns of(List<Title> titles, Set<TitleField> fields) {
+		TitleColumns columns = new TitleColumns(fields);
+		for (Title t : titles) {
+			columns.add(t);
+		}
+		return columns;
+	}
+
+	/**
+	 * Add the indicated title, as the last one.
+	 * @return Its number.
+	 */
+	public int add(Title t) {
+		int title = add(t.getType(), t.getRating(), t.getUserRating(), t.getRuntimeMinutes(), t.getYearOfRelease(), t.getGenreKeys());
+		actors.add(title, fields.contains(TitleField.ACTORS) ? t.getPrimaryActors() : Collections.<Person>emptyList(), this);
+		directors.add(title, fields.contains(TitleField.DIRECTORS) ? t.getDirectorsOrCreators() : Collections.<Person>emptyList(), this);
+		return title;
+	}
+
+	/**
+	 * Add the title with the indicated data (e.g. from {@link TitleHtmlExtractor} or {@link ExportedRatingsExtractor}), as the last one;
+	 * holds the same values as adding the {@link Title} built from that data.
+	 * @param userRating The current user's rating of the title, or null if none.
+	 * @return Its number.
+	 */
+	public int add(TitleData data, Double userRating) {
+		Integer runtimeMinutes = data.getRuntimeString() == null ? null : MathUtil.runtimeDescriptionToMinutes(data.getRuntimeString());
+		int title = add(data.getType(), data.getRating(), userRating, runtimeMinutes, data.getYearOfRelease(),
+				Registry.genres(data.getGenres()).getKeys());
+		actors.add(title, fields.contains(TitleField.ACTORS) ? data.getPrimaryActors() : Collections.<Person>emptyList(), this);
+		directors.add(title, fields.contains(TitleField.DIRECTORS) ? data.getDirectorsOrCreators() : Collections.<Person>emptyList(), this);
+		return title;
+	}
+
+	/**
+	 * Add the numeric fields and genres of a title; its actors and directors are to be added next.
+	 */
+	private int add(TitleType type, Double rating, Double userRating, Integer runtimeMinutes, Integer yearOfRelease, int[] genreKeys) {
+		int title = size++;
+		if (title == types.length) {
+			int capacity = types.length * 2;
+			types = Arrays.copyOf(types, capacity);
+			ratings = Arrays.copyOf(ratings, capacity);
+			userRatings = Arrays.copyOf(userRatings, capacity);
+			runtimesInMinutes = Arrays.copyOf(runtimesInMinutes, capacity);
+			yearsOfRelease = Arrays.copyOf(yearsOfRelease, capacity);
+		}
+
+		types[title] = (byte) type.ordinal();
+		if (rating != null) {
+			ratings[title] = rating;
+			hasRating.set(title);
+		}
+		if (userRating != null) {
+			userRatings[title] = userRating;
+			hasUserRating.set(title);
+		}
+		if (runtimeMinutes != null) {
+			runtimesInMinutes[title] = runtimeMinutes;
+			hasRuntime.set(title);
+		}
+		if (yearOfRelease != null) {
+			yearsOfRelease[title] = yearOfRelease;
+			hasYearOfRelease.set(title);
+		}
+
+		genres.add(title, genreKeys);
+		return title;
+	}
+
+	/**
+	 * @return The key of the indicated person, who is numbered next if not added before.
+	 */
+	private int personKey(Person person) {
+		Integer key = personKeys.get(person);
+		if (key == null) {
+			key = persons.size();
+			persons.add(person);
+			personKeys.put(person, key);
+		}
+		return key;
+	}
+
+	/**
+	 * @return Number of titles added so far.
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * @return The optional fields that are stored.
+	 */
+	public Set<TitleField> getFields() {
+		return fields;
+	}
+
+	public TitleType getType(int title) {
+		return TYPES[types[title]];
+	}
+
+	public boolean hasRating(int title) {
+		return hasRating.get(title);
+	}
+
+	/**
+	 * @return The IMDb rating of the indicated title; only meaningful if {@link #hasRating(int)}.
+	 */
+	public double getRating(int title) {
+		return ratings[title];
+	}
+
+	public boolean hasUserRating(int title) {
+		return hasUserRating.get(title);
+	}
+
+	/**
+	 * @return The current user's rating of the indicated title; only meaningful if {@link #hasUserRating(int)}.
+	 */
+	public double getUserRating(int title) {
+		return userRatings[title];
+	}
+
+	public boolean hasRuntime(int title) {
+		return hasRuntime.get(title);
+	}
+
+	/**
+	 * @return The runtime of the indicated title, in minutes; only meaningful if {@link #hasRuntime(int)}.
+	 */
+	public int getRuntimeMinutes(int title) {
+		return runtimesInMinutes[title];
+	}
+
+	public boolean hasYearOfRelease(int title) {
+		return hasYearOfRelease.get(title);
+	}
+
+	/**
+	 * @return The year of release of the indicated title; only meaningful if {@link #hasYearOfRelease(int)}.
+	 */
+	public int getYearOfRelease(int title) {
+		return yearsOfRelease[title];
+	}
+
+	/**
+	 * @return The genre keys of each title (see {@link Registry#genreKey(String)}).
+	 */
+	public Adjacency getGenres() {
+		return genres;
+	}
+
+	/**
+	 * @return The person keys of the primary actors of each title (see {@link #getPerson(int)}); empty if actors are not stored.
+	 */
+	public Adjacency getActors() {
+		return actors;
+	}
+
+	/**
+	 * @return The person keys of the directors or creators of each title; empty if directors are not stored.
+	 */
+	public Adjacency getDirectors() {
+		return directors;
+	}
+
+	/**
+	 * @return The actor or director with the indicated key, as held by {@link #getActors()} and {@link #getDirectors()}.
+	 */
+	public Person getPerson(int key) {
+		return persons.get(key);
+	}
+
+	/**
+	 * @return Number of actors and directors of the titles added so far; their keys range from 0 to this number (exclusive).
+	 */
+	public int personCount() {
+		return persons.size();
+	}
+}
@@ -0,0 +1,143 @@
+package com.bramvanrensbergen.imdb_demo.domain;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Immutable set of fields obtained from the IMDb page of a single title, from which a {@link Title} can be rebuilt
+ * without its html Document.
+ * <br>The user's rating is not part of this data, as it differs per user.
+ * @author Bram Van Rensbergen
+ */
+public final class TitleData {
+
+	private final TitleType type;
+
+	private final String id;
+
+	/**
+	 * The optional fields that were obtained; the others are null (summary) or empty (directors, actors).
+	 */
+	private final Set<TitleField> fields;
+
+	private final String title;
+
+	private final Set<String> genres;
+
+	private final Double rating;
+
+	private final String summaryText;
+
+	private final String runtimeString;
+
+	private final Integer yearOfRelease;
+
+	private final List<Person> directorsOrCreators;
+
+	private final List<Person> primaryActors;
+
+	/**
+	 * Only used for episodes (null otherwise).
+	 */
+	private final String seriesName;
+
+	/**
+	 * Only used for episodes (null otherwise).
+	 */
+	private final String seriesId;
+
+	/**
+	 * Only used for episodes (null otherwise).
+	 */
+	private final String seasonAndEpisodeNumberDesc;
+
+	public TitleData(TitleType type, String id, Set<TitleField> fields, String title, Set<String> genres, Double rating, String summaryText,
+			String runtimeString, Integer yearOfRelease, List<Person> directorsOrCreators, List<Person> primaryActors,
+			String seriesName, String seriesId, String seasonAndEpisodeNumberDesc) {
+		if (type == null) {
+			throw new IllegalArgumentException("No title type provided");
+		}
+
+		if (id == null || id.isEmpty()) {
+			throw new IllegalArgumentException("No valid id provided, please provide it in the format 'tt0090756'.");
+		}
+
+		this.type = type;
+		this.id = id;
+		this.fields = fields.isEmpty() ? Collections.<TitleField>emptySet() : Collections.unmodifiableSet(EnumSet.copyOf(fields));
+		this.title = title;
+		this.genres = Collections.unmodifiableSet(new LinkedHashSet<String>(genres));
+		this.rating = rating;
+		this.summaryText = summaryText;
+		this.runtimeString = runtimeString;
+		this.yearOfRelease = yearOfRelease;
+		this.directorsOrCreators = Collections.unmodifiableList(new ArrayList<Person>(directorsOrCreators));
+		this.primaryActors = Collections.unmodifiableList(new ArrayList<Person>(primaryActors));
+		this.seriesName = seriesName;
+		this.seriesId = seriesId;
+		this.seasonAndEpisodeNumberDesc = seasonAndEpisodeNumberDesc;
+	}
+
+	public TitleType getType() {
+		return type;
+	}
+
+	public String getId() {
+		return id;
+	}
+
+	/**
+	 * @return The optional fields that were obtained for this title.
+	 */
+	public Set<TitleField> getFields() {
+		return fields;
+	}
+
+	public String getTitle() {
+		return title;
+	}
+
+	public Set<String> getGenres() {
+		return genres;
+	}
+
+	public Double getRating() {
+		return rating;
+	}
+
+	public String getSummaryText() {
+		return summaryText;
+	}
+
+	public String getRuntimeString() {
+		return runtimeString;
+	}
+
+	public Integer getYearOfRelease() {
+		return yearOfRelease;
+	}
+
+	public List<Person> getDirectorsOrCreators() {
+		return directorsOrCreators;
+	}
+
+	public List<Person> getPrimaryActors() {
+		return primaryActors;
+	}
+
+	public String getSeriesName() {
+		return seriesName;
+	}
+
+	public String getSeriesId() {
+		return seriesId;
+	}
+
+	public String getSeasonAndEpisodeNumberDesc() {
+		return seasonAndEpisodeNumberDesc;
+	}
+}
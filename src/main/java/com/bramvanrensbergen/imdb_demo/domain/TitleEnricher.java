@@ -0,0 +1,16 @@
+package com.bramvanrensbergen.imdb_demo.domain;
+
+import java.io.IOException;
+
+/**
+ * Looks up the complete data of a title that was created with only some of its {@link TitleField}s.
+ * @author Bram Van Rensbergen
+ */
+public interface TitleEnricher {
+	
+	/**
+	 * @return Data of the indicated title, including all of its {@link TitleField}s.
+	 * @throws IOException If the data could not be obtained.
+	 */
+	TitleData loadFullData(String id, TitleType type) throws IOException;
+}
@@ -0,0 +1,36 @@
+package com.bramvanrensbergen.imdb_demo.domain;
+
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.Set;
+
+import org.apache.commons.lang3.StringUtils;
+
+/**
+ * Fields of a title that are relatively expensive to obtain, and that are therefore only obtained when a report needs them.
+ * <br>The other fields (title, genres, rating, runtime, and year) are always obtained.
+ * @author Bram Van Rensbergen
+ */
+public enum TitleField {
+	DIRECTORS,
+	ACTORS,
+	SUMMARY;
+	
+	public static final Set<TitleField> ALL = Collections.unmodifiableSet(EnumSet.allOf(TitleField.class));
+	
+	/**
+	 * @param fields Comma-separated, case-insensitive list of field names (e.g. 'directors,summary'); if null or empty, all fields are returned.
+	 * @throws IllegalArgumentException If an unknown field name is encountered.
+	 */
+	public static Set<TitleField> parse(String fields) {
+		if (fields == null || fields.trim().isEmpty()) {
+			return ALL;
+		}
+		
+		Set<TitleField> result = EnumSet.noneOf(TitleField.class);
+		for (String field : StringUtils.split(fields, ',')) {
+			result.add(TitleField.valueOf(field.trim().toUpperCase()));
+		}
+		return result;
+	}
+}
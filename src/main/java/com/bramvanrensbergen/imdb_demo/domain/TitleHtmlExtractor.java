@@ -0,0 +1,370 @@
+package com.bramvanrensbergen.imdb_demo.domain;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.EnumSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.jsoup.nodes.Document;
+import org.jsoup.nodes.Element;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import io.micrometer.core.instrument.Metrics;
+
+/**
+ * Extracts all fields of a title from its IMDb page in a single pass, so the html Document
+ * can be released as soon as the title has been created.
+ * <br>All selectors are compiled once; a page is then walked only once, testing each element against the selectors
+ * of the fields that have not been found yet, and the walk stops as soon as all fields are found.
+ * @author Bram Van Rensbergen
+ */
+public final class TitleHtmlExtractor {
+
+	/**
+	 * The parts of a page that are looked up. Fields with multiple values are found by first locating their container
+	 * (the first element matching {@code selector}), and then collecting all matches of {@code itemSelector} within it.
+	 * <br>Besides its text, the {@code attribute} (if any) of each match or item is captured.
+	 * <br>{@link StreamingTitleExtractor} matches the same selectors while reading a page.
+	 */
+	enum Target {
+		TYPE(".titleBar .subtext a:last-child"),
+		TITLE(".titleBar h1"),
+		GENRES(".titleBar", "span.itemprop", null),
+		RATING(".imdbRating span[itemprop=\"ratingValue\"]"),
+		ACTORS(".cast_list", "td[itemprop=\"actor\"] a", "href"),
+		DIRECTORS(".credit_summary_item:eq(1)", "span[itemprop=\"director\"] a, span[itemprop=\"creator\"] a", "href"),
+		SUMMARY(".summary_text"),
+		RUNTIME(".subtext time[itemprop=\"duration\"]"),
+		YEAR(".subtext meta[itemprop=\"datePublished\"]", null, "content"),
+		SERIES(".titleParent a", null, "href"),
+		EPISODE_NUMBER(".navigation_panel .bp_heading");
+
+		private final CompiledSelector selector;
+
+		private final CompiledSelector itemSelector;
+
+		private final String attribute;
+
+		Target(String selector) {
+			this(selector, null, null);
+		}
+
+		Target(String selector, String itemSelector, String attribute) {
+			this.selector = CompiledSelector.compile(selector);
+			this.itemSelector = itemSelector == null ? null : CompiledSelector.compile(itemSelector);
+			this.attribute = attribute;
+		}
+
+		boolean hasItems() {
+			return itemSelector != null;
+		}
+
+		String getAttribute() {
+			return attribute;
+		}
+	}
+
+	private static final Target[] TARGETS = Target.values();
+
+	private static final Logger log = LoggerFactory.getLogger(TitleHtmlExtractor.class);
+
+	private TitleHtmlExtractor() {
+	}
+
+	/**
+	 * Extract all data of the indicated title from its html Document.
+	 * @param id IMDb id of the title (e.g. 'tt0090756')
+	 * @param doc Document containing html of the title's imdb page.
+	 * @param type Type of the title; the year of release is not extracted for series, the series info only for episodes.
+	 * @throws NullPointerException If the title cannot be found, indicating Document is probably not a valid IMDb page.
+	 */
+	public static TitleData extract(String id, Document doc, TitleType type) {
+		return extract(id, doc, type, TitleField.ALL);
+	}
+
+	/**
+	 * Same as {@link #extract(String, Document, TitleType)}, but only extracting the indicated optional fields.
+	 */
+	public static TitleData extract(String id, Document doc, TitleType type, Set<TitleField> fields) {
+		Scan scan = new Scan(doc, targetsFor(type, fields), null);
+		scan.run();
+		return toData(id, type, fields, scan.capture());
+	}
+
+	/**
+	 * Same as {@link #extract(String, Document, TitleType, Set)}, but also reading the type of the title from the page,
+	 * within the same pass.
+	 * @return The data of the title, or null if its type could not be found.
+	 */
+	public static TitleData extract(String id, Document doc, Set<TitleField> fields) {
+		Set<Target> targets = targetsFor(TitleType.EPISODE, fields);
+		targets.add(Target.TYPE);
+
+		Scan scan = new Scan(doc, targets, fields);
+		scan.run();
+
+		return scan.type == null ? null : toData(id, scan.type, fields, scan.capture());
+	}
+
+	/**
+	 * Lookup the description of the type of title (e.g. 'TV Series', 'Episode aired 1 May 2016') in its html Document.
+	 * @return The description, or null if it could not be found.
+	 */
+	public static String obtainTypeDescription(Document doc) {
+		Element e = Target.TYPE.selector.first(doc);
+		return e == null ? null : e.text();
+	}
+
+	/**
+	 * @return The targets to look up for a title of the indicated type, given the optional fields requested.
+	 */
+	static Set<Target> targetsFor(TitleType type, Set<TitleField> fields) {
+		Set<Target> targets = EnumSet.of(Target.TITLE, Target.GENRES, Target.RATING, Target.RUNTIME);
+		if (type != TitleType.SERIES) {
+			targets.add(Target.YEAR);
+		}
+		if (type == TitleType.EPISODE) {
+			targets.add(Target.SERIES);
+			targets.add(Target.EPISODE_NUMBER);
+		}
+		if (fields.contains(TitleField.ACTORS)) {
+			targets.add(Target.ACTORS);
+		}
+		if (fields.contains(TitleField.DIRECTORS)) {
+			targets.add(Target.DIRECTORS);
+		}
+		if (fields.contains(TitleField.SUMMARY)) {
+			targets.add(Target.SUMMARY);
+		}
+		return targets;
+	}
+
+	/**
+	 * Build the data of a title from the parts found on its page.
+	 * @throws NullPointerException If the title was not found, indicating the page is probably not a valid IMDb page.
+	 */
+	static TitleData toData(String id, TitleType type, Set<TitleField> fields, PageCapture page) {
+		String seriesName = null;
+		String seriesId = null;
+		String seasonAndEpisodeNumberDesc = null;
+
+		if (type == TitleType.EPISODE) {
+			PageCapture.Item parent = page.first(Target.SERIES);
+			seriesName = parent.getText();
+			seriesId = Title.getIdFromUrl(parent.getAttribute());
+			seasonAndEpisodeNumberDesc = page.first(Target.EPISODE_NUMBER).getText();
+		}
+
+		return new TitleData(type, id, fields,
+				obtainTitle(id, page),
+				obtainGenres(page),
+				obtainRating(id, page),
+				fields.contains(TitleField.SUMMARY) ? obtainSummaryText(page) : null,
+				obtainRuntime(id, page),
+				type == TitleType.SERIES ? null : obtainYearOfRelease(id, page),
+				fields.contains(TitleField.DIRECTORS) ? obtainDirectorOrCreators(id, page) : Collections.<Person>emptyList(),
+				fields.contains(TitleField.ACTORS) ? obtainPrimaryActors(id, page) : Collections.<Person>emptyList(),
+				seriesName, seriesId, seasonAndEpisodeNumberDesc);
+	}
+
+	/**
+	 * Lookup the title for the current title in its html Document.
+	 * @throws NullPointerException If the title cannot be found, indicating Document is probably not a valid IMDb page.
+	 */
+	private static String obtainTitle(String id, PageCapture page) throws NullPointerException {
+		try {
+			return page.first(Target.TITLE).getText();
+		} catch (NullPointerException e) {
+			failed(id, "title", "not found");
+			throw e;
+		}
+	}
+
+	/**
+	 * Lookup the genres for the current title in its html Document
+	 */
+	private static Set<String> obtainGenres(PageCapture page) {
+		Set<String> genres = new LinkedHashSet<String>();
+
+		for (PageCapture.Item e : page.all(Target.GENRES)) {
+			genres.add(e.getText());
+		}
+
+		return genres;
+	}
+
+	/**
+	 * Lookup the rating for the current title in its html Document.
+	 * If no rating is found, null is returned.
+	 */
+	private static Double obtainRating(String id, PageCapture page) {
+		Double r = null;
+		try {
+			r = Double.parseDouble(page.first(Target.RATING).getText());
+		} catch (NumberFormatException e) {
+			failed(id, "rating", "not a number");
+		} catch (NullPointerException e) {
+			failed(id, "rating", "not found");
+		}
+		return r;
+	}
+
+	/**
+	 * Lookup the primary actors (the first 15 listed) for the current title in its html Document.
+	 */
+	private static List<Person> obtainPrimaryActors(String id, PageCapture page) {
+		List<Person> actors = new ArrayList<Person>();
+
+		for (PageCapture.Item actor : page.all(Target.ACTORS)) {
+			try {
+				String actorId = Person.getIdFromUrl(actor.getAttribute());
+				String name = actor.getText();
+				actors.add(Registry.person(actorId, name));
+			} catch (IllegalArgumentException e) {
+				failed(id, "actors", "invalid id or name");
+			}
+		}
+
+		return actors;
+	}
+
+	/**
+	 * Lookup the director(s) (for movies or episodes) or creator(s) (for series) of the current title in its html Document.
+	 */
+	private static List<Person> obtainDirectorOrCreators(String id, PageCapture page) {
+		List<Person> directors = new ArrayList<Person>();
+		for (PageCapture.Item directorElement : page.all(Target.DIRECTORS)) {
+			try {
+				String directorId = Person.getIdFromUrl(directorElement.getAttribute());
+				String directorName = directorElement.getText();
+				directors.add(Registry.person(directorId, directorName));
+			} catch (IllegalArgumentException e) {
+				failed(id, "directors", "invalid id or name");
+			}
+		}
+		return directors;
+	}
+
+	/**
+	 * Lookup the short summary of the current title in its html Document.
+	 */
+	private static String obtainSummaryText(PageCapture page) {
+		return page.first(Target.SUMMARY).getText();
+	}
+
+	/**
+	 * Look up the runtime (String, as found on IMDb) for the current title in its html Document.
+	 */
+	private static String obtainRuntime(String id, PageCapture page) {
+		String rt = null;
+		try {
+			rt = page.first(Target.RUNTIME).getText();
+		}  catch (NullPointerException e) {
+			failed(id, "runtime", "not found");
+		}
+		return rt;
+	}
+
+	/**
+	 * Look up the year of release for the current title in its html Document.
+	 */
+	private static Integer obtainYearOfRelease(String id, PageCapture page) {
+		try {
+			String ymd = page.first(Target.YEAR).getAttribute();
+			int year = Integer.parseInt(ymd.split("-")[0]);
+
+			if (year > 1500 && year < 5000) {
+				return year;
+			}
+
+		} catch (NumberFormatException e) {
+			failed(id, "year", "not a number");
+		} catch (NullPointerException e) {
+			failed(id, "year", "not found");
+		}
+
+		return null;
+	}
+
+	/**
+	 * Note a field that could not be extracted from a page: logged at debug level, and counted in the global meter registry
+	 * ('imdb.extract.failures', by field). Imports summarize the titles they obtained without some field instead.
+	 */
+	private static void failed(String id, String field, String reason) {
+		log.debug("Could not extract field: id={} field={} reason='{}'", id, field, reason);
+		Metrics.counter("imdb.extract.failures", "field", field).increment();
+	}
+
+	/**
+	 * A single walk over a page, looking up all indicated targets at once.
+	 */
+	private static final class Scan {
+
+		private final Document doc;
+
+		private final Set<Target> pending;
+
+		/**
+		 * The optional fields requested, if the type of the title is read from the page during the scan; else, null.
+		 */
+		private final Set<TitleField> fieldsForType;
+
+		private final Map<Target, Element> matches = new EnumMap<Target, Element>(Target.class);
+
+		private TitleType type;
+
+		Scan(Document doc, Set<Target> targets, Set<TitleField> fieldsForType) {
+			this.doc = doc;
+			this.pending = EnumSet.copyOf(targets);
+			this.fieldsForType = fieldsForType;
+		}
+
+		void run() {
+			for (Element e = doc; e != null && !pending.isEmpty(); e = CompiledSelector.next(doc, e)) {
+				for (Target target : TARGETS) {
+					if (pending.contains(target) && target.selector.matches(doc, e)) {
+						found(target, e);
+					}
+				}
+			}
+		}
+
+		private void found(Target target, Element e) {
+			matches.put(target, e);
+			pending.remove(target);
+
+			// once the type is known, stop looking for targets that do not apply to it
+			if (target == Target.TYPE && fieldsForType != null) {
+				type = TitleType.fromDescription(e.text());
+				pending.retainAll(targetsFor(type, fieldsForType));
+			}
+		}
+
+		/**
+		 * @return The text (and attribute) of the first element matching each target, and of the items of each container found.
+		 */
+		PageCapture capture() {
+			PageCapture capture = new PageCapture();
+			for (Map.Entry<Target, Element> match : matches.entrySet()) {
+				Target target = match.getKey();
+				if (target.hasItems()) {
+					for (Element item : target.itemSelector.all(match.getValue())) {
+						capture.add(target, itemOf(target, item));
+					}
+				} else {
+					capture.put(target, itemOf(target, match.getValue()));
+				}
+			}
+			return capture;
+		}
+
+		private static PageCapture.Item itemOf(Target target, Element e) {
+			return new PageCapture.Item(e.text(), target.attribute == null ? null : e.attr(target.attribute));
+		}
+	}
+}
@@ -0,0 +1,29 @@
+package com.bramvanrensbergen.imdb_demo.domain;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Set;
+
+/**
+ * Reads the data of a title from its IMDb page, as downloaded; the result can be passed to the constructors of {@link Movie},
+ * {@link Series}, and {@link Episode}.
+ * <br>Two implementations extract the same fields from the same page: {@link DomTitleExtractor}, which parses the
+ * whole page first, and {@link StreamingTitleExtractor}, which picks up the fields while reading the page.
+ * @author Bram Van Rensbergen
+ */
+public interface TitlePageExtractor {
+
+	/**
+	 * Extract the data of the indicated title from its page.
+	 * <br>The page is not necessarily read to its end; closing it remains up to the caller.
+	 * @param id IMDb id of the title (e.g. 'tt0090756')
+	 * @param page The html of the title's imdb page.
+	 * @param charset Name of the character set of the page, or null if unknown.
+	 * @param type Type of the title, or null to read it from the page.
+	 * @param fields The optional fields to extract.
+	 * @return The data of the title, or null if its type was not indicated and could not be found.
+	 * @throws IOException If the page could not be read.
+	 * @throws NullPointerException If the title cannot be found, indicating the page is probably not a valid IMDb page.
+	 */
+	TitleData extract(String id, InputStream page, String charset, TitleType type, Set<TitleField> fields) throws IOException;
+}
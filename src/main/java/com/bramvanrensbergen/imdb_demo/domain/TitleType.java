@@ -0,0 +1,27 @@
+package com.bramvanrensbergen.imdb_demo.domain;
+
+/**
+ * The kinds of titles that can be analyzed.
+ * @author Bram Van Rensbergen
+ */
+public enum TitleType {
+	MOVIE,
+	SERIES,
+	EPISODE;
+	
+	/**
+	 * Find out what type of title a description refers to.
+	 * <br>Works for both the description scraped from web (e.g. 'TV Series'), and the description present in exported ratings (e.g. 'TV Episode').
+	 * @return SERIES or EPISODE if the description mentions them; MOVIE otherwise.
+	 */
+	public static TitleType fromDescription(String titleTypeDescription) {
+		// not exactly elegant but hey...
+		if (titleTypeDescription.contains("Series")) {
+			return SERIES;
+		} else if (titleTypeDescription.contains("Episode")) {
+			return EPISODE;
+		} else {
+			return MOVIE;
+		}
+	}
+}
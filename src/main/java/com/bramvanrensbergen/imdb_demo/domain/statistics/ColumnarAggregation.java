@@ -0,0 +1,228 @@
+package com.bramvanrensbergen.imdb_demo.domain.statistics;
+
+import java.util.Arrays;
+import java.util.List;
+
+import com.bramvanrensbergen.imdb_demo.domain.Person;
+import com.bramvanrensbergen.imdb_demo.domain.Registry;
+import com.bramvanrensbergen.imdb_demo.domain.Title;
+import com.bramvanrensbergen.imdb_demo.domain.TitleColumns;
+
+/**
+ * Aggregates the titles of a {@link TitleColumns} into the same rows as accepting them one by one in a {@link StatisticsAggregator} would,
+ * in tight loops over primitive arrays.
+ * <br>The running aggregates of all actors, directors, or genres are themselves kept column by column, indexed by row,
+ * so no objects are created per row; only the rows that make the {@link RowLimits} are turned into {@link StatRow}s at the end.
+ * @author Bram Van Rensbergen
+ */
+final class ColumnarAggregation {
+
+	private static final int INITIAL_CAPACITY = 64;
+
+	/**
+	 * Running aggregates of a single field, for each row; updated exactly as {@link RunningStat#add(double)} would,
+	 * so they come out bit for bit the same.
+	 */
+	private static final class StatColumns {
+		long[] count = new long[INITIAL_CAPACITY];
+		double[] sum = new double[INITIAL_CAPACITY];
+		double[] min = new double[INITIAL_CAPACITY];
+		double[] max = new double[INITIAL_CAPACITY];
+		double[] m2 = new double[INITIAL_CAPACITY];
+
+		StatColumns() {
+			Arrays.fill(min, Double.POSITIVE_INFINITY);
+			Arrays.fill(max, Double.NEGATIVE_INFINITY);
+		}
+
+		void grow(int capacity) {
+			int old = count.length;
+			count = Arrays.copyOf(count, capacity);
+			sum = Arrays.copyOf(sum, capacity);
+			min = Arrays.copyOf(min, capacity);
+			max = Arrays.copyOf(max, capacity);
+			m2 = Arrays.copyOf(m2, capacity);
+			Arrays.fill(min, old, capacity, Double.POSITIVE_INFINITY);
+			Arrays.fill(max, old, capacity, Double.NEGATIVE_INFINITY);
+		}
+
+		void add(int row, double x) {
+			long n = count[row];
+			double s = sum[row];
+			double delta = n == 0 ? 0 : x - s / n;
+			n++;
+			s += x;
+			m2[row] += delta * (x - s / n);
+			count[row] = n;
+			sum[row] = s;
+
+			if (x < min[row]) {
+				min[row] = x;
+			}
+			if (x > max[row]) {
+				max[row] = x;
+			}
+		}
+
+		RunningStat get(int row) {
+			return new RunningStat(count[row], sum[row], min[row], max[row], m2[row]);
+		}
+	}
+
+	/**
+	 * The rows of all actors, directors, or genres, numbered in the order they first occurred.
+	 */
+	private static final class Rows {
+
+		/**
+		 * Row of each key, plus one; 0 for keys that did not occur (yet).
+		 */
+		final int[] rowOfKey;
+
+		int size = 0;
+
+		int[] keys = new int[INITIAL_CAPACITY];
+
+		int[] occurrences = new int[INITIAL_CAPACITY];
+
+		final StatColumns ratings = new StatColumns();
+		final StatColumns userRatings = new StatColumns();
+		final StatColumns runtimesInMinutes = new StatColumns();
+		final StatColumns yearsOfRelease = new StatColumns();
+
+		/**
+		 * @param nKeys Number of keys that can occur, from 0 (inclusive) to nKeys (exclusive).
+		 */
+		Rows(int nKeys) {
+			rowOfKey = new int[nKeys];
+		}
+
+		/**
+		 * @return The row of the indicated key, which is created if it did not occur yet.
+		 */
+		int row(int key) {
+			int row = rowOfKey[key] - 1;
+			if (row >= 0) {
+				return row;
+			}
+
+			row = size++;
+			if (row == keys.length) {
+				int capacity = keys.length * 2;
+				keys = Arrays.copyOf(keys, capacity);
+				occurrences = Arrays.copyOf(occurrences, capacity);
+				ratings.grow(capacity);
+				userRatings.grow(capacity);
+				runtimesInMinutes.grow(capacity);
+				yearsOfRelease.grow(capacity);
+			}
+			keys[row] = key;
+			rowOfKey[key] = row + 1;
+			return row;
+		}
+
+		/**
+		 * Add the indicated title of the columns to all rows of the keys between the indicated positions of the adjacency lists.
+		 */
+		void addTitle(TitleColumns.Adjacency adjacency, int start, int end, TitleColumns columns, int title) {
+			boolean hasRating = columns.hasRating(title);
+			boolean hasUserRating = columns.hasUserRating(title);
+			boolean hasRuntime = columns.hasRuntime(title);
+			boolean hasYearOfRelease = columns.hasYearOfRelease(title);
+			double rating = columns.getRating(title);
+			double userRating = columns.getUserRating(title);
+			int runtimeMinutes = columns.getRuntimeMinutes(title);
+			int yearOfRelease = columns.getYearOfRelease(title);
+
+			for (int i = start; i < end; i++) {
+				int row = row(adjacency.key(i));
+				occurrences[row]++;
+				if (hasRating) {
+					ratings.add(row, rating);
+				}
+				if (hasUserRating) {
+					userRatings.add(row, userRating);
+				}
+				if (hasRuntime) {
+					runtimesInMinutes.add(row, runtimeMinutes);
+				}
+				if (hasYearOfRelease) {
+					yearsOfRelease.add(row, yearOfRelease);
+				}
+			}
+		}
+
+		/**
+		 * @return The rows that occurred most often, in the order they first occurred.
+		 */
+		int[] top(int k) {
+			int[] top = TopRows.select(occurrences, size, k);
+			Arrays.sort(top);
+			return top;
+		}
+
+		StatRow toStatRow(int row, String name, String url) {
+			return new StatRow(name, url, occurrences[row], ratings.get(row), userRatings.get(row), runtimesInMinutes.get(row),
+					yearsOfRelease.get(row));
+		}
+	}
+
+	private ColumnarAggregation() {
+	}
+
+	/**
+	 * @param titles The titles the columns hold, to be listed by the statistics.
+	 * @return An aggregator holding the same counts and global stats as one that accepted all titles of the indicated columns, in order;
+	 * 	but only the rows of actors, directors, and genres that make the indicated limits.
+	 */
+	static StatisticsAggregator aggregate(List<Title> titles, TitleColumns columns, RowLimits limits) {
+		StatisticsAggregator aggregator = new StatisticsAggregator(columns.getFields());
+		aggregator.analyzedTitles.addAll(titles);
+
+		TitleColumns.Adjacency actorKeys = columns.getActors();
+		TitleColumns.Adjacency directorKeys = columns.getDirectors();
+		TitleColumns.Adjacency genreKeys = columns.getGenres();
+		Rows actors = new Rows(columns.personCount());
+		Rows directors = new Rows(columns.personCount());
+		Rows genres = new Rows(Registry.genreCount());
+
+		for (int i = 0; i < columns.size(); i++) {
+			switch (columns.getType(i)) {
+			case MOVIE:
+				aggregator.nMovies++;
+				break;
+			case EPISODE:
+				aggregator.nEpisodes++;
+				break;
+			case SERIES:
+				aggregator.nSeries++;
+				break;
+			}
+
+			aggregator.globalStats.addTitle(columns, i);
+			actors.addTitle(actorKeys, actorKeys.start(i), actorKeys.end(i), columns, i);
+			directors.addTitle(directorKeys, directorKeys.start(i), directorKeys.end(i), columns, i);
+			genres.addTitle(genreKeys, genreKeys.start(i), genreKeys.end(i), columns, i);
+		}
+
+		for (int row : actors.top(limits.getActors())) {
+			Person p = columns.getPerson(actors.keys[row]);
+			aggregator.actorStatsMap.put(p.getKey(), actors.toStatRow(row, p.getName(), p.getUrl()));
+		}
+
+		for (int row : directors.top(limits.getDirectors())) {
+			Person p = columns.getPerson(directors.keys[row]);
+			aggregator.directorStatsMap.put(p.getKey(), directors.toStatRow(row, p.getName(), p.getUrl()));
+		}
+
+		aggregator.genreStats = new StatRow[Registry.genreCount()];
+		for (int row : genres.top(limits.getGenres())) {
+			int key = genres.keys[row];
+			StatRow stats = genres.toStatRow(row, Registry.genre(key), null);
+			aggregator.genreStats[key] = stats;
+			aggregator.genreStatsList.add(stats);
+		}
+
+		return aggregator;
+	}
+}
@@ -0,0 +1,29 @@
+package com.bramvanrensbergen.imdb_demo.domain.statistics;
+
+/**
+ * What the titles matched by a {@link TitleQuery} are grouped by; a title is added to the group of each of its genres, actors,
+ * or directors, so these groups overlap.
+ * @author Bram Van Rensbergen
+ */
+public enum GroupBy {
+	GENRE,
+	DIRECTOR,
+	ACTOR,
+	/**
+	 * Decade of release (e.g. '1990s'); titles without a year of release are left out.
+	 */
+	DECADE,
+	TYPE;
+
+	/**
+	 * @param groupBy Name of the grouping, in any case (e.g. 'genre'); or null, to not group the titles.
+	 * @return The grouping; or null if none was provided.
+	 * @throws IllegalArgumentException if the grouping is unknown.
+	 */
+	public static GroupBy parse(String groupBy) {
+		if (groupBy == null || groupBy.trim().isEmpty()) {
+			return null;
+		}
+		return valueOf(groupBy.trim().toUpperCase());
+	}
+}
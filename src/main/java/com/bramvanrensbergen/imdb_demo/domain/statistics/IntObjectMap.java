@@ -0,0 +1,109 @@
+package com.bramvanrensbergen.imdb_demo.domain.statistics;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Map from int keys (e.g. {@link com.bramvanrensbergen.imdb_demo.domain.Person#getKey()}) to values,
+ * without boxing the keys; open addressing with linear probing.
+ * <br>Values are kept in the order they were first put, so iterating them does not depend on the keys.
+ * Not safe for use by multiple threads.
+ * @author Bram Van Rensbergen
+ */
+final class IntObjectMap<V> {
+
+	private static final int INITIAL_CAPACITY = 64;
+
+	/**
+	 * Key in each slot of the table.
+	 */
+	private int[] keys;
+
+	/**
+	 * Position in {@link #values} of the value of each slot, plus one; 0 for empty slots.
+	 */
+	private int[] positions;
+
+	private final List<V> values = new ArrayList<V>();
+
+	/**
+	 * Number of bits of the hash used to select a slot; the table holds 2^bits slots.
+	 */
+	private int bits;
+
+	IntObjectMap() {
+		allocate(Integer.numberOfTrailingZeros(INITIAL_CAPACITY));
+	}
+
+	private void allocate(int bits) {
+		this.bits = bits;
+		keys = new int[1 << bits];
+		positions = new int[1 << bits];
+	}
+
+	/**
+	 * @return Slot of the indicated key, or of the empty slot where it would be put.
+	 */
+	private int slot(int key) {
+		int mask = keys.length - 1;
+		// fibonacci hashing spreads consecutive keys over the table
+		int slot = (key * 0x9E3779B9) >>> (32 - bits);
+		while (positions[slot] != 0 && keys[slot] != key) {
+			slot = (slot + 1) & mask;
+		}
+		return slot;
+	}
+
+	/**
+	 * @return The value of the indicated key, or null if it has none.
+	 */
+	V get(int key) {
+		int position = positions[slot(key)];
+		return position == 0 ? null : values.get(position - 1);
+	}
+
+	/**
+	 * Set the value of the indicated key, replacing any value it had.
+	 */
+	void put(int key, V value) {
+		int slot = slot(key);
+		if (positions[slot] != 0) {
+			values.set(positions[slot] - 1, value);
+			return;
+		}
+
+		values.add(value);
+		keys[slot] = key;
+		positions[slot] = values.size();
+
+		// keep at least half of the slots empty, so probe sequences stay short
+		if (values.size() * 2 > keys.length) {
+			grow();
+		}
+	}
+
+	private void grow() {
+		int[] oldKeys = keys;
+		int[] oldPositions = positions;
+		allocate(bits + 1);
+		for (int i = 0; i < oldKeys.length; i++) {
+			if (oldPositions[i] != 0) {
+				int slot = slot(oldKeys[i]);
+				keys[slot] = oldKeys[i];
+				positions[slot] = oldPositions[i];
+			}
+		}
+	}
+
+	/**
+	 * @return All values, in the order their keys were first put; a read-only view that reflects later changes.
+	 */
+	List<V> values() {
+		return Collections.unmodifiableList(values);
+	}
+
+	int size() {
+		return values.size();
+	}
+}
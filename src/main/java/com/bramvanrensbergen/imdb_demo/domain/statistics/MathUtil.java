@@ -1,7 +1,5 @@
 package com.bramvanrensbergen.imdb_demo.domain.statistics;
 
-import java.util.List;
-
 public abstract class MathUtil {
 
 	/**
@@ -49,23 +47,21 @@ public abstract class MathUtil {
 	}
 	
 	/**
-	 * Calculate the average of a list of runtimes
-	 * @param runtimesInMinutes
-	 * @return Average runtime, in the format '1h 55min', '30min', or '2h'
+	 * Convert a runtime in minutes to a description of that runtime.
+	 * @param minutes
+	 * @return Runtime, in the format '1h 55min', '30min', or '2h'; or null, if minutes is null
 	 */
-	static String getAverageRuntimeString(List<Integer> runtimesInMinutes) {
-		Integer minuteAvg = computeAvgOfIntegerList(runtimesInMinutes);
-		
-		if (minuteAvg == null) {
+	public static String minutesToRuntimeDescription(Integer minutes) {
+		if (minutes == null) {
 			return null;
 		}
 		
-		if (minuteAvg < 60) {
-			return minuteAvg + "min";
+		if (minutes < 60) {
+			return minutes + "min";
 		}
 		
-		int hours = minuteAvg / 60;
-		int minutesLeft = minuteAvg - hours * 60;
+		int hours = minutes / 60;
+		int minutesLeft = minutes - hours * 60;
 		
 		if (minutesLeft > 0) {
 			return hours + "h " + minutesLeft + "min"; 
@@ -73,35 +69,4 @@ public abstract class MathUtil {
 			return hours + "h";
 		}	
 	}
-	
-	
-	/**
-	 * @return average of list, or null, if list is empty
-	 */
-	static Double computeAvgOfDoubleList(List<Double> numbers) {
-		if (numbers.isEmpty()) {
-			return null;
-		}
-		
-		double count = 0;
-		for (Double n : numbers) {
-			count = count + n.doubleValue();
-		}
-		return (double) count / numbers.size();
-	}
-	
-	/**
-	 * @return average of list, rounded to the nearest integer, or null, if list is empty
-	 */
-	static Integer computeAvgOfIntegerList(List<Integer> numbers) {
-		if (numbers.isEmpty()) {
-			return null;
-		}
-		
-		int count = 0;
-		for (int n : numbers) {
-			count += n;
-		}
-		return (int) count / numbers.size();
-	}
 }
@@ -0,0 +1,89 @@
+package com.bramvanrensbergen.imdb_demo.domain.statistics;
+
+import org.apache.commons.lang3.StringUtils;
+
+/**
+ * How many rows of actors, directors, and genres {@link Statistics} hold: those that occurred most often.
+ * @author Bram Van Rensbergen
+ */
+public final class RowLimits {
+
+	/**
+	 * 50 actors, 20 directors, and 10 genres.
+	 */
+	public static final RowLimits DEFAULT = new RowLimits(50, 20, 10);
+
+	/**
+	 * Limits are capped, as every row is rendered into the report.
+	 */
+	public static final int MAX_ROWS = 1000;
+
+	private final int actors;
+
+	private final int directors;
+
+	private final int genres;
+
+	/**
+	 * @throws IllegalArgumentException if any limit is negative, or above {@link #MAX_ROWS}.
+	 */
+	public RowLimits(int actors, int directors, int genres) {
+		this.actors = check("actors", actors);
+		this.directors = check("directors", directors);
+		this.genres = check("genres", genres);
+	}
+
+	private static int check(String category, int limit) {
+		if (limit < 0 || limit > MAX_ROWS) {
+			throw new IllegalArgumentException("Number of " + category + " should be between 0 and " + MAX_ROWS + ", not " + limit);
+		}
+		return limit;
+	}
+
+	/**
+	 * Parse a comma-separated list of limits per category, e.g. 'actors:100,genres:5'; categories that are not listed keep
+	 * their {@link #DEFAULT} limit.
+	 * @return The limits; the defaults if none were provided.
+	 * @throws IllegalArgumentException if a category is unknown, or a limit is not a number in the allowed range.
+	 */
+	public static RowLimits parse(String limits) {
+		if (limits == null || limits.trim().isEmpty()) {
+			return DEFAULT;
+		}
+
+		int actors = DEFAULT.actors;
+		int directors = DEFAULT.directors;
+		int genres = DEFAULT.genres;
+		for (String limit : StringUtils.split(limits, ',')) {
+			String[] parts = StringUtils.split(limit, ':');
+			if (parts.length != 2) {
+				throw new IllegalArgumentException("Limits should be formatted as 'actors:100,genres:5', not '" + limits + "'");
+			}
+
+			String category = parts[0].trim().toLowerCase();
+			int value = Integer.parseInt(parts[1].trim());
+			if (category.equals("actors")) {
+				actors = value;
+			} else if (category.equals("directors")) {
+				directors = value;
+			} else if (category.equals("genres")) {
+				genres = value;
+			} else {
+				throw new IllegalArgumentException("Unknown category '" + category + "'; should be actors, directors, or genres");
+			}
+		}
+		return new RowLimits(actors, directors, genres);
+	}
+
+	public int getActors() {
+		return actors;
+	}
+
+	public int getDirectors() {
+		return directors;
+	}
+
+	public int getGenres() {
+		return genres;
+	}
+}
@@ -0,0 +1,96 @@
+package com.bramvanrensbergen.imdb_demo.domain.statistics;
+
+/**
+ * Running count, sum, minimum, maximum, and variance of a series of numbers, using constant memory.
+ * @author Bram Van Rensbergen
+ */
+final class RunningStat {
+
+	private long count;
+
+	private double sum;
+
+	private double min = Double.POSITIVE_INFINITY;
+
+	private double max = Double.NEGATIVE_INFINITY;
+
+	/**
+	 * Sum of squared differences from the mean (Welford), used to compute the variance.
+	 */
+	private double m2;
+
+	RunningStat() {
+	}
+
+	/**
+	 * @param m2 Sum of squared differences from the mean.
+	 */
+	RunningStat(long count, double sum, double min, double max, double m2) {
+		this.count = count;
+		this.sum = sum;
+		this.min = min;
+		this.max = max;
+		this.m2 = m2;
+	}
+
+	RunningStat(RunningStat other) {
+		count = other.count;
+		sum = other.sum;
+		min = other.min;
+		max = other.max;
+		m2 = other.m2;
+	}
+
+	void add(double x) {
+		double delta = count == 0 ? 0 : x - sum / count;
+		count++;
+		sum += x;
+		m2 += delta * (x - sum / count);
+
+		if (x < min) {
+			min = x;
+		}
+		if (x > max) {
+			max = x;
+		}
+	}
+
+	long getCount() {
+		return count;
+	}
+
+	/**
+	 * @return average of the series, or null, if it is empty
+	 */
+	Double getMean() {
+		return count == 0 ? null : sum / count;
+	}
+
+	/**
+	 * @return average of the series, rounded down to an integer, or null, if it is empty
+	 */
+	Integer getIntegerMean() {
+		return count == 0 ? null : (int) (sum / count);
+	}
+
+	/**
+	 * @return smallest number in the series, or null, if it is empty
+	 */
+	Double getMin() {
+		return count == 0 ? null : min;
+	}
+
+	/**
+	 * @return largest number in the series, or null, if it is empty
+	 */
+	Double getMax() {
+		return count == 0 ? null : max;
+	}
+
+	/**
+	 * @return population variance of the series, or null, if it is empty
+	 */
+	Double getVariance() {
+		return count == 0 ? null : m2 / count;
+	}
+}
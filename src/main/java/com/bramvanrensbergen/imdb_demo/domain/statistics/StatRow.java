@@ -1,9 +1,7 @@
 package com.bramvanrensbergen.imdb_demo.domain.statistics;
 
-import java.util.ArrayList;
-import java.util.List;
-
 import com.bramvanrensbergen.imdb_demo.domain.Title;
+import com.bramvanrensbergen.imdb_demo.domain.TitleColumns;
 
 /**
  * Object representing a row of statistics, containing a name (e.g., actor, director, or genre), 
@@ -19,19 +17,20 @@ public class StatRow implements Comparable<StatRow>{
 	
 	protected int nbOfOccurrences;
 	
-	private List<Double> ratings;
-	private List<Double> userRatings;
-	private List<Integer> runtimesInMinutes;
-	private List<Integer> yearsOfRelease;
+	// running aggregates rather than lists of values, so each row takes constant memory
+	private RunningStat ratings;
+	private RunningStat userRatings;
+	private RunningStat runtimesInMinutes;
+	private RunningStat yearsOfRelease;
 		
 	public StatRow() {		
 		name = null;
 		url = null;
 		nbOfOccurrences = 0;
-		ratings = new ArrayList<Double>();
-		userRatings = new ArrayList<Double>();
-		runtimesInMinutes = new ArrayList<Integer>();
-		yearsOfRelease = new ArrayList<Integer>();
+		ratings = new RunningStat();
+		userRatings = new RunningStat();
+		runtimesInMinutes = new RunningStat();
+		yearsOfRelease = new RunningStat();
 	}
 	
 	public StatRow(String name) {		
@@ -44,6 +43,33 @@ public class StatRow implements Comparable<StatRow>{
 		this.url = url;
 	}
 	
+	/**
+	 * Create a row holding the indicated aggregates.
+	 */
+	StatRow(String name, String url, int nbOfOccurrences, RunningStat ratings, RunningStat userRatings, 
+			RunningStat runtimesInMinutes, RunningStat yearsOfRelease) {
+		this.name = name;
+		this.url = url;
+		this.nbOfOccurrences = nbOfOccurrences;
+		this.ratings = ratings;
+		this.userRatings = userRatings;
+		this.runtimesInMinutes = runtimesInMinutes;
+		this.yearsOfRelease = yearsOfRelease;
+	}
+	
+	/**
+	 * Create a copy of the indicated row, which is not affected by titles added to the original afterwards.
+	 */
+	public StatRow(StatRow other) {
+		name = other.name;
+		url = other.url;
+		nbOfOccurrences = other.nbOfOccurrences;
+		ratings = new RunningStat(other.ratings);
+		userRatings = new RunningStat(other.userRatings);
+		runtimesInMinutes = new RunningStat(other.runtimesInMinutes);
+		yearsOfRelease = new RunningStat(other.yearsOfRelease);
+	}
+	
 	/**
 	 * Add statistics for the indicated title to this row. 
 	 * <br>Increments nbOfOccurrences, and adds the title's rating, user rating, runtime, and year 
@@ -78,6 +104,29 @@ public class StatRow implements Comparable<StatRow>{
 		}
 	}
 
+	/**
+	 * Same as {@link #addTitle(Title)}, for the indicated title of a set of columns.
+	 */
+	void addTitle(TitleColumns columns, int title) {
+		nbOfOccurrences++;
+		
+		if (columns.hasRating(title)) {
+			ratings.add(columns.getRating(title));
+		}
+		
+		if (columns.hasUserRating(title)) {
+			userRatings.add(columns.getUserRating(title));
+		}
+		
+		if (columns.hasRuntime(title)) {
+			runtimesInMinutes.add(columns.getRuntimeMinutes(title));
+		}
+		
+		if (columns.hasYearOfRelease(title)) {
+			yearsOfRelease.add(columns.getYearOfRelease(title));
+		}
+	}
+
 	public String getName() {
 		return name;
 	}
@@ -95,7 +144,30 @@ public class StatRow implements Comparable<StatRow>{
 	 * or null if no ratings were found. 
 	 */
 	public String getAvgRating() {
-		return MathUtil.getFormattedDouble(MathUtil.computeAvgOfDoubleList(ratings));
+		return MathUtil.getFormattedDouble(ratings.getMean());
+	}
+	
+	/**
+	 * @return The lowest idmb-rating of all analyzed titles in which this entity occurred, or null if no ratings were found. 
+	 */
+	public Double getMinRating() {
+		return ratings.getMin();
+	}
+	
+	/**
+	 * @return The highest idmb-rating of all analyzed titles in which this entity occurred, or null if no ratings were found. 
+	 */
+	public Double getMaxRating() {
+		return ratings.getMax();
+	}
+	
+	/**
+	 * @return The standard deviation of the idmb-ratings of all analyzed titles in which this entity occurred, 
+	 * or null if no ratings were found. 
+	 */
+	public String getRatingStdDev() {
+		Double variance = ratings.getVariance();
+		return MathUtil.getFormattedDouble(variance == null ? null : Math.sqrt(variance));
 	}
 
 	/**
@@ -103,7 +175,7 @@ public class StatRow implements Comparable<StatRow>{
 	 * or null if no ratings were found.
 	 */
 	public String getAvgUserRating() {
-		return MathUtil.getFormattedDouble(MathUtil.computeAvgOfDoubleList(userRatings));
+		return MathUtil.getFormattedDouble(userRatings.getMean());
 	}
 	
 	/**
@@ -111,15 +183,43 @@ public class StatRow implements Comparable<StatRow>{
 	 * in the format '1h 55min', '30min', or '2h'; or null if no runtimes were found.
 	 */
 	public String getAvgRuntime() {
-		return MathUtil.getAverageRuntimeString(runtimesInMinutes);	
+		return MathUtil.minutesToRuntimeDescription(runtimesInMinutes.getIntegerMean());	
 	}
 	
 	/**
-	 * @return The average runtime of all analyzed titles in which this entity occurred (e.g. person was cast), 
-	 * in the format '1h 55min', '30min', or '2h'; or null if no runtimes were found.
+	 * @return The average year of release of all analyzed titles in which this entity occurred (e.g. person was cast),
+	 * or null if no years were found.
 	 */
 	public Integer getAvgYearOfRelease() {
-		return MathUtil.computeAvgOfIntegerList(yearsOfRelease);	
+		return yearsOfRelease.getIntegerMean();	
+	}
+
+	/**
+	 * @return The running aggregate of the idmb-ratings, unformatted.
+	 */
+	RunningStat getRatings() {
+		return ratings;
+	}
+
+	/**
+	 * @return The running aggregate of the ratings of the current user, unformatted.
+	 */
+	RunningStat getUserRatings() {
+		return userRatings;
+	}
+
+	/**
+	 * @return The running aggregate of the runtimes in minutes, unformatted.
+	 */
+	RunningStat getRuntimesInMinutes() {
+		return runtimesInMinutes;
+	}
+
+	/**
+	 * @return The running aggregate of the years of release, unformatted.
+	 */
+	RunningStat getYearsOfRelease() {
+		return yearsOfRelease;
 	}
 
 	@Override
@@ -1,26 +1,26 @@
 package com.bramvanrensbergen.imdb_demo.domain.statistics;
 
 import java.util.ArrayList;
-import java.util.Collections;
-import java.util.HashMap;
 import java.util.List;
-import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
 
-import com.bramvanrensbergen.imdb_demo.domain.Episode;
-import com.bramvanrensbergen.imdb_demo.domain.Movie;
-import com.bramvanrensbergen.imdb_demo.domain.Person;
-import com.bramvanrensbergen.imdb_demo.domain.Series;
 import com.bramvanrensbergen.imdb_demo.domain.Title;
+import com.bramvanrensbergen.imdb_demo.domain.TitleColumns;
+import com.bramvanrensbergen.imdb_demo.domain.TitleField;
 
 /**
  * Generate a number of basic stats for the indicated titles.
+ * <br>Only the actors, directors, and genres that occurred most often are kept (see {@link RowLimits}).
  * @author Bram Van Rensbergen 
  */
 public class Statistics {	
-	private static final int ACTORS_TO_DISPLAY = 50;
-	private static final int DIRECTORS_TO_DISPLAY = 20;
-	private static final int GENRES_TO_DISPLAY = 10;
 
+	/**
+	 * The optional fields these statistics were gathered for.
+	 */
+	private Set<TitleField> fields;
+	
 	private List<Title> analyzedTitles;
 	
 	/**
@@ -29,91 +29,102 @@ public class Statistics {
 	private StatRow globalStats;
 	
 	/**
-	 * Stats per actor.
+	 * Stats for the actors that were cast most often, sorted by occurrence.
 	 */
 	private List<StatRow> actorStats;
 	
 	/**
-	 * Stats per director.
+	 * Stats for the directors that directed most often, sorted by occurrence.
 	 */
 	private List<StatRow> directorStats;
 	
 	/**
-	 * Stats per genre.
+	 * Stats for the genres that occurred most often, sorted by occurrence.
 	 */
 	private List<StatRow> genreStats;	
 	
-	private int nMovies = 0;
-	private int nEpisodes = 0;
-	private int nSeries = 0;			
+	private int nMovies;
+	private int nEpisodes;
+	private int nSeries;			
 	
 	/**
 	 * Generate a set of statistics for the indicated titles.
 	 */
 	public Statistics(List<Title> titles) {	 
-		analyzedTitles = titles;
-		
+		this(titles, TitleField.ALL);
+	}
+	
+	/**
+	 * Generate a set of statistics for the indicated titles, only accessing the indicated optional fields of each title.
+	 */
+	public Statistics(List<Title> titles, Set<TitleField> fields) {	 
+		this(titles, fields, RowLimits.DEFAULT);
+	}
+	
+	/**
+	 * Generate a set of statistics for the indicated titles, only accessing the indicated optional fields of each title,
+	 * and keeping the indicated number of actors, directors, and genres.
+	 */
+	public Statistics(List<Title> titles, Set<TitleField> fields, RowLimits limits) {	 
+		this(StatisticsAggregator.of(titles, fields), limits, false);
+	}
+	
+	/**
+	 * Same as {@link #Statistics(List, Set, RowLimits)}, but the titles are aggregated on the threads of the indicated pool;
+	 * the result is identical, including the order of rows that occurred equally often.
+	 * <br>Only pays off for tens of thousands of titles.
+	 */
+	public Statistics(List<Title> titles, Set<TitleField> fields, RowLimits limits, ForkJoinPool pool) {
+		this(ParallelAggregation.aggregate(titles, fields, pool), limits, false);
+	}
+	
+	/**
+	 * Generate a set of statistics for the titles held by the indicated columns, in tight loops over their primitive values;
+	 * the result is identical to generating them from the titles themselves.
+	 * @param titles The titles the columns were built from, listed in the report; may be empty if the columns were filled
+	 * 	straight from extracted data.
+	 */
+	public Statistics(List<Title> titles, TitleColumns columns, RowLimits limits) {
+		this(ColumnarAggregation.aggregate(titles, columns, limits), limits, false);
+	}
+	
+	/**
+	 * Generate a set of statistics from all titles accepted by the indicated aggregator.
+	 * <br>Keeps only the rows that made the indicated limits, so the others can be freed along with the aggregator.
+	 * @param copy Whether to copy the aggregator's rows, so they are not affected by titles it accepts later on.
+	 */
+	Statistics(StatisticsAggregator aggregator, RowLimits limits, boolean copy) {
+		fields = aggregator.fields;
+		analyzedTitles = copy ? new ArrayList<Title>(aggregator.analyzedTitles) : aggregator.analyzedTitles;
+		globalStats = copy ? new StatRow(aggregator.globalStats) : aggregator.globalStats;
+		nMovies = aggregator.nMovies;
+		nEpisodes = aggregator.nEpisodes;
+		nSeries = aggregator.nSeries;
 		
-		globalStats = new StatRow();
-		Map<String, StatRow> actorStatsMap = new HashMap<String, StatRow>();
-		Map<String, StatRow> directorStatsMap = new HashMap<String, StatRow>();
-		Map<String, StatRow> genreStatsMap = new HashMap<String, StatRow>();
-			
-		for (Title t : titles) {
-			
-			if (t instanceof Movie) {
-				nMovies++;
-			} else if (t instanceof Episode) {
-				nEpisodes++;
-			} else if (t instanceof Series) {
-				nSeries++;
-			} 
-			
-			globalStats.addTitle(t);
-						
-			// actor stats
-			for (Person p : t.getPrimaryActors()) {
-				String key = p.getId();
-
-				if (!actorStatsMap.containsKey(key)) {
-					actorStatsMap.put(key, new StatRow(p.getName(), p.getUrl()));
-				}
-
-				actorStatsMap.get(key).addTitle(t);
-			}		
-
-			// director stats
-			for (Person p : t.getDirectorsOrCreators()) {
-				String key = p.getId();
-
-				if (!directorStatsMap.containsKey(key)) {
-					directorStatsMap.put(key, new StatRow(p.getName(), p.getUrl()));
-				}
-
-				directorStatsMap.get(key).addTitle(t);
-			}	 
-			
-			// genres stats
-			for (String g : t.getGenresSet()) {
-				
-				if (!genreStatsMap.containsKey(g)) {
-					genreStatsMap.put(g, new StatRow(g));
-				}
-				
-				genreStatsMap.get(g).addTitle(t);
+		// select the rows that occurred most often, in order; only those are copied
+		actorStats = top(aggregator.actorStatsMap.values(), limits.getActors(), copy);		
+		directorStats = top(aggregator.directorStatsMap.values(), limits.getDirectors(), copy);		
+		genreStats = top(aggregator.genreStatsList, limits.getGenres(), copy);		
+	}
+	
+	private static List<StatRow> top(List<StatRow> rows, int k, boolean copy) {
+		List<StatRow> top = TopRows.select(rows, k);
+		if (copy) {
+			for (int i = 0; i < top.size(); i++) {
+				top.set(i, new StatRow(top.get(i)));
 			}
 		}
-
-		// sort rows by occurrence, calculate averages
-		actorStats = new ArrayList<StatRow>(actorStatsMap.values());		
-		directorStats = new ArrayList<StatRow>(directorStatsMap.values());		
-		genreStats = new ArrayList<StatRow>(genreStatsMap.values());		
-		
-		Collections.sort(actorStats);
-		Collections.sort(directorStats);
-		Collections.sort(genreStats);
+		return top;
 	}
 
+	/**
+	 * @return Whether these statistics include the indicated optional field (e.g. 'ACTORS'); 
+	 * if not, reports should not access it, as that may require it to be looked up.
+	 */
+	public boolean includes(String field) {
+		return fields.contains(TitleField.valueOf(field));
+	}
+	
 	/**
 	 * @return A list of the titles on which this analysis is based.
 	 */
@@ -129,24 +140,24 @@ public class Statistics {
 	}
 
 	/**
-	 * @return Stats for the {@code ACTORS_TO_DISPLAY} actors that were cast most often in the indicated titles.
+	 * @return Stats for the actors that were cast most often in the indicated titles (see {@link RowLimits#getActors()}).
 	 */
 	public List<StatRow> getActorStats() {
-		return actorStats.subList(0, Math.min(actorStats.size(), ACTORS_TO_DISPLAY));
+		return actorStats;
 	}
 	
 	/**
-	 * @return Stats for the {@code DIRECTORS_TO_DISPLAY} directors that directed most frequently in the indicated titles.
+	 * @return Stats for the directors that directed most frequently in the indicated titles (see {@link RowLimits#getDirectors()}).
 	 */
 	public List<StatRow> getDirectorStats() {		
-		return directorStats.subList(0, Math.min(directorStats.size(), DIRECTORS_TO_DISPLAY));
+		return directorStats;
 	}
 	
 	/**
-	 * @return Stats for the {@code GENRES_TO_DISPLAY} genres that occurred most frequently in the indicated titles.
+	 * @return Stats for the genres that occurred most frequently in the indicated titles (see {@link RowLimits#getGenres()}).
 	 */
 	public List<StatRow> getGenreStats() {		
-		return genreStats.subList(0, Math.min(genreStats.size(), GENRES_TO_DISPLAY));
+		return genreStats;
 	}
 
 	/**
@@ -0,0 +1,196 @@
+package com.bramvanrensbergen.imdb_demo.domain.statistics;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+
+import com.bramvanrensbergen.imdb_demo.domain.Episode;
+import com.bramvanrensbergen.imdb_demo.domain.Movie;
+import com.bramvanrensbergen.imdb_demo.domain.Person;
+import com.bramvanrensbergen.imdb_demo.domain.Registry;
+import com.bramvanrensbergen.imdb_demo.domain.Series;
+import com.bramvanrensbergen.imdb_demo.domain.Title;
+import com.bramvanrensbergen.imdb_demo.domain.TitleField;
+
+/**
+ * Gathers statistics for titles one at a time, as they are looked up.
+ * <br>A consistent {@link Statistics} snapshot of all titles accepted so far can be taken at any moment,
+ * also while other threads are still adding titles.
+ * <br>Once all titles are accepted, {@link #finish(RowLimits)} keeps only the rows that are displayed.
+ * @author Bram Van Rensbergen
+ */
+public class StatisticsAggregator {
+
+	/**
+	 * The optional fields that statistics are gathered for; the others are never accessed, so they are not looked up either.
+	 */
+	final Set<TitleField> fields;
+
+	List<Title> analyzedTitles = new ArrayList<Title>();
+
+	StatRow globalStats = new StatRow();
+
+	/**
+	 * Stats per actor, by {@link Person#getKey()}.
+	 */
+	IntObjectMap<StatRow> actorStatsMap = new IntObjectMap<StatRow>();
+
+	/**
+	 * Stats per director, by {@link Person#getKey()}.
+	 */
+	IntObjectMap<StatRow> directorStatsMap = new IntObjectMap<StatRow>();
+
+	/**
+	 * Stats per genre, indexed by {@link Registry#genreKey(String)}; null for genres that did not occur (yet).
+	 * <br>There are only a few dozen genres, so an array holding all of them is smaller than a map.
+	 */
+	StatRow[] genreStats = new StatRow[0];
+
+	/**
+	 * The non-null elements of {@link #genreStats}, in the order the genres first occurred.
+	 */
+	List<StatRow> genreStatsList = new ArrayList<StatRow>();
+
+	int nMovies = 0;
+	int nEpisodes = 0;
+	int nSeries = 0;
+
+	/**
+	 * Whether {@link #finish(RowLimits)} was called.
+	 */
+	private boolean finished = false;
+
+	/**
+	 * Gather statistics for all fields, including actors and directors.
+	 */
+	public StatisticsAggregator() {
+		this(TitleField.ALL);
+	}
+
+	/**
+	 * @param fields The optional fields to gather statistics for; actor and director stats are left empty if not included.
+	 */
+	public StatisticsAggregator(Set<TitleField> fields) {
+		this.fields = fields;
+	}
+
+	/**
+	 * @return An aggregator that has accepted all indicated titles.
+	 */
+	static StatisticsAggregator of(List<Title> titles, Set<TitleField> fields) {
+		StatisticsAggregator aggregator = new StatisticsAggregator(fields);
+		for (Title t : titles) {
+			aggregator.accept(t);
+		}
+		return aggregator;
+	}
+
+	/**
+	 * Add the indicated title to the statistics.
+	 */
+	public synchronized void accept(Title t) {
+		checkNotFinished();
+		analyzedTitles.add(t);
+
+		if (t instanceof Movie) {
+			nMovies++;
+		} else if (t instanceof Episode) {
+			nEpisodes++;
+		} else if (t instanceof Series) {
+			nSeries++;
+		}
+
+		globalStats.addTitle(t);
+
+		if (fields.contains(TitleField.ACTORS)) {
+			addActorStats(t);
+		}
+
+		if (fields.contains(TitleField.DIRECTORS)) {
+			addDirectorStats(t);
+		}
+
+		addGenreStats(t);
+	}
+
+	private void addActorStats(Title t) {
+		for (Person p : t.getPrimaryActors()) {
+			StatRow row = actorStatsMap.get(p.getKey());
+
+			if (row == null) {
+				row = new StatRow(p.getName(), p.getUrl());
+				actorStatsMap.put(p.getKey(), row);
+			}
+
+			row.addTitle(t);
+		}
+	}
+
+	private void addDirectorStats(Title t) {
+		for (Person p : t.getDirectorsOrCreators()) {
+			StatRow row = directorStatsMap.get(p.getKey());
+
+			if (row == null) {
+				row = new StatRow(p.getName(), p.getUrl());
+				directorStatsMap.put(p.getKey(), row);
+			}
+
+			row.addTitle(t);
+		}
+	}
+
+	private void addGenreStats(Title t) {
+		for (int key : t.getGenreKeys()) {
+			if (key >= genreStats.length) {
+				genreStats = Arrays.copyOf(genreStats, Registry.genreCount());
+			}
+
+			StatRow row = genreStats[key];
+
+			if (row == null) {
+				row = new StatRow(Registry.genre(key));
+				genreStats[key] = row;
+				genreStatsList.add(row);
+			}
+
+			row.addTitle(t);
+		}
+	}
+
+	/**
+	 * @return Statistics for all titles accepted so far, keeping the indicated number of rows; unaffected by titles accepted later on.
+	 */
+	public synchronized Statistics snapshot(RowLimits limits) {
+		checkNotFinished();
+		return new Statistics(this, limits, true);
+	}
+
+	/**
+	 * @return Statistics for all titles accepted, keeping the indicated number of rows.
+	 * <br>Afterwards, this aggregator no longer holds the other rows, so they can be freed, and accepts no more titles.
+	 */
+	public synchronized Statistics finish(RowLimits limits) {
+		checkNotFinished();
+		Statistics statistics = new Statistics(this, limits, false);
+		finished = true;
+		actorStatsMap = null;
+		directorStatsMap = null;
+		genreStats = null;
+		genreStatsList = null;
+		return statistics;
+	}
+
+	private void checkNotFinished() {
+		if (finished) {
+			throw new IllegalStateException("Statistics were already finished");
+		}
+	}
+
+	/**
+	 * @return Number of titles accepted so far.
+	 */
+	public synchronized int size() {
+		return analyzedTitles.size();
+	}
+}
@@ -0,0 +1,104 @@
+package com.bramvanrensbergen.imdb_demo.domain.statistics;
+
+import com.bramvanrensbergen.imdb_demo.domain.Registry;
+import com.bramvanrensbergen.imdb_demo.domain.TitleColumns;
+import com.bramvanrensbergen.imdb_demo.domain.TitleType;
+
+/**
+ * Conditions a title should meet to be included in a {@link TitleQuery}; conditions that are not set (null) match all titles.
+ * <br>Titles lacking the value a condition is about (e.g. a year of release) never match it.
+ * @author Bram Van Rensbergen
+ */
+public final class TitleFilter {
+
+	/**
+	 * Matches all titles.
+	 */
+	public static final TitleFilter ALL = new TitleFilter(null, null, null, null, null);
+
+	private final Integer fromYear;
+
+	private final Integer toYear;
+
+	private final String genre;
+
+	/**
+	 * Key of {@link #genre}, or -1 if no title has that genre.
+	 */
+	private final int genreKey;
+
+	private final Double minRating;
+
+	private final TitleType type;
+
+	/**
+	 * @param fromYear Earliest year of release (inclusive), or null.
+	 * @param toYear Latest year of release (inclusive), or null.
+	 * @param genre Genre the title should have, as listed on IMDb (e.g. 'Sci-Fi'), or null.
+	 * @param minRating Lowest IMDb rating (inclusive), or null.
+	 * @param type Type of title, or null.
+	 */
+	public TitleFilter(Integer fromYear, Integer toYear, String genre, Double minRating, TitleType type) {
+		this.fromYear = fromYear;
+		this.toYear = toYear;
+		this.genre = genre;
+		this.genreKey = genre == null ? -1 : Registry.findGenreKey(genre);
+		this.minRating = minRating;
+		this.type = type;
+	}
+
+	/**
+	 * @return Whether the indicated title of the columns meets all conditions.
+	 */
+	boolean matches(TitleColumns columns, int title) {
+		if (type != null && columns.getType(title) != type) {
+			return false;
+		}
+
+		if (minRating != null && (!columns.hasRating(title) || columns.getRating(title) < minRating)) {
+			return false;
+		}
+
+		if (fromYear != null || toYear != null) {
+			if (!columns.hasYearOfRelease(title)) {
+				return false;
+			}
+			int year = columns.getYearOfRelease(title);
+			if (fromYear != null && year < fromYear || toYear != null && year > toYear) {
+				return false;
+			}
+		}
+
+		return genre == null || hasGenre(columns, title);
+	}
+
+	private boolean hasGenre(TitleColumns columns, int title) {
+		TitleColumns.Adjacency genres = columns.getGenres();
+		for (int i = genres.start(title); i < genres.end(title); i++) {
+			if (genres.key(i) == genreKey) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	public Integer getFromYear() {
+		return fromYear;
+	}
+
+	public Integer getToYear() {
+		return toYear;
+	}
+
+	public String getGenre() {
+		return genre;
+	}
+
+	public Double getMinRating() {
+		return minRating;
+	}
+
+	public TitleType getType() {
+		return type;
+	}
+}
@@ -0,0 +1,151 @@
+package com.bramvanrensbergen.imdb_demo.domain.statistics;
+
+import java.util.Collections;
+import java.util.List;
+
+import com.bramvanrensbergen.imdb_demo.domain.Person;
+import com.bramvanrensbergen.imdb_demo.domain.Registry;
+import com.bramvanrensbergen.imdb_demo.domain.TitleColumns;
+import com.bramvanrensbergen.imdb_demo.domain.TitleType;
+
+/**
+ * Ad-hoc query over a set of titles held in {@link TitleColumns}: selects the titles that match a {@link TitleFilter},
+ * and optionally groups them (see {@link GroupBy}).
+ * <br>The matched titles, and each group, are aggregated into a {@link StatRow}, so they have the same metrics as the rows
+ * of the statistics page (number of titles, average rating, average user rating, average runtime, and so on).
+ * The query is a single pass over the primitive columns, so it takes milliseconds even for large imports.
+ * @author Bram Van Rensbergen
+ */
+public final class TitleQuery {
+
+	private static final TitleType[] TYPES = TitleType.values();
+
+	/**
+	 * Outcome of a query.
+	 */
+	public static final class Result {
+
+		private final StatRow matched;
+
+		private final List<StatRow> groups;
+
+		private Result(StatRow matched, List<StatRow> groups) {
+			this.matched = matched;
+			this.groups = groups;
+		}
+
+		/**
+		 * @return Aggregate of all titles that matched the filter.
+		 */
+		public StatRow getMatched() {
+			return matched;
+		}
+
+		/**
+		 * @return Aggregate per group of matched titles, for the groups with most titles, sorted by number of titles;
+		 * 	empty if the titles were not grouped.
+		 */
+		public List<StatRow> getGroups() {
+			return groups;
+		}
+	}
+
+	private final TitleFilter filter;
+
+	private final GroupBy groupBy;
+
+	private final int limit;
+
+	/**
+	 * @param groupBy What to group the matched titles by, or null to not group them.
+	 * @param limit Maximum number of groups to return; those with most titles are kept.
+	 * @throws IllegalArgumentException if the limit is negative, or above {@link RowLimits#MAX_ROWS}.
+	 */
+	public TitleQuery(TitleFilter filter, GroupBy groupBy, int limit) {
+		if (limit < 0 || limit > RowLimits.MAX_ROWS) {
+			throw new IllegalArgumentException("Number of groups should be between 0 and " + RowLimits.MAX_ROWS + ", not " + limit);
+		}
+
+		this.filter = filter;
+		this.groupBy = groupBy;
+		this.limit = limit;
+	}
+
+	/**
+	 * @return The result of this query over the titles of the indicated columns.
+	 */
+	public Result run(TitleColumns columns) {
+		StatRow matched = new StatRow();
+		IntObjectMap<StatRow> groups = new IntObjectMap<StatRow>();
+
+		for (int i = 0; i < columns.size(); i++) {
+			if (!filter.matches(columns, i)) {
+				continue;
+			}
+
+			matched.addTitle(columns, i);
+
+			if (groupBy == null) {
+				continue;
+			}
+
+			switch (groupBy) {
+			case GENRE:
+				addToGroups(groups, columns.getGenres(), columns, i);
+				break;
+			case DIRECTOR:
+				addToGroups(groups, columns.getDirectors(), columns, i);
+				break;
+			case ACTOR:
+				addToGroups(groups, columns.getActors(), columns, i);
+				break;
+			case DECADE:
+				if (columns.hasYearOfRelease(i)) {
+					group(groups, columns.getYearOfRelease(i) / 10 * 10, columns).addTitle(columns, i);
+				}
+				break;
+			case TYPE:
+				group(groups, columns.getType(i).ordinal(), columns).addTitle(columns, i);
+				break;
+			}
+		}
+
+		List<StatRow> top = groupBy == null ? Collections.<StatRow>emptyList() : TopRows.select(groups.values(), limit);
+		return new Result(matched, top);
+	}
+
+	private void addToGroups(IntObjectMap<StatRow> groups, TitleColumns.Adjacency keys, TitleColumns columns, int title) {
+		for (int j = keys.start(title); j < keys.end(title); j++) {
+			group(groups, keys.key(j), columns).addTitle(columns, title);
+		}
+	}
+
+	/**
+	 * @return The group with the indicated key, which is created if it holds no titles yet.
+	 */
+	private StatRow group(IntObjectMap<StatRow> groups, int key, TitleColumns columns) {
+		StatRow row = groups.get(key);
+
+		if (row == null) {
+			row = createGroup(key, columns);
+			groups.put(key, row);
+		}
+
+		return row;
+	}
+
+	private StatRow createGroup(int key, TitleColumns columns) {
+		switch (groupBy) {
+		case GENRE:
+			return new StatRow(Registry.genre(key));
+		case DIRECTOR:
+		case ACTOR:
+			Person p = columns.getPerson(key);
+			return new StatRow(p.getName(), p.getUrl());
+		case DECADE:
+			return new StatRow(key + "s");
+		default:
+			return new StatRow(TYPES[key].name().toLowerCase());
+		}
+	}
+}
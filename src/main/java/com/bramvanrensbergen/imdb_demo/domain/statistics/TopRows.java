@@ -0,0 +1,106 @@
+package com.bramvanrensbergen.imdb_demo.domain.statistics;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Selects the rows that occurred most often, without sorting all of them: a heap holds the best rows found so far,
+ * with the worst of those on top, to be replaced by any better row found later on.
+ * <br>Rows that occurred equally often keep their order, so the result is the same as the start of a stable sort of all rows.
+ * @author Bram Van Rensbergen
+ */
+final class TopRows {
+
+	private TopRows() {
+	}
+
+	/**
+	 * @param rows Rows to select from; accessed by position, so should support random access.
+	 * @return The (at most) k rows that occurred most often, sorted by occurrence (see {@link StatRow#compareTo(StatRow)}).
+	 */
+	static List<StatRow> select(List<StatRow> rows, int k) {
+		int[] occurrences = new int[rows.size()];
+		for (int i = 0; i < occurrences.length; i++) {
+			occurrences[i] = rows.get(i).getNbOfOccurrences();
+		}
+
+		int[] top = select(occurrences, occurrences.length, k);
+		List<StatRow> result = new ArrayList<StatRow>(top.length);
+		for (int i : top) {
+			result.add(rows.get(i));
+		}
+		return result;
+	}
+
+	/**
+	 * @param occurrences How often each row occurred.
+	 * @param n Number of rows; only the first n occurrences are used.
+	 * @return Positions of the (at most) k rows that occurred most often, sorted by occurrence.
+	 */
+	static int[] select(int[] occurrences, int n, int k) {
+		int size = Math.min(k, n);
+
+		// positions of the best rows so far
+		int[] heap = new int[size];
+		int filled = 0;
+		for (int i = 0; i < n; i++) {
+			if (filled < size) {
+				heap[filled] = i;
+				siftUp(occurrences, heap, filled++);
+			} else if (size > 0 && ranksBefore(occurrences, i, heap[0])) {
+				heap[0] = i;
+				siftDown(occurrences, heap, 0, filled);
+			}
+		}
+
+		// taking the worst row off the heap each time fills the result from the back
+		int[] top = new int[filled];
+		for (int last = filled - 1; last >= 0; last--) {
+			top[last] = heap[0];
+			heap[0] = heap[last];
+			siftDown(occurrences, heap, 0, last);
+		}
+		return top;
+	}
+
+	/**
+	 * @return Whether the row at position i ranks before the row at position j: it occurred more often,
+	 * 	or equally often and comes first.
+	 */
+	private static boolean ranksBefore(int[] occurrences, int i, int j) {
+		int a = occurrences[i];
+		int b = occurrences[j];
+		return a > b || a == b && i < j;
+	}
+
+	private static void siftUp(int[] occurrences, int[] heap, int pos) {
+		while (pos > 0) {
+			int parent = (pos - 1) / 2;
+			if (!ranksBefore(occurrences, heap[parent], heap[pos])) {
+				return;
+			}
+			swap(heap, parent, pos);
+			pos = parent;
+		}
+	}
+
+	private static void siftDown(int[] occurrences, int[] heap, int pos, int size) {
+		while (2 * pos + 1 < size) {
+			int worst = 2 * pos + 1;
+			if (worst + 1 < size && ranksBefore(occurrences, heap[worst], heap[worst + 1])) {
+				worst++;
+			}
+			if (!ranksBefore(occurrences, heap[pos], heap[worst])) {
+				return;
+			}
+			swap(heap, pos, worst);
+			pos = worst;
+		}
+	}
+
+	private static void swap(int[] heap, int i, int j) {
+		int tmp = heap[i];
+		heap[i] = heap[j];
+		heap[j] = tmp;
+	}
+}
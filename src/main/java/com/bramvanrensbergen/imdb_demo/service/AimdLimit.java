@@ -0,0 +1,102 @@
+package com.bramvanrensbergen.imdb_demo.service;
+
+/**
+ * Limits the number of concurrent requests to a server, adapting the limit to how the server copes (additive increase,
+ * multiplicative decrease): every request that completes in time raises the limit by about one per round of requests,
+ * while a request that is throttled or times out halves it, and one that completes slowly lowers it by a quarter.
+ * <br>The limit is decreased at most once per round: requests that started before the last decrease do not count again.
+ * @author Bram Van Rensbergen
+ */
+public final class AimdLimit {
+
+	/**
+	 * How a request turned out, as far as the load of the server is concerned.
+	 */
+	public enum Outcome {
+		/** The request completed; it counts as a sign of overload if it took longer than the target latency. */
+		COMPLETED,
+		/** The server throttled the request, or did not respond in time. */
+		OVERLOADED,
+		/** The request failed for reasons unrelated to load (e.g. the page does not exist); the limit is not changed. */
+		IGNORED
+	}
+
+	private static final double SLOW_DECREASE = 0.75;
+	private static final double OVERLOAD_DECREASE = 0.5;
+
+	private final int min;
+
+	private final int max;
+
+	private final long targetLatencyNanos;
+
+	private double limit;
+
+	private int inFlight;
+
+	private long decreasedAt;
+
+	/**
+	 * @param min Lowest limit, at least one.
+	 * @param max Highest limit, which is also the initial one.
+	 * @param targetLatencyNanos Requests taking longer than this are taken as a sign the server is overloaded.
+	 */
+	public AimdLimit(int min, int max, long targetLatencyNanos) {
+		if (min < 1 || max < min) {
+			throw new IllegalArgumentException("expected 1 <= min <= max, got " + min + " and " + max);
+		}
+		this.min = min;
+		this.max = max;
+		this.targetLatencyNanos = targetLatencyNanos;
+		this.limit = max;
+		this.decreasedAt = System.nanoTime();
+	}
+
+	/**
+	 * Wait until fewer requests are in flight than the current limit, and count another one.
+	 * @return The start time of the request (as by {@link System#nanoTime()}), to pass to {@link #release(long, Outcome)}.
+	 * @throws InterruptedException If the thread was interrupted while waiting.
+	 */
+	public synchronized long acquire() throws InterruptedException {
+		while (inFlight >= (int) limit) {
+			wait();
+		}
+		inFlight++;
+		return System.nanoTime();
+	}
+
+	/**
+	 * Count a request as no longer in flight, and adapt the limit to its outcome.
+	 * @param startedAt As returned by {@link #acquire()}.
+	 */
+	public synchronized void release(long startedAt, Outcome outcome) {
+		inFlight--;
+
+		long now = System.nanoTime();
+		boolean slow = outcome == Outcome.COMPLETED && now - startedAt > targetLatencyNanos;
+		if (outcome == Outcome.OVERLOADED || slow) {
+			if (startedAt - decreasedAt > 0) {
+				limit = Math.max(min, limit * (slow ? SLOW_DECREASE : OVERLOAD_DECREASE));
+				decreasedAt = now;
+			}
+		} else if (outcome == Outcome.COMPLETED) {
+			limit = Math.min(max, limit + 1 / limit);
+		}
+
+		notifyAll();
+	}
+
+	/**
+	 * @return The current limit, rounded down.
+	 */
+	public synchronized int getLimit() {
+		return (int) limit;
+	}
+
+	/**
+	 * @return The number of requests in flight.
+	 */
+	public synchronized int getInFlight() {
+		return inFlight;
+	}
+}
@@ -0,0 +1,207 @@
+package com.bramvanrensbergen.imdb_demo.service;
+
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.annotation.Resource;
+
+import org.jsoup.Jsoup;
+import org.jsoup.nodes.Document;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.slf4j.MDC;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+/**
+ * Runs page downloads and title parsing on a bounded pool of worker threads.
+ * <br>Downloads go through the {@link FetchScheduler}, which limits the rate and number of simultaneous requests to a single host
+ * separately from the pool size, so a burst of lookups cannot flood IMDb.
+ * @author Bram Van Rensbergen
+ */
+@Component
+public class FetchEngine {
+
+	private static final Logger log = LoggerFactory.getLogger(FetchEngine.class);
+
+	/**
+	 * A unit of work executed on a worker thread; a null result means the input should be skipped.
+	 */
+	public interface Task<I, O> {
+		O apply(I input) throws IOException;
+	}
+
+	/**
+	 * Gets notified of every input that is submitted, and of the result of every completed input, in input order.
+	 * <br>All calls are made from the thread that called {@link FetchEngine#processInOrder(Iterable, Task, Listener)}.
+	 */
+	public interface Listener<O> {
+		void submitted();
+
+		/**
+		 * @param result The result of the task, or null if the input was skipped or its task failed.
+		 */
+		void completed(O result);
+	}
+
+	@Value("${imdb.fetch.threads:16}")
+	private int threads;
+
+	@Resource
+	private FetchScheduler scheduler;
+
+	@Resource
+	private MeterRegistry meterRegistry;
+
+	/**
+	 * Time taken to parse pages into a Document.
+	 */
+	private Timer parseTimer;
+
+	private ExecutorService workers;
+
+	@PostConstruct
+	public void start() {
+		parseTimer = Timer.builder("imdb.parse")
+				.description("Time taken to extract the fields of a page")
+				.tag("extractor", "jsoup")
+				.register(meterRegistry);
+
+		final AtomicInteger threadCount = new AtomicInteger();
+		workers = Executors.newFixedThreadPool(threads, new ThreadFactory() {
+			@Override
+			public Thread newThread(Runnable r) {
+				Thread t = new Thread(r, "imdb-fetch-" + threadCount.incrementAndGet());
+				t.setDaemon(true);
+				return t;
+			}
+		});
+	}
+
+	@PreDestroy
+	public void stop() {
+		workers.shutdownNow();
+	}
+
+	/**
+	 * Download and parse the page at the indicated url, as scheduled by the {@link FetchScheduler}.
+	 * @throws IOException If the page could not be downloaded, or the thread was interrupted while waiting for its turn.
+	 */
+	public Document fetch(final String url) throws IOException {
+		return fetch(url, new PageFetcher.PageReader<Document>() {
+			@Override
+			public Document read(InputStream page, String charset) throws IOException {
+				long start = System.nanoTime();
+				try {
+					return Jsoup.parse(page, charset, url);
+				} finally {
+					parseTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+				}
+			}
+		});
+	}
+
+	/**
+	 * Download the page at the indicated url with the {@link PageFetcher}, and hand it to {@code reader} while it is being received;
+	 * as scheduled by the {@link FetchScheduler} (which retries transient failures).
+	 * @return The result of the reader.
+	 * @throws FileNotFoundException If there is no page at the url.
+	 * @throws IOException If the page could not be downloaded or read, or the thread was interrupted while waiting for its turn.
+	 */
+	public <T> T fetch(String url, PageFetcher.PageReader<T> reader) throws IOException {
+		return scheduler.fetch(url, reader);
+	}
+
+	/**
+	 * Apply {@code task} to every input on the worker pool, and return the results in input order.
+	 * <br>At most twice the pool size of inputs are in flight at any time, so {@code inputs} can be a lazily
+	 * produced sequence of any length. Inputs for which the task returns null or throws an IOException are skipped.
+	 */
+	public <I, O> List<O> processInOrder(Iterable<I> inputs, Task<I, O> task) {
+		return processInOrder(inputs, task, null);
+	}
+
+	/**
+	 * Same as {@link #processInOrder(Iterable, Task)}, but also notifies {@code listener} of every submitted and completed input.
+	 * @param listener Listener to notify, or null.
+	 */
+	public <I, O> List<O> processInOrder(Iterable<I> inputs, final Task<I, O> task, Listener<? super O> listener) {
+		List<O> results = new ArrayList<O>();
+		Deque<Future<O>> inFlight = new ArrayDeque<Future<O>>();
+		int window = threads * 2;
+		// tasks log in the context of the caller (e.g. the id of the import)
+		final Map<String, String> context = MDC.getCopyOfContextMap();
+
+		Iterator<I> it = inputs.iterator();
+		while (it.hasNext()) {
+			final I input = it.next();
+			if (listener != null) {
+				listener.submitted();
+			}
+
+			inFlight.addLast(workers.submit(new Callable<O>() {
+				@Override
+				public O call() throws Exception {
+					if (context == null) {
+						return task.apply(input);
+					}
+					MDC.setContextMap(context);
+					try {
+						return task.apply(input);
+					} finally {
+						MDC.clear();
+					}
+				}
+			}));
+
+			if (inFlight.size() >= window) {
+				collect(inFlight.removeFirst(), results, listener);
+			}
+		}
+
+		while (!inFlight.isEmpty()) {
+			collect(inFlight.removeFirst(), results, listener);
+		}
+
+		return results;
+	}
+
+	private <O> void collect(Future<O> future, List<O> results, Listener<? super O> listener) {
+		O result = null;
+		try {
+			result = future.get();
+			if (result != null) {
+				results.add(result);
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			future.cancel(true);
+		} catch (ExecutionException e) {
+			log.warn("Could not complete lookup", e.getCause());
+		}
+
+		if (listener != null) {
+			listener.completed(result);
+		}
+	}
+}
@@ -0,0 +1,266 @@
+package com.bramvanrensbergen.imdb_demo.service;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.net.MalformedURLException;
+import java.net.SocketException;
+import java.net.SocketTimeoutException;
+import java.net.URL;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.ToDoubleFunction;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.Resource;
+
+import org.apache.http.NoHttpResponseException;
+import org.apache.http.conn.ConnectTimeoutException;
+import org.jsoup.HttpStatusException;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+/**
+ * Schedules all requests made through the {@link PageFetcher}, so parallel lookups cannot get us throttled:
+ * <ul>
+ * <li>requests to a host are spread out by a {@link TokenBucket}, of a fixed rate and burst;</li>
+ * <li>the number of concurrent requests to a host is limited by an {@link AimdLimit}, which backs off when the host throttles us,
+ * 	times out, or responds slowly, and gradually raises the limit again (up to the maximum number of connections per host)
+ * 	while it keeps up;</li>
+ * <li>requests that fail for transient reasons (throttling, server errors, timeouts, dropped connections) are retried after an
+ * 	exponentially growing, jittered delay; or after the delay the server asked for, if longer.</li>
+ * </ul>
+ * Every attempt is timed ('imdb.fetch', by result), and the requests in flight and concurrency limit of every host are exposed as gauges.
+ * @author Bram Van Rensbergen
+ */
+@Component
+public class FetchScheduler {
+
+	/**
+	 * Request rate and concurrency limit of a single host.
+	 */
+	private final class Host {
+		private final TokenBucket rate = new TokenBucket(requestsPerSecond, burst);
+
+		private final AimdLimit concurrency = new AimdLimit(1, maxConnectionsPerHost, TimeUnit.MILLISECONDS.toNanos(targetLatencyMillis));
+
+		private void registerGauges(String name) {
+			Gauge.builder("imdb.fetch.in.flight", concurrency, new ToDoubleFunction<AimdLimit>() {
+				@Override
+				public double applyAsDouble(AimdLimit limit) {
+					return limit.getInFlight();
+				}
+			}).description("Requests to the host in flight").tag("host", name).register(meterRegistry);
+
+			Gauge.builder("imdb.fetch.concurrency.limit", concurrency, new ToDoubleFunction<AimdLimit>() {
+				@Override
+				public double applyAsDouble(AimdLimit limit) {
+					return limit.getLimit();
+				}
+			}).description("Current limit on concurrent requests to the host").tag("host", name).register(meterRegistry);
+		}
+	}
+
+	@Value("${imdb.fetch.requestsPerSecond:8}")
+	private double requestsPerSecond;
+
+	@Value("${imdb.fetch.burst:8}")
+	private int burst;
+
+	@Value("${imdb.fetch.maxConnectionsPerHost:8}")
+	private int maxConnectionsPerHost;
+
+	/**
+	 * Requests taking longer than this lower the concurrency limit of their host.
+	 */
+	@Value("${imdb.fetch.targetLatencyMillis:3000}")
+	private long targetLatencyMillis;
+
+	@Value("${imdb.fetch.maxAttempts:4}")
+	private int maxAttempts;
+
+	@Value("${imdb.fetch.backoffMillis:500}")
+	private long backoffMillis;
+
+	@Value("${imdb.fetch.maxBackoffMillis:30000}")
+	private long maxBackoffMillis;
+
+	@Resource
+	private PageFetcher pageFetcher;
+
+	@Resource
+	private MeterRegistry meterRegistry;
+
+	private final ConcurrentMap<String, Host> hosts = new ConcurrentHashMap<String, Host>();
+
+	private final AtomicLong retries = new AtomicLong();
+
+	private final AtomicLong throttled = new AtomicLong();
+
+	/**
+	 * Time taken by every attempt to fetch (and read) a page, by result.
+	 */
+	private Timer completedTimer;
+
+	private Timer throttledTimer;
+
+	private Timer failedTimer;
+
+	@PostConstruct
+	public void registerMeters() {
+		completedTimer = fetchTimer("completed");
+		throttledTimer = fetchTimer("throttled");
+		failedTimer = fetchTimer("failed");
+
+		FunctionCounter.builder("imdb.fetch.retries", retries, new ToDoubleFunction<AtomicLong>() {
+			@Override
+			public double applyAsDouble(AtomicLong count) {
+				return count.get();
+			}
+		}).description("Requests retried after a transient failure").register(meterRegistry);
+	}
+
+	/**
+	 * Download the page at the indicated url with the {@link PageFetcher}, and hand it to {@code reader} while it is being received;
+	 * waiting for the rate and concurrency limits of its host, and retrying transient failures.
+	 * <br>The reader may be called again for a retry if it fails with an IOException, e.g. because the connection timed out.
+	 * @return The result of the reader.
+	 * @throws IOException If the page could not be downloaded or read (on the last attempt, for transient failures),
+	 * 	or the thread was interrupted while waiting.
+	 */
+	public <T> T fetch(String url, PageFetcher.PageReader<T> reader) throws IOException {
+		Host host = hostFor(url);
+		for (int attempt = 1; ; attempt++) {
+			long startedAt;
+			try {
+				host.rate.acquire();
+				startedAt = host.concurrency.acquire();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new InterruptedIOException("interrupted while waiting to fetch " + url);
+			}
+
+			AimdLimit.Outcome outcome = AimdLimit.Outcome.IGNORED;
+			long delay;
+			try {
+				T result = pageFetcher.fetch(url, reader);
+				outcome = AimdLimit.Outcome.COMPLETED;
+				return result;
+			} catch (IOException e) {
+				if (isOverload(e)) {
+					outcome = AimdLimit.Outcome.OVERLOADED;
+					throttled.incrementAndGet();
+				}
+				if (attempt >= maxAttempts || !isTransient(e)) {
+					throw e;
+				}
+				delay = backoffMillis(attempt, e);
+			} finally {
+				host.concurrency.release(startedAt, outcome);
+				Timer timer = outcome == AimdLimit.Outcome.COMPLETED ? completedTimer
+						: outcome == AimdLimit.Outcome.OVERLOADED ? throttledTimer : failedTimer;
+				timer.record(System.nanoTime() - startedAt, TimeUnit.NANOSECONDS);
+			}
+
+			retries.incrementAndGet();
+			try {
+				Thread.sleep(delay);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new InterruptedIOException("interrupted while waiting to retry " + url);
+			}
+		}
+	}
+
+	/**
+	 * @return Number of requests that were retried, counting every retry.
+	 */
+	public long getRetries() {
+		return retries.get();
+	}
+
+	/**
+	 * @return Number of requests that were throttled or timed out.
+	 */
+	public long getThrottled() {
+		return throttled.get();
+	}
+
+	/**
+	 * @return The current concurrency limit of the indicated host; the maximum if no requests were made to it yet.
+	 */
+	public int getConcurrencyLimit(String host) {
+		Host h = hosts.get(host);
+		return h == null ? maxConnectionsPerHost : h.concurrency.getLimit();
+	}
+
+	/**
+	 * Delay before the indicated retry: the base delay doubled for every earlier attempt (up to a maximum), of which a random
+	 * half is taken off; so retries of requests that failed together are spread out. A longer delay asked for by the server is kept.
+	 * @param attempt The attempt that failed, counting from one.
+	 */
+	private long backoffMillis(int attempt, IOException failure) {
+		long ceiling = Math.min(maxBackoffMillis, backoffMillis << Math.min(attempt - 1, 30));
+		long delay = ceiling / 2 + ThreadLocalRandom.current().nextLong(ceiling / 2 + 1);
+		if (failure instanceof ThrottledException) {
+			delay = Math.max(delay, Math.min(maxBackoffMillis, ((ThrottledException) failure).getRetryAfterMillis()));
+		}
+		return delay;
+	}
+
+	/**
+	 * @return Whether the request may succeed when retried: if the server was busy or failed, or the connection timed out or dropped.
+	 * 	Pages that do not exist, and other client errors, are not retried.
+	 */
+	private static boolean isTransient(IOException e) {
+		if (Thread.currentThread().isInterrupted()) {
+			return false;
+		} else if (e instanceof HttpStatusException) {
+			int status = ((HttpStatusException) e).getStatusCode();
+			return status == 429 || status >= 500;
+		}
+		return e instanceof SocketTimeoutException || e instanceof ConnectTimeoutException
+				|| e instanceof SocketException || e instanceof NoHttpResponseException;
+	}
+
+	/**
+	 * @return Whether the failure indicates the server cannot keep up: it throttled the request, or did not respond in time.
+	 */
+	private static boolean isOverload(IOException e) {
+		return e instanceof ThrottledException || e instanceof SocketTimeoutException || e instanceof ConnectTimeoutException;
+	}
+
+	private Host hostFor(String url) {
+		String name;
+		try {
+			name = new URL(url).getHost();
+		} catch (MalformedURLException e) {
+			name = "";
+		}
+
+		Host host = hosts.get(name);
+		if (host == null) {
+			Host created = new Host();
+			host = hosts.putIfAbsent(name, created);
+			if (host == null) {
+				created.registerGauges(name);
+				host = created;
+			}
+		}
+		return host;
+	}
+
+	private Timer fetchTimer(String result) {
+		return Timer.builder("imdb.fetch")
+				.description("Time taken to fetch and read a page, per attempt")
+				.tag("result", result)
+				.register(meterRegistry);
+	}
+}
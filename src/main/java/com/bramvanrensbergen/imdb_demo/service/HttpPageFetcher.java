@@ -0,0 +1,138 @@
+package com.bramvanrensbergen.imdb_demo.service;
+
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.Charset;
+import java.util.concurrent.TimeUnit;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+
+import org.apache.http.Header;
+import org.apache.http.HttpEntity;
+import org.apache.http.client.config.RequestConfig;
+import org.apache.http.client.methods.CloseableHttpResponse;
+import org.apache.http.client.methods.HttpGet;
+import org.apache.http.entity.ContentType;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.impl.client.HttpClients;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
+import org.jsoup.HttpStatusException;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+/**
+ * Downloads pages over a pool of keep-alive connections, asking for gzip-compressed responses.
+ * <br>Once a reader is done with a page, the rest of it is skipped if that is small enough, so the connection can be reused;
+ * larger remainders are not worth downloading, and their connection is closed instead.
+ * @author Bram Van Rensbergen
+ */
+@Component
+@ConditionalOnProperty(name = "imdb.fetch.source", havingValue = "http", matchIfMissing = true)
+public class HttpPageFetcher implements PageFetcher {
+
+	@Value("${imdb.fetch.connectTimeoutMillis:5000}")
+	private int connectTimeoutMillis;
+
+	@Value("${imdb.fetch.readTimeoutMillis:15000}")
+	private int readTimeoutMillis;
+
+	@Value("${imdb.fetch.maxConnectionsPerHost:8}")
+	private int maxConnectionsPerHost;
+
+	@Value("${imdb.fetch.maxConnections:32}")
+	private int maxConnections;
+
+	@Value("${imdb.fetch.idleConnectionSeconds:30}")
+	private long idleConnectionSeconds;
+
+	/**
+	 * The largest remainder of a page that is skipped to keep its connection alive.
+	 */
+	@Value("${imdb.fetch.maxSkippedBytes:262144}")
+	private long maxSkippedBytes;
+
+	private CloseableHttpClient client;
+
+	@PostConstruct
+	public void start() {
+		PoolingHttpClientConnectionManager connections = new PoolingHttpClientConnectionManager();
+		connections.setMaxTotal(maxConnections);
+		connections.setDefaultMaxPerRoute(maxConnectionsPerHost);
+
+		RequestConfig config = RequestConfig.custom()
+				.setConnectTimeout(connectTimeoutMillis)
+				.setSocketTimeout(readTimeoutMillis)
+				.build();
+
+		// compressed responses are requested and decompressed by default
+		client = HttpClients.custom()
+				.setConnectionManager(connections)
+				.setDefaultRequestConfig(config)
+				.evictIdleConnections(idleConnectionSeconds, TimeUnit.SECONDS)
+				.build();
+	}
+
+	@PreDestroy
+	public void stop() throws IOException {
+		client.close();
+	}
+
+	@Override
+	public <T> T fetch(String url, PageReader<T> reader) throws IOException {
+		try (CloseableHttpResponse response = client.execute(new HttpGet(url))) {
+			int status = response.getStatusLine().getStatusCode();
+			HttpEntity entity = response.getEntity();
+			if (status == 404) {
+				throw new FileNotFoundException(url);
+			} else if (status == 429 || status == 503) {
+				throw new ThrottledException(status, url, retryAfterMillis(response.getFirstHeader("Retry-After")));
+			} else if (status >= 400 || entity == null) {
+				throw new HttpStatusException("HTTP error fetching URL", status, url);
+			}
+
+			Charset charset = ContentType.getOrDefault(entity).getCharset();
+			InputStream page = entity.getContent();
+			T result = reader.read(page, charset == null ? null : charset.name());
+
+			// closing a fully read page hands its connection back to the pool; closing the response first discards it
+			if (skip(page, maxSkippedBytes)) {
+				page.close();
+			}
+			return result;
+		}
+	}
+
+	/**
+	 * @return The delay asked for by a Retry-After header in seconds, in milliseconds; or -1 if there is none, or it is an HTTP date.
+	 */
+	private static long retryAfterMillis(Header retryAfter) {
+		if (retryAfter == null) {
+			return -1;
+		}
+		try {
+			return TimeUnit.SECONDS.toMillis(Math.max(0, Long.parseLong(retryAfter.getValue().trim())));
+		} catch (NumberFormatException e) {
+			return -1;
+		}
+	}
+
+	/**
+	 * Skip the rest of the page, unless it is longer than the indicated number of bytes.
+	 * @return Whether the end of the page was reached.
+	 */
+	private static boolean skip(InputStream page, long maxBytes) throws IOException {
+		byte[] buffer = new byte[8192];
+		long skipped = 0;
+		int n;
+		while ((n = page.read(buffer)) >= 0) {
+			skipped += n;
+			if (skipped > maxBytes) {
+				return false;
+			}
+		}
+		return true;
+	}
+}
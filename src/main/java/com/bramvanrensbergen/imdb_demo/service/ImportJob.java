@@ -0,0 +1,150 @@
+package com.bramvanrensbergen.imdb_demo.service;
+
+import java.util.Set;
+
+import com.bramvanrensbergen.imdb_demo.domain.TitleColumns;
+import com.bramvanrensbergen.imdb_demo.domain.TitleField;
+import com.bramvanrensbergen.imdb_demo.domain.statistics.RowLimits;
+import com.bramvanrensbergen.imdb_demo.domain.statistics.Statistics;
+import com.bramvanrensbergen.imdb_demo.domain.statistics.StatisticsAggregator;
+
+/**
+ * An import of titles that runs in the background; see {@link ImportJobService}.
+ * @author Bram Van Rensbergen
+ */
+public class ImportJob {
+
+	public enum State {
+		QUEUED,
+		RUNNING,
+		DONE,
+		FAILED
+	}
+
+	private final String id;
+
+	private final Set<TitleField> fields;
+
+	private final StatisticsAggregator aggregator;
+
+	private final RowLimits limits;
+
+	private final ImportProgress progress;
+
+	private volatile State state = State.QUEUED;
+
+	private volatile Statistics statistics;
+
+	private volatile String error;
+
+	/**
+	 * The imported titles, column by column; built on the first query.
+	 */
+	private TitleColumns columns;
+
+	private volatile long finishedAt;
+
+	/**
+	 * @param fields The optional fields to gather statistics for.
+	 * @param limits Number of actors, directors, and genres to keep.
+	 */
+	ImportJob(String id, Set<TitleField> fields, RowLimits limits) {
+		this.id = id;
+		this.fields = fields;
+		this.aggregator = new StatisticsAggregator(fields);
+		this.limits = limits;
+		this.progress = new ImportProgress(aggregator);
+	}
+
+	public String getId() {
+		return id;
+	}
+
+	public State getState() {
+		return state;
+	}
+
+	public ImportProgress getProgress() {
+		return progress;
+	}
+
+	/**
+	 * @return Statistics for all imported titles, or null if the job has not finished (successfully) yet.
+	 */
+	public Statistics getStatistics() {
+		return statistics;
+	}
+
+	/**
+	 * @return Statistics for all titles that have been looked up so far; once the job is done, these are the final statistics.
+	 */
+	public Statistics getPartialStatistics() {
+		Statistics s = statistics;
+		if (s != null) {
+			return s;
+		}
+
+		// the aggregator can no longer take snapshots once finished, so check again while no other thread can finish it
+		synchronized (aggregator) {
+			s = statistics;
+			return s != null ? s : aggregator.snapshot(limits);
+		}
+	}
+
+	/**
+	 * @return All imported titles, column by column, for running queries (see {@link com.bramvanrensbergen.imdb_demo.domain.statistics.TitleQuery});
+	 * 	built on first access, and kept as long as the job.
+	 * @throws IllegalStateException if the job has not finished (successfully) yet.
+	 */
+	public synchronized TitleColumns getColumns() {
+		Statistics s = statistics;
+		if (s == null) {
+			throw new IllegalStateException("Import job " + id + " has not finished yet");
+		}
+
+		if (columns == null) {
+			columns = TitleColumns.of(s.getAnalyzedTitles(), fields);
+		}
+		return columns;
+	}
+
+	/**
+	 * @return Description of what went wrong, if the job failed; else, null.
+	 */
+	public String getError() {
+		return error;
+	}
+
+	/**
+	 * @return Whether the job is done, either successfully or not.
+	 */
+	public boolean isFinished() {
+		return state == State.DONE || state == State.FAILED;
+	}
+
+	long getFinishedAt() {
+		return finishedAt;
+	}
+
+	void started() {
+		state = State.RUNNING;
+	}
+
+	/**
+	 * Mark the job as done; its final statistics are those of all titles passed to its progress.
+	 * <br>Only the rows that made the limits are kept; the others are freed.
+	 */
+	void finished() {
+		synchronized (aggregator) {
+			this.statistics = aggregator.finish(limits);
+		}
+		this.finishedAt = System.currentTimeMillis();
+		this.state = State.DONE;
+	}
+
+	void failed(String error) {
+		this.error = error;
+		this.finishedAt = System.currentTimeMillis();
+		this.state = State.FAILED;
+	}
+}
@@ -0,0 +1,262 @@
+package com.bramvanrensbergen.imdb_demo.service;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Iterator;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.ToDoubleFunction;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.annotation.Resource;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.slf4j.MDC;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+import com.bramvanrensbergen.imdb_demo.domain.Title;
+
+/**
+ * Runs imports of (possibly very many) titles in the background, so the request that started them can return right away.
+ * <br>Only a limited number of jobs run at the same time, additional jobs are queued; all of them share the workers of the {@link FetchEngine}.
+ * @author Bram Van Rensbergen
+ */
+@Service
+public class ImportJobService {
+
+	private static final Logger log = LoggerFactory.getLogger(ImportJobService.class);
+
+	/**
+	 * The actual lookup performed by a job.
+	 */
+	public interface Import {
+		List<Title> run(ImportProgress progress) throws IOException;
+	}
+
+	@Value("${imdb.jobs.maxConcurrent:8}")
+	private int maxConcurrentJobs;
+
+	@Value("${imdb.jobs.retentionMinutes:60}")
+	private long retentionMinutes;
+
+	@Resource
+	private TitleLookupService titleLookupService;
+
+	@Resource
+	private MeterRegistry meterRegistry;
+
+	private final ConcurrentMap<String, ImportJob> jobs = new ConcurrentHashMap<String, ImportJob>();
+
+	private ExecutorService runner;
+
+	/**
+	 * Time taken by imports, and to build their statistics: aggregating the titles as they come in, and selecting the rows to keep.
+	 */
+	private Timer importTimer;
+
+	private Timer statisticsTimer;
+
+	@PostConstruct
+	public void start() {
+		importTimer = Timer.builder("imdb.import").description("Time taken to look up all titles of an import").register(meterRegistry);
+		statisticsTimer = Timer.builder("imdb.statistics.build")
+				.description("Time taken to build the statistics of a set of titles")
+				.tag("source", "job")
+				.register(meterRegistry);
+
+		final AtomicInteger threadCount = new AtomicInteger();
+		runner = Executors.newFixedThreadPool(maxConcurrentJobs, new ThreadFactory() {
+			@Override
+			public Thread newThread(Runnable r) {
+				Thread t = new Thread(r, "imdb-import-" + threadCount.incrementAndGet());
+				t.setDaemon(true);
+				return t;
+			}
+		});
+
+		Gauge.builder("imdb.jobs.active", jobs, new ToDoubleFunction<ConcurrentMap<String, ImportJob>>() {
+			@Override
+			public double applyAsDouble(ConcurrentMap<String, ImportJob> jobs) {
+				int active = 0;
+				for (ImportJob job : jobs.values()) {
+					if (!job.isFinished()) {
+						active++;
+					}
+				}
+				return active;
+			}
+		}).description("Imports running or queued").register(meterRegistry);
+	}
+
+	@PreDestroy
+	public void stop() {
+		for (Runnable queued : runner.shutdownNow()) {
+			if (queued instanceof Task) {
+				((Task) queued).discard("Shut down before the import started");
+			}
+		}
+	}
+
+	/**
+	 * Start a background job looking up all titles in a set of exported IMDb ratings.
+	 * @see TitleLookupService#createTitlesFromExportedRatings(String, ImportOptions, ImportProgress)
+	 */
+	public ImportJob submitExportedRatings(final String ratings, final ImportOptions options) {
+		return submit(options, new Import() {
+			@Override
+			public List<Title> run(ImportProgress progress) throws IOException {
+				return titleLookupService.createTitlesFromExportedRatings(ratings, options, progress);
+			}
+		});
+	}
+
+	/**
+	 * Start a background job looking up all titles in a file of exported IMDb ratings, which is streamed rather than read into memory.
+	 * @param ratingsFile File holding the exported ratings in csv format; it is deleted once the job is done, 
+	 * 	or if it never runs (e.g. because it could not be queued, or the service stopped first).
+	 * @see TitleLookupService#createTitlesFromExportedRatings(InputStream, ImportOptions, ImportProgress)
+	 */
+	public ImportJob submitExportedRatings(final File ratingsFile, final ImportOptions options) {
+		return submit(options, new Import() {
+			@Override
+			public List<Title> run(ImportProgress progress) throws IOException {
+				return titleLookupService.createTitlesFromExportedRatings(new FileInputStream(ratingsFile), options, progress);
+			}
+		}, ratingsFile);
+	}
+
+	/**
+	 * Start a background job looking up the sample data.
+	 * @see TitleLookupService#createTitlesFromSampleData(ImportOptions, ImportProgress)
+	 */
+	public ImportJob submitSampleData(final ImportOptions options) {
+		return submit(options, new Import() {
+			@Override
+			public List<Title> run(ImportProgress progress) throws IOException {
+				return titleLookupService.createTitlesFromSampleData(options, progress);
+			}
+		});
+	}
+
+	/**
+	 * Start a background job running the indicated import; statistics are gathered while the titles are being looked up.
+	 * @param options Options holding the optional fields to gather statistics for, and the number of rows to keep.
+	 * @return The job, which is queued if the maximum number of concurrent jobs is already running.
+	 * @throws RejectedExecutionException if the job cannot be queued, because the service is stopping.
+	 */
+	public ImportJob submit(ImportOptions options, Import work) {
+		return submit(options, work, null);
+	}
+
+	/**
+	 * @param upload File the import reads from, to delete once the job is done or discarded; or null.
+	 */
+	private ImportJob submit(ImportOptions options, Import work, File upload) {
+		removeExpiredJobs();
+
+		ImportJob job = new ImportJob(UUID.randomUUID().toString(), options.getFields(), options.getLimits());
+		Task task = new Task(job, work, upload);
+		jobs.put(job.getId(), job);
+
+		try {
+			runner.execute(task);
+		} catch (RejectedExecutionException e) {
+			jobs.remove(job.getId());
+			task.discard("Could not be queued");
+			throw e;
+		}
+
+		return job;
+	}
+
+	/**
+	 * Runs a job; owns the file it reads from, if any, so that file is deleted whether or not the job ever runs.
+	 */
+	private final class Task implements Runnable {
+
+		private final ImportJob job;
+
+		private final Import work;
+
+		private final File upload;
+
+		Task(ImportJob job, Import work, File upload) {
+			this.job = job;
+			this.work = work;
+			this.upload = upload;
+		}
+
+		@Override
+		public void run() {
+			job.started();
+			MDC.put("import", job.getId());
+			long start = System.nanoTime();
+			try {
+				work.run(job.getProgress());
+				long imported = System.nanoTime();
+				importTimer.record(imported - start, TimeUnit.NANOSECONDS);
+				job.finished();
+				// the titles were aggregated while being imported; that time is part of the import time as well
+				statisticsTimer.record(job.getProgress().getAggregationNanos() + System.nanoTime() - imported, TimeUnit.NANOSECONDS);
+			} catch (IOException | RuntimeException e) {
+				log.error("Import failed", e);
+				job.failed(e.getMessage() == null ? e.toString() : e.getMessage());
+			} finally {
+				MDC.remove("import");
+				deleteUpload();
+			}
+		}
+
+		/**
+		 * Fail the job without running it.
+		 */
+		void discard(String reason) {
+			job.failed(reason);
+			deleteUpload();
+		}
+
+		private void deleteUpload() {
+			if (upload != null && upload.exists() && !upload.delete()) {
+				log.warn("Could not delete uploaded ratings: file={}", upload);
+			}
+		}
+	}
+
+	/**
+	 * @return The indicated job, or null if no such job exists (anymore).
+	 */
+	public ImportJob getJob(String id) {
+		return jobs.get(id);
+	}
+
+	/**
+	 * Forget about jobs that finished more than {@code imdb.jobs.retentionMinutes} ago, so their results can be garbage collected.
+	 */
+	private void removeExpiredJobs() {
+		long threshold = System.currentTimeMillis() - TimeUnit.MINUTES.toMillis(retentionMinutes);
+		Iterator<ImportJob> it = jobs.values().iterator();
+		while (it.hasNext()) {
+			ImportJob job = it.next();
+			if (job.isFinished() && job.getFinishedAt() < threshold) {
+				it.remove();
+			}
+		}
+	}
+}
@@ -0,0 +1,56 @@
+package com.bramvanrensbergen.imdb_demo.service;
+
+import java.util.Set;
+
+import com.bramvanrensbergen.imdb_demo.domain.TitleField;
+import com.bramvanrensbergen.imdb_demo.domain.statistics.RowLimits;
+
+/**
+ * Options of an import of titles: where their data may come from, which of their optional fields the resulting report needs,
+ * and how many rows it shows.
+ * @author Bram Van Rensbergen
+ */
+public final class ImportOptions {
+
+	/**
+	 * Scrape the page of each title, obtaining all of its fields, and show the default number of rows.
+	 */
+	public static final ImportOptions DEFAULT = new ImportOptions(false, TitleField.ALL);
+
+	private final boolean csvOnly;
+
+	private final Set<TitleField> fields;
+
+	private final RowLimits limits;
+
+	/**
+	 * @param csvOnly Whether to build titles from the columns of exported ratings (or from the {@link TitleCache}, if already cached),
+	 * 	rather than scraping their pages; such titles hold no cast, summary, or ids of directors.
+	 * @param fields The optional fields the report needs; these are obtained up front, the others only when they are accessed.
+	 */
+	public ImportOptions(boolean csvOnly, Set<TitleField> fields) {
+		this(csvOnly, fields, RowLimits.DEFAULT);
+	}
+
+	/**
+	 * @see #ImportOptions(boolean, Set)
+	 * @param limits Number of actors, directors, and genres the report shows; only these rows are kept once the import is done.
+	 */
+	public ImportOptions(boolean csvOnly, Set<TitleField> fields, RowLimits limits) {
+		this.csvOnly = csvOnly;
+		this.fields = fields;
+		this.limits = limits;
+	}
+
+	public boolean isCsvOnly() {
+		return csvOnly;
+	}
+
+	public Set<TitleField> getFields() {
+		return fields;
+	}
+
+	public RowLimits getLimits() {
+		return limits;
+	}
+}
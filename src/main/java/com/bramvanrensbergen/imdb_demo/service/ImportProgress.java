@@ -0,0 +1,105 @@
+package com.bramvanrensbergen.imdb_demo.service;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.bramvanrensbergen.imdb_demo.domain.Title;
+import com.bramvanrensbergen.imdb_demo.domain.statistics.StatisticsAggregator;
+
+/**
+ * Thread-safe counters tracking how far the lookup of a set of titles has progressed.
+ * <br>Optionally, every title that was looked up is passed on to a {@link StatisticsAggregator} as soon as it is available.
+ * @author Bram Van Rensbergen
+ */
+public class ImportProgress implements FetchEngine.Listener<Title> {
+
+	private volatile Integer total = null;
+
+	private final AtomicInteger submitted = new AtomicInteger();
+
+	private final AtomicInteger fetched = new AtomicInteger();
+
+	private final AtomicInteger failed = new AtomicInteger();
+
+	private final AtomicLong aggregationNanos = new AtomicLong();
+
+	private final StatisticsAggregator aggregator;
+
+	public ImportProgress() {
+		this(null);
+	}
+
+	/**
+	 * @param aggregator Aggregator to pass each title to, or null.
+	 */
+	public ImportProgress(StatisticsAggregator aggregator) {
+		this.aggregator = aggregator;
+	}
+
+	/**
+	 * @return Total number of titles to look up, or null if this is not known (yet).
+	 */
+	public Integer getTotal() {
+		return total;
+	}
+
+	void setTotal(int total) {
+		this.total = total;
+	}
+
+	/**
+	 * @return Number of titles that were handed to the fetch workers so far.
+	 */
+	public int getSubmitted() {
+		return submitted.get();
+	}
+
+	/**
+	 * @return Number of titles that were looked up successfully.
+	 */
+	public int getFetched() {
+		return fetched.get();
+	}
+
+	/**
+	 * @return Number of titles that were skipped because they were invalid or could not be looked up.
+	 */
+	public int getFailed() {
+		return failed.get();
+	}
+
+	/**
+	 * @return Number of titles still to be looked up; based on the total if that is known, else on the titles submitted so far.
+	 */
+	public int getRemaining() {
+		Integer t = total;
+		return (t != null ? t : submitted.get()) - fetched.get() - failed.get();
+	}
+
+	/**
+	 * @return Time spent passing titles to the aggregator so far, in nanoseconds.
+	 */
+	long getAggregationNanos() {
+		return aggregationNanos.get();
+	}
+
+	@Override
+	public void submitted() {
+		submitted.incrementAndGet();
+	}
+
+	@Override
+	public void completed(Title result) {
+		if (result == null) {
+			failed.incrementAndGet();
+			return;
+		}
+
+		if (aggregator != null) {
+			long start = System.nanoTime();
+			aggregator.accept(result);
+			aggregationNanos.addAndGet(System.nanoTime() - start);
+		}
+		fetched.incrementAndGet();
+	}
+}
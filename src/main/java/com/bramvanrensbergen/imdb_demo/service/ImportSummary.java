@@ -0,0 +1,83 @@
+package com.bramvanrensbergen.imdb_demo.service;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+import org.slf4j.Logger;
+
+import com.bramvanrensbergen.imdb_demo.domain.Title;
+import com.bramvanrensbergen.imdb_demo.domain.TitleType;
+
+/**
+ * Tally of the titles an import skipped, or obtained without some of their fields, by problem; updated from any worker thread.
+ * <br>Once the import is done, the tally is logged as a single line, rather than a line per title.
+ * @author Bram Van Rensbergen
+ */
+final class ImportSummary {
+
+	enum Problem {
+		INVALID_RECORD("invalid record"),
+		NO_MATCH("no match for title"),
+		DUPLICATE("duplicate"),
+		NOT_FOUND("page not found"),
+		UNREADABLE("page not obtained"),
+		UNKNOWN_TYPE("unknown type"),
+		NO_RATING("without rating"),
+		NO_RUNTIME("without runtime"),
+		NO_YEAR("without year");
+
+		private final String description;
+
+		private Problem(String description) {
+			this.description = description;
+		}
+	}
+
+	private final AtomicIntegerArray counts = new AtomicIntegerArray(Problem.values().length);
+
+	private final AtomicInteger imported = new AtomicInteger();
+
+	void add(Problem problem) {
+		counts.incrementAndGet(problem.ordinal());
+	}
+
+	/**
+	 * Count the indicated title as imported, noting any of its base fields that are missing.
+	 */
+	void imported(Title title) {
+		imported.incrementAndGet();
+		if (title.getRating() == null) {
+			add(Problem.NO_RATING);
+		}
+		if (title.getRuntimeString() == null) {
+			add(Problem.NO_RUNTIME);
+		}
+		if (title.getYearOfRelease() == null && title.getType() != TitleType.SERIES) {
+			add(Problem.NO_YEAR);
+		}
+	}
+
+	int get(Problem problem) {
+		return counts.get(problem.ordinal());
+	}
+
+	/**
+	 * Log the tally: at info level if no title had any problem, else at warn level.
+	 * @param source What was imported, e.g. 'exported ratings'.
+	 */
+	void log(Logger log, String source) {
+		StringBuilder problems = new StringBuilder();
+		for (Problem problem : Problem.values()) {
+			int count = get(problem);
+			if (count > 0) {
+				problems.append(problems.length() == 0 ? "" : ", ").append(problem.description).append('=').append(count);
+			}
+		}
+
+		if (problems.length() == 0) {
+			log.info("Imported {}: titles={}", source, imported.get());
+		} else {
+			log.warn("Imported {}: titles={}, problems: {}", source, imported.get(), problems);
+		}
+	}
+}
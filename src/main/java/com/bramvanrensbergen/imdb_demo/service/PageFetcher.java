@@ -0,0 +1,33 @@
+package com.bramvanrensbergen.imdb_demo.service;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Obtains pages by url: {@link HttpPageFetcher} downloads them, {@link RecordedPageFetcher} reads previously recorded pages
+ * from disk, so everything built on top (the {@link FetchEngine} and {@link TitleLookupService}) can be run offline.
+ * <br>Which one is used is set by 'imdb.fetch.source' ('http' or 'recorded').
+ * @author Bram Van Rensbergen
+ */
+public interface PageFetcher {
+
+	/**
+	 * Reads a page while it is being received; the page is closed as soon as it returns,
+	 * so a reader that has found what it needs can skip the rest of the page.
+	 */
+	interface PageReader<T> {
+		/**
+		 * @param charset Name of the character set of the page, if known; else, null.
+		 */
+		T read(InputStream page, String charset) throws IOException;
+	}
+
+	/**
+	 * Obtain the page at the indicated url, and hand it to {@code reader}. May be called from several threads at once.
+	 * @return The result of the reader.
+	 * @throws java.io.FileNotFoundException If there is no page at the url.
+	 * @throws org.jsoup.HttpStatusException If the page could not be obtained due to any other http error status.
+	 * @throws IOException If the page could not be obtained or read.
+	 */
+	<T> T fetch(String url, PageReader<T> reader) throws IOException;
+}
@@ -0,0 +1,59 @@
+package com.bramvanrensbergen.imdb_demo.service;
+
+import java.io.BufferedInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URL;
+import java.net.URLEncoder;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+/**
+ * Reads pages recorded earlier from a directory, instead of downloading them; to run (and test) the whole application offline.
+ * <br>A page is stored under its path, with its query (if any) url-encoded as file name, and '.html' appended; e.g.
+ * 'http://www.imdb.com/title/tt0090756' as 'title/tt0090756.html', and 'http://www.imdb.com/find?q=blue+velvet&amp;s=tt'
+ * as 'find/q%3Dblue%2Bvelvet%26s%3Dtt.html'. The host is ignored. Pages that were not recorded are reported as not found.
+ * @author Bram Van Rensbergen
+ */
+@Component
+@ConditionalOnProperty(name = "imdb.fetch.source", havingValue = "recorded")
+public class RecordedPageFetcher implements PageFetcher {
+
+	@Value("${imdb.fetch.recordedDir:recorded-pages}")
+	private File dir;
+
+	@Override
+	public <T> T fetch(String url, PageReader<T> reader) throws IOException {
+		File file = fileFor(dir, url);
+		if (!file.isFile()) {
+			throw new FileNotFoundException(url + " (not recorded as " + file + ")");
+		}
+
+		try (InputStream page = new BufferedInputStream(new FileInputStream(file))) {
+			return reader.read(page, null);
+		}
+	}
+
+	/**
+	 * @return The file the page at the indicated url is recorded in, within the indicated directory.
+	 */
+	public static File fileFor(File dir, String url) throws IOException {
+		URL u = new URL(url);
+		String path = u.getPath();
+		while (path.endsWith("/")) {
+			path = path.substring(0, path.length() - 1);
+		}
+		if (path.isEmpty()) {
+			path = "/index";
+		}
+		if (u.getQuery() != null) {
+			path += "/" + URLEncoder.encode(u.getQuery(), "UTF-8");
+		}
+		return new File(dir, path + ".html");
+	}
+}
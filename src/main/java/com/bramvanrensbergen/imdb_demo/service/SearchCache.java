@@ -0,0 +1,165 @@
+package com.bramvanrensbergen.imdb_demo.service;
+
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.ToDoubleFunction;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.Resource;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * In-memory cache of the results of searching IMDb for a title, keyed by the normalized search query.
+ * <br>Searches that found no match are cached as well, but expire sooner. Entries expire after a fixed time-to-live,
+ * and the least recently used entries are evicted once the cache holds more than its maximum number of queries.
+ * @author Bram Van Rensbergen
+ */
+@Component
+public class SearchCache {
+
+	/**
+	 * The cached result of a search.
+	 */
+	public static final class Entry {
+		private final String id;
+
+		private final long expiresAt;
+
+		private Entry(String id, long expiresAt) {
+			this.id = id;
+			this.expiresAt = expiresAt;
+		}
+
+		/**
+		 * @return The IMDb id of the best match, or null if the search found no match.
+		 */
+		public String getId() {
+			return id;
+		}
+	}
+
+	@Value("${imdb.searchCache.maxEntries:10000}")
+	private int maxEntries;
+
+	@Value("${imdb.searchCache.ttlHours:168}")
+	private long ttlHours;
+
+	@Value("${imdb.searchCache.noMatchTtlMinutes:360}")
+	private long noMatchTtlMinutes;
+
+	private final AtomicLong hits = new AtomicLong();
+
+	private final AtomicLong misses = new AtomicLong();
+
+	@Resource
+	private MeterRegistry meterRegistry;
+
+	/**
+	 * Cached searches, in access order (least recently used first).
+	 */
+	private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<String, Entry>(16, 0.75f, true) {
+		private static final long serialVersionUID = 1L;
+
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+			return size() > maxEntries;
+		}
+	};
+
+	/**
+	 * Expose the lookups (as 'cache.gets', by result), their hit ratio, and the size of the cache.
+	 */
+	@PostConstruct
+	public void registerMeters() {
+		ToDoubleFunction<AtomicLong> count = new ToDoubleFunction<AtomicLong>() {
+			@Override
+			public double applyAsDouble(AtomicLong counter) {
+				return counter.get();
+			}
+		};
+		FunctionCounter.builder("cache.gets", hits, count).tag("cache", "searches").tag("result", "hit").register(meterRegistry);
+		FunctionCounter.builder("cache.gets", misses, count).tag("cache", "searches").tag("result", "miss").register(meterRegistry);
+
+		Gauge.builder("imdb.cache.hit.ratio", this, new ToDoubleFunction<SearchCache>() {
+			@Override
+			public double applyAsDouble(SearchCache cache) {
+				double total = cache.getHits() + cache.getMisses();
+				return total == 0 ? 0 : cache.getHits() / total;
+			}
+		}).description("Fraction of lookups answered from the cache").tag("cache", "searches").register(meterRegistry);
+		Gauge.builder("cache.size", this, new ToDoubleFunction<SearchCache>() {
+			@Override
+			public double applyAsDouble(SearchCache cache) {
+				return cache.size();
+			}
+		}).tag("cache", "searches").register(meterRegistry);
+	}
+
+	/**
+	 * @return The query in the form used as key: trimmed, in lower case, and with all whitespace collapsed to single spaces;
+	 * 	so queries that only differ in case or spacing share their entry.
+	 */
+	public static String normalize(String query) {
+		return query.trim().replaceAll("\\s+", " ").toLowerCase(Locale.ROOT);
+	}
+
+	/**
+	 * @param query Normalized search query (see {@link #normalize(String)}).
+	 * @return The cached result of the search, or null if it is not cached, or has expired.
+	 */
+	public Entry get(String query) {
+		Entry entry;
+		synchronized (this) {
+			entry = entries.get(query);
+			if (entry != null && entry.expiresAt <= System.currentTimeMillis()) {
+				entries.remove(query);
+				entry = null;
+			}
+		}
+
+		(entry == null ? misses : hits).incrementAndGet();
+		return entry;
+	}
+
+	/**
+	 * @param query Normalized search query (see {@link #normalize(String)}).
+	 * @param id IMDb id of the best match, or null if the search found no match.
+	 */
+	public void put(String query, String id) {
+		long ttl = id != null ? TimeUnit.HOURS.toMillis(ttlHours) : TimeUnit.MINUTES.toMillis(noMatchTtlMinutes);
+		Entry entry = new Entry(id, System.currentTimeMillis() + ttl);
+		synchronized (this) {
+			entries.put(query, entry);
+		}
+	}
+
+	/**
+	 * @return Number of lookups that found a cached (and unexpired) result, including searches that found no match.
+	 */
+	public long getHits() {
+		return hits.get();
+	}
+
+	/**
+	 * @return Number of lookups that found no cached result, and had to search IMDb.
+	 */
+	public long getMisses() {
+		return misses.get();
+	}
+
+	/**
+	 * @return Number of cached searches, including any that have expired but were not looked up since.
+	 */
+	public synchronized int size() {
+		return entries.size();
+	}
+}
@@ -0,0 +1,80 @@
+package com.bramvanrensbergen.imdb_demo.service;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+
+/**
+ * Merges concurrent calls for the same key: while a call is in flight, others for its key wait for it and share its result
+ * (or its exception), rather than making the same call again.
+ * <br>Calls are not remembered once they complete; a later call for the same key is made anew.
+ * @author Bram Van Rensbergen
+ */
+public final class SingleFlight<K, V> {
+
+	/**
+	 * A call to be shared; may return null.
+	 */
+	public interface Call<V> {
+		V call() throws IOException;
+	}
+
+	private final ConcurrentMap<K, FutureTask<V>> inFlight = new ConcurrentHashMap<K, FutureTask<V>>();
+
+	/**
+	 * Make the indicated call on the current thread, unless a call for the same key is already in flight;
+	 * in that case, wait for that one to complete instead.
+	 * @return The result of the call.
+	 * @throws IOException If the call failed, or the thread was interrupted while waiting for a call in flight.
+	 */
+	public V execute(K key, final Call<V> call) throws IOException {
+		FutureTask<V> task = new FutureTask<V>(new Callable<V>() {
+			@Override
+			public V call() throws Exception {
+				return call.call();
+			}
+		});
+
+		FutureTask<V> existing = inFlight.putIfAbsent(key, task);
+		if (existing != null) {
+			return await(existing);
+		}
+
+		try {
+			task.run();
+		} finally {
+			inFlight.remove(key, task);
+		}
+		return await(task);
+	}
+
+	/**
+	 * @return The number of calls currently in flight.
+	 */
+	public int inFlight() {
+		return inFlight.size();
+	}
+
+	private static <V> V await(FutureTask<V> task) throws IOException {
+		try {
+			return task.get();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new InterruptedIOException("interrupted while waiting for a call in flight");
+		} catch (ExecutionException e) {
+			Throwable cause = e.getCause();
+			if (cause instanceof IOException) {
+				throw (IOException) cause;
+			} else if (cause instanceof RuntimeException) {
+				throw (RuntimeException) cause;
+			} else if (cause instanceof Error) {
+				throw (Error) cause;
+			}
+			throw new IOException(cause);
+		}
+	}
+}
@@ -0,0 +1,29 @@
+package com.bramvanrensbergen.imdb_demo.service;
+
+import org.jsoup.HttpStatusException;
+
+/**
+ * Signals that the server refused a request because it is busy (status 429 or 503), possibly asking to retry after some time.
+ * @author Bram Van Rensbergen
+ */
+public class ThrottledException extends HttpStatusException {
+
+	private static final long serialVersionUID = 1L;
+
+	private final long retryAfterMillis;
+
+	/**
+	 * @param retryAfterMillis How long the server asked to wait before retrying, or -1 if it did not say.
+	 */
+	public ThrottledException(int statusCode, String url, long retryAfterMillis) {
+		super("Server busy fetching URL", statusCode, url);
+		this.retryAfterMillis = retryAfterMillis;
+	}
+
+	/**
+	 * @return How long the server asked to wait before retrying, or -1 if it did not say.
+	 */
+	public long getRetryAfterMillis() {
+		return retryAfterMillis;
+	}
+}
@@ -0,0 +1,522 @@
+package com.bramvanrensbergen.imdb_demo.service;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInput;
+import java.io.DataInputStream;
+import java.io.DataOutput;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+
+import javax.annotation.PostConstruct;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import com.bramvanrensbergen.imdb_demo.domain.Person;
+import com.bramvanrensbergen.imdb_demo.domain.Registry;
+import com.bramvanrensbergen.imdb_demo.domain.TitleData;
+import com.bramvanrensbergen.imdb_demo.domain.TitleField;
+import com.bramvanrensbergen.imdb_demo.domain.TitleType;
+
+/**
+ * File-backed cache of the data obtained from IMDb title pages, keyed by IMDb id; shared by all lookups, so it builds up
+ * a corpus of every title any user has looked up.
+ * <br>Each title is stored in its own small binary file, so the cache survives restarts. Besides by id, the titles are indexed
+ * by the IMDb ids of their actors and directors, and by genre; this index is kept in memory, and rebuilt from the files on startup.
+ * <br>Entries expire after a fixed time-to-live; if refreshing stale entries is enabled, they are still returned instead
+ * (see {@link #isStale(String)}), so they can be refreshed in the background.
+ * The least recently used entries are evicted once the cache holds more than its maximum number of titles;
+ * scans over the whole corpus read the titles with {@link #peek(String)}, so they do not count as use.
+ * <br>Only well-formed IMDb title ids (e.g. 'tt0090756') are cached, as they are used as file names.
+ * @author Bram Van Rensbergen
+ */
+@Component
+public class TitleCache {
+
+	/**
+	 * Increment when the file format changes; files in another format are deleted on startup.
+	 */
+	private static final int FORMAT_VERSION = 3;
+
+	private static final String FILE_EXTENSION = ".title";
+
+	/**
+	 * Extension of files being written; they are renamed once complete.
+	 */
+	private static final String TEMP_EXTENSION = ".tmp";
+
+	private static final Pattern ID = Pattern.compile("^tt\\d+$");
+
+	private static final Logger log = LoggerFactory.getLogger(TitleCache.class);
+
+	@Value("${imdb.cache.enabled:true}")
+	private boolean enabled;
+
+	@Value("${imdb.cache.dir:${java.io.tmpdir}/imdb-title-cache}")
+	private File dir;
+
+	@Value("${imdb.cache.ttlHours:168}")
+	private long ttlHours;
+
+	@Value("${imdb.cache.maxEntries:20000}")
+	private int maxEntries;
+
+	@Value("${imdb.cache.refreshStale:false}")
+	private boolean refreshStale;
+
+	/**
+	 * What the index holds about a cached title.
+	 */
+	private static final class Entry {
+		final long storedAt;
+
+		/**
+		 * IMDb ids of its actors and directors; persons without id are not indexed.
+		 */
+		final Set<String> personIds = new LinkedHashSet<String>();
+
+		final Set<String> genres;
+
+		Entry(long storedAt, TitleData data) {
+			this.storedAt = storedAt;
+			this.genres = data.getGenres();
+			addIds(personIds, data.getPrimaryActors());
+			addIds(personIds, data.getDirectorsOrCreators());
+		}
+
+		private static void addIds(Set<String> ids, List<Person> persons) {
+			for (Person p : persons) {
+				if (p.getId() != null) {
+					ids.add(p.getId());
+				}
+			}
+		}
+	}
+
+	/**
+	 * Each cached title, in access order (least recently used first).
+	 */
+	private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<String, Entry>(16, 0.75f, true);
+
+	/**
+	 * Ids of the cached titles of each person, by person id.
+	 */
+	private final Map<String, Set<String>> idsByPerson = new HashMap<String, Set<String>>();
+
+	/**
+	 * Ids of the cached titles of each genre, by genre.
+	 */
+	private final Map<String, Set<String>> idsByGenre = new HashMap<String, Set<String>>();
+
+	/**
+	 * Rebuild the index from the files already on disk, using their modification time as last access time.
+	 * <br>Each file is read entirely, to index its persons and genres. Files left over from writes that did not complete are deleted.
+	 */
+	@PostConstruct
+	public void load() {
+		if (!enabled) {
+			return;
+		}
+
+		if (!dir.isDirectory() && !dir.mkdirs()) {
+			log.warn("Could not create title cache directory {}, caching disabled", dir);
+			enabled = false;
+			return;
+		}
+
+		File[] files = dir.listFiles();
+		if (files == null) {
+			log.warn("Could not list title cache directory {}, caching disabled", dir);
+			enabled = false;
+			return;
+		}
+
+		Arrays.sort(files, new Comparator<File>() {
+			@Override
+			public int compare(File f1, File f2) {
+				return Long.compare(f1.lastModified(), f2.lastModified());
+			}
+		});
+
+		synchronized (this) {
+			for (File f : files) {
+				String name = f.getName();
+				if (name.endsWith(TEMP_EXTENSION)) {
+					if (!f.delete()) {
+						log.debug("Could not delete incomplete cached title: file={}", f);
+					}
+					continue;
+				} else if (!name.endsWith(FILE_EXTENSION)) {
+					continue;
+				}
+
+				String id = name.substring(0, name.length() - FILE_EXTENSION.length());
+				if (!isValidId(id)) {
+					continue;
+				}
+
+				boolean outdated;
+				try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(f)))) {
+					outdated = in.readInt() != FORMAT_VERSION;
+					if (!outdated) {
+						long time = in.readLong();
+						store(id, new Entry(time, readTitleData(in)));
+					}
+				} catch (IOException e) {
+					log.debug("Skipping unreadable cached title: file={} error={}", f, e.toString());
+					continue;
+				}
+
+				if (outdated && !f.delete()) {
+					log.debug("Could not delete cached title in an old format: file={}", f);
+				}
+			}
+			evictOverflow();
+		}
+	}
+
+	/**
+	 * @return The cached data for the indicated title, or null if it is not cached, or has expired (if stale entries are not refreshed).
+	 */
+	public TitleData get(String id) {
+		if (!enabled || !isValidId(id)) {
+			return null;
+		}
+
+		synchronized (this) {
+			Entry entry = entries.get(id);
+			if (entry == null) {
+				return null;
+			}
+
+			if (!refreshStale && isExpired(entry.storedAt)) {
+				remove(id);
+				return null;
+			}
+		}
+
+		return read(id, true);
+	}
+
+	/**
+	 * Same as {@link #get(String)}, but the title is not marked as used, so it is evicted no later than it would otherwise be;
+	 * expired entries are left for {@link #get(String)} to remove.
+	 */
+	public TitleData peek(String id) {
+		if (!enabled || !isValidId(id)) {
+			return null;
+		}
+
+		synchronized (this) {
+			// unlike get, containsKey leaves the access order as is
+			if (!entries.containsKey(id)) {
+				return null;
+			}
+		}
+
+		return read(id, false);
+	}
+
+	/**
+	 * @param use Whether to mark the title as used, so it is evicted later.
+	 * @return The data in the file of the indicated title, or null if it has expired, or cannot be read.
+	 */
+	private TitleData read(String id, boolean use) {
+		File f = fileFor(id);
+		try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(f)))) {
+			in.readInt();
+			long storedAt = in.readLong();
+			if (!refreshStale && isExpired(storedAt)) {
+				return null;
+			}
+			TitleData data = readTitleData(in);
+			if (use) {
+				f.setLastModified(System.currentTimeMillis()); // keeps access order across restarts
+			}
+			return data;
+		} catch (IOException e) {
+			// file was evicted in the meantime, or is corrupt
+			synchronized (this) {
+				unindex(id, entries.remove(id));
+			}
+			return null;
+		}
+	}
+
+	/**
+	 * Store the indicated title data, replacing any earlier entry for the same title.
+	 * <br>Titles without a well-formed IMDb id are not stored.
+	 */
+	public void put(TitleData data) {
+		if (!enabled) {
+			return;
+		}
+
+		if (!isValidId(data.getId())) {
+			log.warn("Not caching title with malformed id: id={}", data.getId());
+			return;
+		}
+
+		long now = System.currentTimeMillis();
+		File f = fileFor(data.getId());
+		File tmp = null;
+		try {
+			tmp = File.createTempFile(data.getId(), TEMP_EXTENSION, dir);
+			try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tmp)))) {
+				out.writeInt(FORMAT_VERSION);
+				out.writeLong(now);
+				writeTitleData(out, data);
+			}
+			Files.move(tmp.toPath(), f.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+		} catch (IOException e) {
+			log.warn("Could not cache title: id={} error={}", data.getId(), e.toString());
+			return;
+		} finally {
+			// only still there if the write or rename failed
+			if (tmp != null && tmp.exists() && !tmp.delete()) {
+				log.debug("Could not delete incomplete cached title: file={}", tmp);
+			}
+		}
+
+		synchronized (this) {
+			store(data.getId(), new Entry(now, data));
+			evictOverflow();
+		}
+	}
+
+	/**
+	 * @return Whether the indicated title is cached, but was stored longer than the time-to-live ago, so it should be refreshed;
+	 * 	always false if stale entries are not refreshed.
+	 */
+	public synchronized boolean isStale(String id) {
+		Entry entry = entries.get(id);
+		return refreshStale && entry != null && isExpired(entry.storedAt);
+	}
+
+	/**
+	 * @return Number of titles currently in the cache.
+	 */
+	public synchronized int size() {
+		return entries.size();
+	}
+
+	/**
+	 * @return Number of persons (with an IMDb id) that act in or direct any of the cached titles.
+	 */
+	public synchronized int personCount() {
+		return idsByPerson.size();
+	}
+
+	/**
+	 * @return Number of cached titles per genre, by genre.
+	 */
+	public synchronized Map<String, Integer> genreCounts() {
+		Map<String, Integer> counts = new TreeMap<String, Integer>();
+		for (Map.Entry<String, Set<String>> genre : idsByGenre.entrySet()) {
+			counts.put(genre.getKey(), genre.getValue().size());
+		}
+		return counts;
+	}
+
+	/**
+	 * @return Ids of all cached titles.
+	 */
+	public synchronized List<String> ids() {
+		return new ArrayList<String>(entries.keySet());
+	}
+
+	/**
+	 * @return Ids of the cached titles in which the person with the indicated IMDb id (e.g. 'nm0000186') acts or directs.
+	 */
+	public synchronized List<String> idsWithPerson(String personId) {
+		return copyOf(idsByPerson.get(personId));
+	}
+
+	/**
+	 * @return Ids of the cached titles of the indicated genre (e.g. 'Sci-Fi').
+	 */
+	public synchronized List<String> idsWithGenre(String genre) {
+		return copyOf(idsByGenre.get(genre));
+	}
+
+	private static List<String> copyOf(Set<String> ids) {
+		return ids == null ? new ArrayList<String>() : new ArrayList<String>(ids);
+	}
+
+	/**
+	 * @return Whether the indicated id is a well-formed IMDb title id, and so is safe to use as file name.
+	 */
+	private static boolean isValidId(String id) {
+		return id != null && ID.matcher(id).matches();
+	}
+
+	private boolean isExpired(long time) {
+		return System.currentTimeMillis() - time > TimeUnit.HOURS.toMillis(ttlHours);
+	}
+
+	private synchronized void evictOverflow() {
+		Iterator<Map.Entry<String, Entry>> it = entries.entrySet().iterator();
+		while (entries.size() > maxEntries && it.hasNext()) {
+			Map.Entry<String, Entry> evicted = it.next();
+			it.remove();
+			unindex(evicted.getKey(), evicted.getValue());
+			fileFor(evicted.getKey()).delete();
+		}
+	}
+
+	private synchronized void remove(String id) {
+		unindex(id, entries.remove(id));
+		fileFor(id).delete();
+	}
+
+	/**
+	 * Add the indicated entry to the index, replacing any earlier entry of the same title.
+	 */
+	private synchronized void store(String id, Entry entry) {
+		unindex(id, entries.put(id, entry));
+		for (String personId : entry.personIds) {
+			index(idsByPerson, personId, id);
+		}
+		for (String genre : entry.genres) {
+			index(idsByGenre, genre, id);
+		}
+	}
+
+	/**
+	 * Remove the indicated entry (if any) from the secondary indexes.
+	 */
+	private synchronized void unindex(String id, Entry entry) {
+		if (entry == null) {
+			return;
+		}
+		for (String personId : entry.personIds) {
+			unindex(idsByPerson, personId, id);
+		}
+		for (String genre : entry.genres) {
+			unindex(idsByGenre, genre, id);
+		}
+	}
+
+	private static void index(Map<String, Set<String>> index, String key, String id) {
+		Set<String> ids = index.get(key);
+		if (ids == null) {
+			ids = new LinkedHashSet<String>();
+			index.put(key, ids);
+		}
+		ids.add(id);
+	}
+
+	private static void unindex(Map<String, Set<String>> index, String key, String id) {
+		Set<String> ids = index.get(key);
+		if (ids != null && ids.remove(id) && ids.isEmpty()) {
+			index.remove(key);
+		}
+	}
+
+	private File fileFor(String id) {
+		return new File(dir, id + FILE_EXTENSION);
+	}
+
+	private static void writeTitleData(DataOutput out, TitleData data) throws IOException {
+		out.writeByte(data.getType().ordinal());
+		out.writeUTF(data.getId());
+		int fields = 0;
+		for (TitleField field : data.getFields()) {
+			fields |= 1 << field.ordinal();
+		}
+		out.writeByte(fields);
+		writeNullableString(out, data.getTitle());
+		out.writeShort(data.getGenres().size());
+		for (String genre : data.getGenres()) {
+			out.writeUTF(genre);
+		}
+		out.writeDouble(data.getRating() == null ? Double.NaN : data.getRating());
+		writeNullableString(out, data.getSummaryText());
+		writeNullableString(out, data.getRuntimeString());
+		out.writeInt(data.getYearOfRelease() == null ? -1 : data.getYearOfRelease());
+		writePersons(out, data.getDirectorsOrCreators());
+		writePersons(out, data.getPrimaryActors());
+		writeNullableString(out, data.getSeriesName());
+		writeNullableString(out, data.getSeriesId());
+		writeNullableString(out, data.getSeasonAndEpisodeNumberDesc());
+	}
+
+	private static TitleData readTitleData(DataInput in) throws IOException {
+		TitleType type = TitleType.values()[in.readByte()];
+		String id = in.readUTF();
+		int fieldBits = in.readByte();
+		Set<TitleField> fields = EnumSet.noneOf(TitleField.class);
+		for (TitleField field : TitleField.values()) {
+			if ((fieldBits & 1 << field.ordinal()) != 0) {
+				fields.add(field);
+			}
+		}
+		String title = readNullableString(in);
+		int nGenres = in.readShort();
+		Set<String> genres = new LinkedHashSet<String>();
+		for (int i = 0; i < nGenres; i++) {
+			genres.add(in.readUTF());
+		}
+		double rating = in.readDouble();
+		String summaryText = readNullableString(in);
+		String runtimeString = readNullableString(in);
+		int year = in.readInt();
+		List<Person> directors = readPersons(in);
+		List<Person> actors = readPersons(in);
+
+		return new TitleData(type, id, fields, title, genres, Double.isNaN(rating) ? null : rating, summaryText, runtimeString,
+				year == -1 ? null : year, directors, actors, readNullableString(in), readNullableString(in), readNullableString(in));
+	}
+
+	private static void writePersons(DataOutput out, List<Person> persons) throws IOException {
+		out.writeShort(persons.size());
+		for (Person p : persons) {
+			writeNullableString(out, p.getId());
+			out.writeUTF(p.getName());
+		}
+	}
+
+	private static List<Person> readPersons(DataInput in) throws IOException {
+		int n = in.readShort();
+		List<Person> persons = new ArrayList<Person>(n);
+		for (int i = 0; i < n; i++) {
+			String id = readNullableString(in);
+			String name = in.readUTF();
+			persons.add(id != null ? Registry.person(id, name) : Registry.newPersonWithoutId(name));
+		}
+		return persons;
+	}
+
+	private static void writeNullableString(DataOutput out, String s) throws IOException {
+		out.writeBoolean(s != null);
+		if (s != null) {
+			out.writeUTF(s);
+		}
+	}
+
+	private static String readNullableString(DataInput in) throws IOException {
+		return in.readBoolean() ? in.readUTF() : null;
+	}
+}
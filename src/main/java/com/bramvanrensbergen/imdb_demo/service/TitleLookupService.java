@@ -1,28 +1,61 @@
 package com.bramvanrensbergen.imdb_demo.service;
 
+import java.io.BufferedReader;
 import java.io.FileNotFoundException;
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.io.Reader;
 import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumSet;
 import java.util.HashSet;
+import java.util.Iterator;
 import java.util.List;
+import java.util.NoSuchElementException;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.function.ToDoubleFunction;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.annotation.Resource;
 
 import org.apache.commons.csv.CSVFormat;
 import org.apache.commons.csv.CSVParser;
 import org.apache.commons.csv.CSVRecord;
-import org.jsoup.Jsoup;
 import org.jsoup.nodes.Document;
 import org.jsoup.nodes.Element;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.core.io.ClassPathResource;
 import org.springframework.stereotype.Service;
 
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+import com.bramvanrensbergen.imdb_demo.domain.CompiledSelector;
+import com.bramvanrensbergen.imdb_demo.domain.DomTitleExtractor;
 import com.bramvanrensbergen.imdb_demo.domain.Episode;
+import com.bramvanrensbergen.imdb_demo.domain.ExportedRatingsExtractor;
 import com.bramvanrensbergen.imdb_demo.domain.Movie;
 import com.bramvanrensbergen.imdb_demo.domain.Series;
+import com.bramvanrensbergen.imdb_demo.domain.StreamingTitleExtractor;
 import com.bramvanrensbergen.imdb_demo.domain.Title;
+import com.bramvanrensbergen.imdb_demo.domain.TitleData;
+import com.bramvanrensbergen.imdb_demo.domain.TitleEnricher;
+import com.bramvanrensbergen.imdb_demo.domain.TitleField;
+import com.bramvanrensbergen.imdb_demo.domain.TitlePageExtractor;
+import com.bramvanrensbergen.imdb_demo.domain.TitleType;
 
 /**
  * Service to look up titles on IMDb, based on either imdb-ids or on title.
@@ -40,8 +73,157 @@ public class TitleLookupService {
 	
 	private static final String NEWLINE_SEPARATOR_REGEX = "[\r\n]+";
 	
+	private static final CompiledSelector FIRST_SEARCH_RESULT = CompiledSelector.compile(".findList .result_text a");
+	
+	private static final Logger log = LoggerFactory.getLogger(TitleLookupService.class);
+	
+	@Resource
+	private FetchEngine fetchEngine;
+	
+	@Resource
+	private TitleCache titleCache;
+	
+	@Resource
+	private SearchCache searchCache;
+	
+	@Resource
+	private MeterRegistry meterRegistry;
+	
+	@Value("${imdb.extractor:streaming}")
+	private String extractorName;
+	
+	/**
+	 * Stale titles that are found while others are being refreshed already are not refreshed, once this many are waiting.
+	 */
+	@Value("${imdb.cache.maxPendingRefreshes:1000}")
+	private int maxPendingRefreshes;
+	
+	/**
+	 * Reads the fields of a title from its page; see {@link TitlePageExtractor}.
+	 */
+	private TitlePageExtractor extractor;
+	
+	/**
+	 * Concurrent lookups of the same title (by id) or search query share a single download.
+	 */
+	private final SingleFlight<String, TitleData> titleDownloads = new SingleFlight<String, TitleData>();
+	
+	private final SingleFlight<String, String> searches = new SingleFlight<String, String>();
+	
+	/**
+	 * Downloads the pages of stale titles in the {@link TitleCache} again, one at a time, while lookups go on using the stale data.
+	 */
+	private ExecutorService refresher;
+	
+	/**
+	 * Ids of the titles waiting to be refreshed, or being refreshed.
+	 */
+	private final Set<String> pendingRefreshes = ConcurrentHashMap.newKeySet();
+	
+	/**
+	 * Time taken by the extractor to read a title page, while it is being downloaded.
+	 */
+	private Timer parseTimer;
+	
+	/**
+	 * Lookups of titles answered by the {@link TitleCache}, and lookups that had to download the page of the title.
+	 */
+	private Counter titleCacheHits;
+	
+	private Counter titleCacheMisses;
+	
+	/**
+	 * Stale titles that were refreshed, and those that could not be.
+	 */
+	private Counter refreshes;
+	
+	private Counter failedRefreshes;
+	
+	/**
+	 * Looks up all fields of titles that were created without some of them, the first time one of those is accessed.
+	 */
+	private final TitleEnricher enricher = new TitleEnricher() {
+		@Override
+		public TitleData loadFullData(String id, TitleType type) throws IOException {
+			return obtainData(id, type, TitleField.ALL);
+		}
+	};
+	
+	@PostConstruct
+	public void start() {
+		selectExtractor();
+		refresher = Executors.newSingleThreadExecutor(new ThreadFactory() {
+			@Override
+			public Thread newThread(Runnable r) {
+				Thread t = new Thread(r, "imdb-refresh");
+				t.setDaemon(true);
+				return t;
+			}
+		});
+		registerMeters();
+	}
+	
+	@PreDestroy
+	public void stop() {
+		refresher.shutdownNow();
+	}
+	
+	private void selectExtractor() {
+		switch (extractorName.trim().toLowerCase()) {
+		case "dom":
+			extractor = new DomTitleExtractor();
+			break;
+		case "streaming":
+			extractor = new StreamingTitleExtractor();
+			break;
+		default:
+			throw new IllegalStateException("Unknown imdb.extractor '" + extractorName + "', expected 'dom' or 'streaming'");
+		}
+	}
+	
+	private void registerMeters() {
+		parseTimer = Timer.builder("imdb.parse")
+				.description("Time taken to extract the fields of a page")
+				.tag("extractor", extractorName.trim().toLowerCase())
+				.register(meterRegistry);
+		
+		titleCacheHits = Counter.builder("cache.gets").tag("cache", "titles").tag("result", "hit").register(meterRegistry);
+		titleCacheMisses = Counter.builder("cache.gets").tag("cache", "titles").tag("result", "miss").register(meterRegistry);
+		Gauge.builder("imdb.cache.hit.ratio", this, new ToDoubleFunction<TitleLookupService>() {
+			@Override
+			public double applyAsDouble(TitleLookupService service) {
+				double hits = service.titleCacheHits.count();
+				double total = hits + service.titleCacheMisses.count();
+				return total == 0 ? 0 : hits / total;
+			}
+		}).description("Fraction of lookups answered from the cache").tag("cache", "titles").register(meterRegistry);
+		
+		refreshes = Counter.builder("imdb.cache.refreshes").tag("result", "refreshed").register(meterRegistry);
+		failedRefreshes = Counter.builder("imdb.cache.refreshes").tag("result", "failed").register(meterRegistry);
+		Gauge.builder("imdb.cache.refreshes.pending", pendingRefreshes, new ToDoubleFunction<Set<String>>() {
+			@Override
+			public double applyAsDouble(Set<String> pending) {
+				return pending.size();
+			}
+		}).description("Stale titles waiting to be refreshed").register(meterRegistry);
+		
+		Gauge.builder("imdb.downloads.in.flight", titleDownloads, new ToDoubleFunction<SingleFlight<String, TitleData>>() {
+			@Override
+			public double applyAsDouble(SingleFlight<String, TitleData> flights) {
+				return flights.inFlight();
+			}
+		}).description("Title pages being downloaded").register(meterRegistry);
+		Gauge.builder("imdb.searches.in.flight", searches, new ToDoubleFunction<SingleFlight<String, String>>() {
+			@Override
+			public double applyAsDouble(SingleFlight<String, String> flights) {
+				return flights.inFlight();
+			}
+		}).description("Title searches in progress").register(meterRegistry);
+	}
+	
 	/**
 	 * Get the imdb-id of the best match (accordign to IMDb) for the indicated title.
+	 * <br>Results are kept in the {@link SearchCache}, so titles that only differ in case or spacing are searched only once.
 	 * @param title Title of a movie/episode/series to look up
 	 * @return IMDb id of the first match for that title (null if no match could be found)
 	 */
@@ -50,19 +232,43 @@ public class TitleLookupService {
 			return null;
 		}
 		
+		final String query = SearchCache.normalize(title);
+		SearchCache.Entry cached = searchCache.get(query);
+		if (cached != null) {
+			return cached.getId();
+		}
+		
+		try {
+			return searches.execute(query, new SingleFlight.Call<String>() {
+				@Override
+				public String call() throws IOException {
+					String id = searchBestMatch(query);
+					searchCache.put(query, id);
+					return id;
+				}
+			});
+		} catch (IOException e) {
+			log.debug("Could not search imdb: title='{}' error={}", title, e.toString());
+			return null;
+		}
+	}
+	
+	/**
+	 * Search IMDb for the indicated title; see {@link #getBestMatchForTitle(String)}.
+	 * @throws IOException If the search page could not be downloaded.
+	 */
+	private String searchBestMatch(String query) throws IOException {
 		String id = null;		
 		
 		try {		
-			String url = "http://www.imdb.com/find?q=" + URLEncoder.encode(title.trim(), "UTF-8") + "&s=tt";	
-			Document doc = Jsoup.connect(url).get();
-			Element e = doc.select(".findList .result_text a").first();
+			String url = "http://www.imdb.com/find?q=" + URLEncoder.encode(query, "UTF-8") + "&s=tt";	
+			Document doc = fetchEngine.fetch(url);
+			Element e = FIRST_SEARCH_RESULT.first(doc);
 						
 			id = Title.getIdFromUrl(e.attr("href"));
 			
-		} catch (IOException e) {
-			System.err.println("Could not reach imdb page for " + title);
 		} catch (NullPointerException e) {
-			System.err.println("Could not find any results for " + title);
+			log.debug("No search results: query='{}'", query);
 		}
 	
 		return id;
@@ -75,7 +281,15 @@ public class TitleLookupService {
 	 * @return A list of Title objects corresponding to those ids.
 	 */
 	public List<Title> createTitlesFromSingleLineOfIds(String title_ids) {
-		return createTitles(title_ids.split(ID_SEPARATOR_REGEX));
+		return createTitlesFromSingleLineOfIds(title_ids, TitleField.ALL);
+	}
+	
+	/**
+	 * Same as {@link #createTitlesFromSingleLineOfIds(String)}, but only obtaining the indicated optional fields up front;
+	 * the others are looked up when they are first accessed.
+	 */
+	public List<Title> createTitlesFromSingleLineOfIds(String title_ids, Set<TitleField> fields) {
+		return createTitles(title_ids.split(ID_SEPARATOR_REGEX), fields);
 	}
 	
 	/**
@@ -84,7 +298,15 @@ public class TitleLookupService {
 	 * @return A list of Title objects corresponding to those titles or ids.
 	 */
 	public List<Title> createTitlesFromText(String titles) {
-		return createTitles(titles.split(NEWLINE_SEPARATOR_REGEX));
+		return createTitlesFromText(titles, TitleField.ALL);
+	}
+	
+	/**
+	 * Same as {@link #createTitlesFromText(String)}, but only obtaining the indicated optional fields up front;
+	 * the others are looked up when they are first accessed.
+	 */
+	public List<Title> createTitlesFromText(String titles, Set<TitleField> fields) {
+		return createTitles(titles.split(NEWLINE_SEPARATOR_REGEX), fields);
 	}
 	
 	/**
@@ -95,8 +317,40 @@ public class TitleLookupService {
 	 * @throws IOException If the indicated string does not contain valid csv data.
 	 */
 	public List<Title> createTitlesFromExportedRatings(String ratings) throws IOException {
+		return createTitlesFromExportedRatings(ratings, ImportOptions.DEFAULT, null);
+	}
+	
+	/**
+	 * Same as {@link #createTitlesFromExportedRatings(String)}, but optionally without looking up any IMDb pages,
+	 * and keeping track of how many titles have been looked up so far.
+	 * @param options Whether to build titles from the columns of the exported ratings rather than scraping their pages
+	 * 	(rows lacking any of these columns are still scraped), and which optional fields to obtain up front.
+	 * 	<br>If the exported ratings hold all requested fields, they are used as well, and the pages are only scraped once
+	 * 	any other field is accessed.
+	 * @param progress Counters to update, or null.
+	 */
+	public List<Title> createTitlesFromExportedRatings(String ratings, ImportOptions options, ImportProgress progress) throws IOException {
 		Iterable<CSVRecord> records = CSVParser.parse(ratings, CSVFormat.DEFAULT);
-		return createTitlesFromCsv(records);
+		return createTitlesFromCsv(records, options, progress, "exported ratings");
+	}
+	
+	/**
+	 * Create a list with Title objects for each entry in a set of exported IMDb ratings, reading them from a stream.
+	 * <br>Records are parsed and handed to the {@link FetchEngine} as they are read, so the ratings are never held in memory as a whole.
+	 * @param ratings Stream of exported imdb-ratings in csv format (utf-8); it is closed afterwards.
+	 * 	<br>(The first line can, but does not have to, hold the header)
+	 * @param options See {@link #createTitlesFromExportedRatings(String, ImportOptions, ImportProgress)}.
+	 * @param progress Counters to update, or null; the total number of titles remains unknown.
+	 * @return A list of Title objects corresponding to those exported ratings.
+	 * @throws IOException If the stream could not be read.
+	 */
+	public List<Title> createTitlesFromExportedRatings(InputStream ratings, ImportOptions options, ImportProgress progress) throws IOException {
+		try (CSVParser parser = new CSVParser(new BufferedReader(new InputStreamReader(ratings, StandardCharsets.UTF_8)), CSVFormat.DEFAULT)) {
+			ImportSummary summary = new ImportSummary();
+			List<Title> titles = fetchEngine.processInOrder(skipHeader(parser), csvRecordTask(options, summary), progress);
+			summary.log(log, "exported ratings");
+			return titles;
+		}
 	}
 	
 	/**
@@ -105,127 +359,405 @@ public class TitleLookupService {
 	 * @throws IOException If the sample data could not be read for whatever reason.
 	 */
 	public List<Title> createTitlesFromSampleData() throws IOException {
+		return createTitlesFromSampleData(ImportOptions.DEFAULT, null);
+	}
+	
+	/**
+	 * Same as {@link #createTitlesFromSampleData()}, but optionally without looking up any IMDb pages,
+	 * and keeping track of how many titles have been looked up so far.
+	 * @param options See {@link #createTitlesFromExportedRatings(String, ImportOptions, ImportProgress)}.
+	 * @param progress Counters to update, or null.
+	 */
+	public List<Title> createTitlesFromSampleData(ImportOptions options, ImportProgress progress) throws IOException {
 
 		Reader in = new InputStreamReader(new ClassPathResource(SAMPLE_RATINGS_FILE).getInputStream());
 		Iterable<CSVRecord> records = CSVFormat.DEFAULT.parse(in);
 		
-		return createTitlesFromCsv(records);		
+		return createTitlesFromCsv(records, options, progress, "sample data");
 	}
 	
-	private List<Title> createTitlesFromCsv(Iterable<CSVRecord> records) {
-		ArrayList<Title> titlesList = new ArrayList<Title>();
+	/**
+	 * @param source What is imported, for the summary that is logged once done.
+	 */
+	private List<Title> createTitlesFromCsv(Iterable<CSVRecord> records, ImportOptions options, ImportProgress progress, String source) {
+		List<CSVRecord> rows = new ArrayList<CSVRecord>();
+		for (CSVRecord record : skipHeader(records)) {
+			rows.add(record);
+		}
 		
-		for (CSVRecord record : records) {
-			if (record.size() < 9) {
-				System.err.println("invalid record found in exported ratings, not enough columns");
-				continue;
+		if (progress != null) {
+			progress.setTotal(rows.size());
+		}
+		
+		ImportSummary summary = new ImportSummary();
+		List<Title> titles = fetchEngine.processInOrder(rows, csvRecordTask(options, summary), progress);
+		summary.log(log, source);
+		return titles;
+	}
+	
+	private FetchEngine.Task<CSVRecord, Title> csvRecordTask(final ImportOptions options, final ImportSummary summary) {
+		final ExportedRatingsExtractor extractor = new ExportedRatingsExtractor();
+		return new FetchEngine.Task<CSVRecord, Title>() {
+			@Override
+			public Title apply(CSVRecord record) {
+				return createTitleFromCsvRecord(record, options, extractor, summary);
 			}
-			
-			if(record.get(0).equals("position")) {
-				continue; //skip header, is present
+		};
+	}
+	
+	/**
+	 * @return The indicated records, lazily skipping the header of exported ratings, if present.
+	 */
+	private static Iterable<CSVRecord> skipHeader(final Iterable<CSVRecord> records) {
+		return new Iterable<CSVRecord>() {
+			@Override
+			public Iterator<CSVRecord> iterator() {
+				final Iterator<CSVRecord> it = records.iterator();
+				return new Iterator<CSVRecord>() {
+					private CSVRecord next = advance();
+					
+					private CSVRecord advance() {
+						while (it.hasNext()) {
+							CSVRecord record = it.next();
+							if (record.size() == 0 || !record.get(0).equals("position")) {
+								return record;
+							}
+						}
+						return null;
+					}
+					
+					@Override
+					public boolean hasNext() {
+						return next != null;
+					}
+					
+					@Override
+					public CSVRecord next() {
+						if (next == null) {
+							throw new NoSuchElementException();
+						}
+						CSVRecord record = next;
+						next = advance();
+						return record;
+					}
+				};
 			}
-			
-		    String id = record.get(1);
-		    String typeString = record.get(6);
-		    String userRating = record.get(8);		    		    
-		    Title t;
-		    
-		    if (id == null || id.isEmpty() || typeString == null || typeString.isEmpty()) {
-		    	System.err.println("invalid record found in exported ratings, with id " + id + " and type " + typeString + ", skipping");
-				continue;
-		    }
-
-		    Document doc;
-		    try {
-		    	doc = Jsoup.connect(Title.BASE_URL + id).get();
-		    	t = createTitle(id, doc, typeString);
-		    } catch (FileNotFoundException e) {
-		    	System.err.println("could not find imdb page for " + id + ", skipping");
-		    	continue;
-		    }	catch (IOException e) {
-		    	System.err.println("could not parse imdb page for " + id + ", skipping");
-		    	continue;
-		    }
-		    t.setUserRating(Double.parseDouble(userRating));
-		    titlesList.add(t);
-
+		};
+	}
+	
+	/**
+	 * Look up the title described by a single row of exported ratings; runs on a worker thread of the {@link FetchEngine}.
+	 * @param options Whether to build the title from the row itself (or the {@link TitleCache}) rather than scraping its page, if possible;
+	 * 	and which optional fields to obtain up front.
+	 * @param extractor Extracts titles from the rows of this import.
+	 * @param summary Tally to add the title to, or the reason it was skipped.
+	 * @return The title, with the user's rating set; or null if the row is invalid or its page could not be obtained.
+	 */
+	private Title createTitleFromCsvRecord(CSVRecord record, ImportOptions options, ExportedRatingsExtractor extractor, ImportSummary summary) {
+		if (record.size() < 9) {
+			log.debug("Skipping invalid record: record={} columns={}", record.getRecordNumber(), record.size());
+			summary.add(ImportSummary.Problem.INVALID_RECORD);
+			return null;
 		}
-		return titlesList;
+		
+	    String id = record.get(1);
+	    String typeString = record.get(6);
+	    String userRating = record.get(8);		    		    
+	    Title t;
+	    
+	    if (id == null || id.isEmpty() || typeString == null || typeString.isEmpty()) {
+	    	log.debug("Skipping invalid record: record={} id='{}' type='{}'", record.getRecordNumber(), id, typeString);
+	    	summary.add(ImportSummary.Problem.INVALID_RECORD);
+	    	return null;
+	    }
+
+	    // without csvOnly, the row only suffices if it holds every field needed up front; the others are scraped on first access.
+	    // Rows of episodes never suffice then, as they lack the series an episode belongs to, which is not scraped later on
+	    TitleType type = TitleType.fromDescription(typeString);
+	    TitleData data = null;
+	    if (options.isCsvOnly() || type != TitleType.EPISODE && ExportedRatingsExtractor.FIELDS.containsAll(options.getFields())) {
+	    	data = titleCache.get(id);
+	    	(data == null ? titleCacheMisses : titleCacheHits).increment();
+	    	if (data == null) {
+	    		data = extractor.extract(record);
+	    	} else {
+	    		refreshIfStale(data);
+	    		// the title may have been cached with fewer fields than the row holds, e.g. without directors
+	    		data = extractor.complete(data, record);
+	    	}
+	    }
+	    
+	    try {
+	    	if (data != null) {
+	    		t = createTitle(data, options.isCsvOnly() ? null : enricher);
+	    	} else {
+	    		t = obtainTitle(id, type, options.getFields());
+	    	}
+	    } catch (FileNotFoundException e) {
+	    	log.debug("Skipping title: id={} page not found", id);
+	    	summary.add(ImportSummary.Problem.NOT_FOUND);
+	    	return null;
+	    }	catch (IOException e) {
+	    	log.debug("Skipping title: id={} error={}", id, e.toString());
+	    	summary.add(ImportSummary.Problem.UNREADABLE);
+	    	return null;
+	    }
+	    
+	    if (t == null) {
+	    	summary.add(ImportSummary.Problem.UNKNOWN_TYPE);
+	    	return null;
+	    }
+	    t.setUserRating(Double.parseDouble(userRating));
+	    summary.imported(t);
+	    return t;
 	}
 
 	/**
 	 * Create a list with Title objects for each title or titleId in the indicated array
 	 * <br>Invalid IDs are skipped.
+	 * <br>Search queries and page downloads run concurrently on the {@link FetchEngine}; 
+	 * the resulting list still follows the order of {@code titlesOrIds}.
 	 * @param titlesOrIds An array of titles or titleIds
+	 * @param fields The optional fields to obtain up front.
 	 * @return List of Title objects corresponding to those ids.
 	 */
-	private List<Title> createTitles(String[] titlesOrIds) {
-		ArrayList<Title> titlesList = new ArrayList<Title>();
+	private List<Title> createTitles(String[] titlesOrIds, final Set<TitleField> fields) {
+		final ImportSummary summary = new ImportSummary();
 		
-		Set<String> alreadyAddedTitles = new HashSet<String>();				
+		// to continue, we need the imdb id, which we have to look up in case titleOrId reflects a title
+		List<String> ids = fetchEngine.processInOrder(Arrays.asList(titlesOrIds), new FetchEngine.Task<String, String>() {
+			@Override
+			public String apply(String titleOrId) {
+				return resolveId(titleOrId, summary);
+			}
+		});
 		
-		for (String titleOrId : titlesOrIds) {			
-			try {
-				if (titleOrId == null) {
-					System.out.println("null title/id passed '" + titleOrId + "', skipping");
-					continue;
-				}
-				
-				// to continue, we need the imdb id, which we have to look up in case titleOrId reflects a title
-				String id;				
-				if (titleOrId.startsWith("tt")) {
-					id = titleOrId;
-				} else {
-					id = getBestMatchForTitle(titleOrId);
-				}
-				
-				if (id == null) {
-					System.out.println("no valid id found for title '" + titleOrId + "', skipping");
-					continue;
+		// make sure to avoid any duplicates; the first occurrence of each id wins
+		List<String> uniqueIds = new ArrayList<String>();
+		Set<String> alreadyAddedTitles = new HashSet<String>();
+		for (String id : ids) {
+			if (alreadyAddedTitles.contains(id)) {
+				log.debug("Skipping duplicate: id={}", id);
+				summary.add(ImportSummary.Problem.DUPLICATE);
+				continue;
+			}
+			alreadyAddedTitles.add(id);
+			uniqueIds.add(id);
+		}
+		
+		List<Title> titles = fetchEngine.processInOrder(uniqueIds, new FetchEngine.Task<String, Title>() {
+			@Override
+			public Title apply(String id) {
+				return createTitleFromId(id, fields, summary);
+			}
+		});
+		summary.log(log, "titles");
+		return titles;
+	}
+	
+	/**
+	 * @return The IMDb id for the indicated title or titleId, or null if none could be found.
+	 */
+	private String resolveId(String titleOrId, ImportSummary summary) {
+		if (titleOrId == null) {
+			summary.add(ImportSummary.Problem.NO_MATCH);
+			return null;
+		}
+		
+		String id;				
+		if (titleOrId.startsWith("tt")) {
+			id = titleOrId;
+		} else {
+			id = getBestMatchForTitle(titleOrId);
+		}
+		
+		if (id == null) {
+			log.debug("Skipping title: no id found for title='{}'", titleOrId);
+			summary.add(ImportSummary.Problem.NO_MATCH);
+		}
+		return id;
+	}
+	
+	/**
+	 * Obtain the indicated title; runs on a worker thread of the {@link FetchEngine}.
+	 * @param summary Tally to add the title to, or the reason it was skipped.
+	 * @return The title, or null if its page could not be obtained.
+	 */
+	private Title createTitleFromId(String id, Set<TitleField> fields, ImportSummary summary) {
+		Title t;
+		try {
+			t = obtainTitle(id, null, fields);
+		} catch (FileNotFoundException e) {
+			log.debug("Skipping title: id={} page not found", id);
+			summary.add(ImportSummary.Problem.NOT_FOUND);
+			return null;
+		} catch (IOException e) {
+			log.debug("Skipping title: id={} error={}", id, e.toString());
+			summary.add(ImportSummary.Problem.UNREADABLE);
+			return null;
+		}
+		
+		if (t == null) {
+			summary.add(ImportSummary.Problem.UNKNOWN_TYPE);
+		} else {
+			summary.imported(t);
+		}
+		return t;
+	}
+	
+	/**
+	 * Obtain the indicated title (see {@link #obtainData(String, TitleType, Set)}); any optional fields that were not obtained
+	 * are looked up when they are first accessed.
+	 * @return The title, or null if its type could not be obtained.
+	 * @throws IOException If the page of the title could not be downloaded or parsed.
+	 */
+	private Title obtainTitle(String id, TitleType type, Set<TitleField> fields) throws IOException {
+		TitleData data = obtainData(id, type, fields);
+		return data == null ? null : createTitle(data, enricher);
+	}
+	
+	/**
+	 * Get the data of the indicated title from the {@link TitleCache}, or download and parse its page (and cache the result) 
+	 * if it is not cached yet, or was cached without some of the requested fields.
+	 * <br>If the title is being downloaded already, that download is awaited instead of starting another one.
+	 * @param type Type of title, or null to read it from the title's page.
+	 * @param fields The optional fields to obtain; the others are not extracted, unless they were cached already.
+	 * @return The data, or null if its type could not be obtained.
+	 * @throws IOException If the page of the title could not be downloaded or parsed.
+	 */
+	private TitleData obtainData(final String id, final TitleType type, final Set<TitleField> fields) throws IOException {
+		for (boolean first = true; ; first = false) {
+			TitleData cached = titleCache.get(id);
+			if (cached != null && cached.getFields().containsAll(fields)) {
+				if (first) {
+					titleCacheHits.increment();
 				}
-				
-				
-				// make sure to avoid any duplicates
-				if (alreadyAddedTitles.contains(id)) {
-					System.out.println("skipping duplicate " + id);
-					continue;
+				refreshIfStale(cached);
+				return cached;
+			} else if (first) {
+				titleCacheMisses.increment();
+			}
+			
+			TitleData data = titleDownloads.execute(id, new SingleFlight.Call<TitleData>() {
+				@Override
+				public TitleData call() throws IOException {
+					return downloadData(id, type, fields);
 				}
-				alreadyAddedTitles.add(id);
-				
-				Document doc = Jsoup.connect(Title.BASE_URL + id).get();
-				Element e = doc.select(".titleBar .subtext a:last-child").first();
-				
-				if (e == null) {
-					System.err.println("Could not obtain type of title for " + id + ", skipping");
-					continue;
+			});
+			
+			// a download that was already in flight may have been for fewer fields; it has been cached now, so the next one adds the rest
+			if (data == null || data.getFields().containsAll(fields)) {
+				return data;
+			}
+		}
+	}
+	
+	/**
+	 * Download and parse the page of the indicated title, and cache the result; see {@link #obtainData(String, TitleType, Set)}.
+	 */
+	private TitleData downloadData(final String id, final TitleType type, Set<TitleField> fields) throws IOException {
+		TitleData cached = titleCache.get(id);
+		
+		// don't lose any fields that were cached before
+		final Set<TitleField> toExtract = EnumSet.noneOf(TitleField.class);
+		toExtract.addAll(fields);
+		if (cached != null) {
+			toExtract.addAll(cached.getFields());
+		}
+		
+		// everything is extracted in one go (including the type, if unknown), while the page is being downloaded
+		TitleData data = fetchEngine.fetch(Title.BASE_URL + id, new PageFetcher.PageReader<TitleData>() {
+			@Override
+			public TitleData read(InputStream page, String charset) throws IOException {
+				long start = System.nanoTime();
+				try {
+					return extractor.extract(id, page, charset, type, toExtract);
+				} finally {
+					parseTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
 				}
-				
-				String titleTypeDesc = e.text();			
-				titlesList.add(createTitle(id, doc, titleTypeDesc));
-			} catch (IOException e) {
-				System.err.println("Could not obtain find imdb page for '" + titleOrId + "', skipping");
 			}
-			
+		});
+		if (data == null) {
+			log.debug("Could not obtain type of title: id={}", id);
+			return null;
 		}
 		
-		return titlesList;
+		titleCache.put(data);
+		return data;
 	}
 	
-	private Title createTitle(String id, Document doc, String titleTypeDescription) throws IOException {
-		Title t;
+	/**
+	 * Download the page of the indicated title again in the background, if its data in the {@link TitleCache} is stale;
+	 * the same fields are extracted as were cached.
+	 */
+	private void refreshIfStale(final TitleData cached) {
+		final String id = cached.getId();
+		if (!titleCache.isStale(id) || pendingRefreshes.size() >= maxPendingRefreshes || !pendingRefreshes.add(id)) {
+			return;
+		}
 		
-		// find out what type of title this is
-		// not exactly elegant but hey...
-		// works for both description scraped from web, and description present in exported ratings
-		if (titleTypeDescription.contains("Series") ) {
-			t = new Series(id, doc);
-		} else if (titleTypeDescription.contains("Episode")) {
-			t = new Episode(id, doc);
+		refresher.execute(new Runnable() {
+			@Override
+			public void run() {
+				try {
+					titleDownloads.execute(id, new SingleFlight.Call<TitleData>() {
+						@Override
+						public TitleData call() throws IOException {
+							return downloadData(id, cached.getType(), cached.getFields());
+						}
+					});
+					refreshes.increment();
+				} catch (IOException | RuntimeException e) {
+					log.debug("Could not refresh stale title: id={} error={}", id, e.toString());
+					failedRefreshes.increment();
+				} finally {
+					pendingRefreshes.remove(id);
+				}
+			}
+		});
+	}
+	
+	/**
+	 * Create titles from the data in the {@link TitleCache} only, without downloading anything; 
+	 * fields that were not cached are left empty. Expired titles are left out, or, if stale titles are refreshed, refreshed in the background.
+	 * <br>Reading the titles does not count as use of them, so it does not keep them from being evicted from the cache.
+	 * @param personId IMDb id of a person (e.g. 'nm0000186'), to only include the titles they act in or direct; or null.
+	 * @param genre Genre (e.g. 'Sci-Fi'), to only include titles of that genre; or null.
+	 * @return The titles, in the order they were last looked up (least recently first).
+	 */
+	public List<Title> createTitlesFromCache(String personId, String genre) {
+		List<String> ids;
+		if (personId != null) {
+			ids = titleCache.idsWithPerson(personId);
+			if (genre != null) {
+				ids.retainAll(new HashSet<String>(titleCache.idsWithGenre(genre)));
+			}
+		} else if (genre != null) {
+			ids = titleCache.idsWithGenre(genre);
 		} else {
-			t = new Movie(id, doc);
-		}			
+			ids = titleCache.ids();
+		}
 		
-		return t;
+		List<Title> titles = new ArrayList<Title>(ids.size());
+		for (String id : ids) {
+			TitleData data = titleCache.peek(id);
+			if (data != null) {
+				refreshIfStale(data);
+				titles.add(createTitle(data, null));
+			}
+		}
+		return titles;
+	}
+	
+	private Title createTitle(TitleData data, TitleEnricher enricher) {
+		switch (data.getType()) {
+		case SERIES:
+			return new Series(data, enricher);
+		case EPISODE:
+			return new Episode(data, enricher);
+		default:
+			return new Movie(data, enricher);
+		}
 	}
 	
 }
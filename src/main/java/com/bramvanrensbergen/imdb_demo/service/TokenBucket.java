@@ -0,0 +1,57 @@
+package com.bramvanrensbergen.imdb_demo.service;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Limits the rate of requests: tokens are added at a fixed rate up to a maximum (the burst), and every request takes one.
+ * <br>Requests that find no token wait in order of arrival, each for its own reserved token.
+ * @author Bram Van Rensbergen
+ */
+public final class TokenBucket {
+
+	private final double tokensPerNano;
+
+	private final double burst;
+
+	private double tokens;
+
+	private long refilledAt;
+
+	/**
+	 * @param ratePerSecond Number of requests allowed per second, on average.
+	 * @param burst Number of requests allowed at once, after a quiet period.
+	 */
+	public TokenBucket(double ratePerSecond, int burst) {
+		if (ratePerSecond <= 0 || burst < 1) {
+			throw new IllegalArgumentException("rate and burst should be positive, got " + ratePerSecond + " and " + burst);
+		}
+		this.tokensPerNano = ratePerSecond / TimeUnit.SECONDS.toNanos(1);
+		this.burst = burst;
+		this.tokens = burst;
+		this.refilledAt = System.nanoTime();
+	}
+
+	/**
+	 * Take a token, waiting until one is available.
+	 * @throws InterruptedException If the thread was interrupted while waiting; the token is lost.
+	 */
+	public void acquire() throws InterruptedException {
+		long wait = reserve();
+		if (wait > 0) {
+			TimeUnit.NANOSECONDS.sleep(wait);
+		}
+	}
+
+	/**
+	 * Take a token, possibly one that is only added in the future.
+	 * @return Nanoseconds until the token is available.
+	 */
+	private synchronized long reserve() {
+		long now = System.nanoTime();
+		tokens = Math.min(burst, tokens + (now - refilledAt) * tokensPerNano);
+		refilledAt = now;
+
+		tokens -= 1;
+		return tokens >= 0 ? 0 : (long) Math.ceil(-tokens / tokensPerNano);
+	}
+}
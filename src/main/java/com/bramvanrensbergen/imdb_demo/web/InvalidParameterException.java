@@ -0,0 +1,21 @@
+package com.bramvanrensbergen.imdb_demo.web;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+/**
+ * Thrown when a request parameter has a value that cannot be used (e.g. an unknown field); results in a 400.
+ * @author Bram Van Rensbergen
+ */
+@ResponseStatus(HttpStatus.BAD_REQUEST)
+public class InvalidParameterException extends RuntimeException {
+
+	private static final long serialVersionUID = 1L;
+
+	/**
+	 * @param cause Why the value cannot be used.
+	 */
+	public InvalidParameterException(String name, String value, IllegalArgumentException cause) {
+		super("Invalid value for parameter '" + name + "': '" + value + "' (" + cause.getMessage() + ")", cause);
+	}
+}
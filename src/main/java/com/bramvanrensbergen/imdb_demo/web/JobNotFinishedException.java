@@ -0,0 +1,18 @@
+package com.bramvanrensbergen.imdb_demo.web;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+/**
+ * Thrown when a request needs the final results of an import job that is still running, or failed; results in a 409.
+ * @author Bram Van Rensbergen
+ */
+@ResponseStatus(HttpStatus.CONFLICT)
+public class JobNotFinishedException extends RuntimeException {
+
+	private static final long serialVersionUID = 1L;
+
+	public JobNotFinishedException(String id) {
+		super("Import job " + id + " has not finished successfully");
+	}
+}
@@ -0,0 +1,18 @@
+package com.bramvanrensbergen.imdb_demo.web;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+/**
+ * Thrown when a request refers to an import job that does not exist (anymore); results in a 404.
+ * @author Bram Van Rensbergen
+ */
+@ResponseStatus(HttpStatus.NOT_FOUND)
+public class JobNotFoundException extends RuntimeException {
+
+	private static final long serialVersionUID = 1L;
+
+	public JobNotFoundException(String id) {
+		super("No import job with id " + id);
+	}
+}
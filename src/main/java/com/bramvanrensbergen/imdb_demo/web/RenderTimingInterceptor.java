@@ -0,0 +1,53 @@
+package com.bramvanrensbergen.imdb_demo.web;
+
+import java.util.concurrent.TimeUnit;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.springframework.web.servlet.ModelAndView;
+import org.springframework.web.servlet.handler.HandlerInterceptorAdapter;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+/**
+ * Times the rendering of templates ('imdb.render', by view): from the moment the controller returns its view,
+ * until the response has been written.
+ * <br>Requests that do not render a template (e.g. redirects and json responses) are not timed.
+ * @author Bram Van Rensbergen
+ */
+public class RenderTimingInterceptor extends HandlerInterceptorAdapter {
+
+	private static final String RENDER_START = RenderTimingInterceptor.class.getName() + ".start";
+
+	private static final String RENDER_VIEW = RenderTimingInterceptor.class.getName() + ".view";
+
+	private final MeterRegistry meterRegistry;
+
+	public RenderTimingInterceptor(MeterRegistry meterRegistry) {
+		this.meterRegistry = meterRegistry;
+	}
+
+	@Override
+	public void postHandle(HttpServletRequest request, HttpServletResponse response, Object handler, ModelAndView modelAndView) {
+		if (modelAndView == null || modelAndView.getViewName() == null || modelAndView.getViewName().startsWith("redirect:")) {
+			return;
+		}
+		request.setAttribute(RENDER_VIEW, modelAndView.getViewName());
+		request.setAttribute(RENDER_START, System.nanoTime());
+	}
+
+	@Override
+	public void afterCompletion(HttpServletRequest request, HttpServletResponse response, Object handler, Exception ex) {
+		Long start = (Long) request.getAttribute(RENDER_START);
+		if (start == null) {
+			return;
+		}
+		Timer.builder("imdb.render")
+				.description("Time taken to render a template")
+				.tag("view", (String) request.getAttribute(RENDER_VIEW))
+				.register(meterRegistry)
+				.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+	}
+}
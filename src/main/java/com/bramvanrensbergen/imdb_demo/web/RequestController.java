@@ -1,17 +1,47 @@
 package com.bramvanrensbergen.imdb_demo.web;
 
+import java.io.File;
 import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
 
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
 import javax.annotation.Resource;
 
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Controller;
 import org.springframework.ui.Model;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestMethod;
 import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.ResponseBody;
+import org.springframework.web.multipart.MultipartFile;
 
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+import com.bramvanrensbergen.imdb_demo.domain.Title;
+import com.bramvanrensbergen.imdb_demo.domain.TitleColumns;
+import com.bramvanrensbergen.imdb_demo.domain.TitleField;
+import com.bramvanrensbergen.imdb_demo.domain.TitleType;
+import com.bramvanrensbergen.imdb_demo.domain.statistics.GroupBy;
+import com.bramvanrensbergen.imdb_demo.domain.statistics.RowLimits;
 import com.bramvanrensbergen.imdb_demo.domain.statistics.Statistics;
+import com.bramvanrensbergen.imdb_demo.domain.statistics.TitleFilter;
+import com.bramvanrensbergen.imdb_demo.domain.statistics.TitleQuery;
+import com.bramvanrensbergen.imdb_demo.service.ImportJob;
+import com.bramvanrensbergen.imdb_demo.service.ImportJobService;
+import com.bramvanrensbergen.imdb_demo.service.ImportOptions;
+import com.bramvanrensbergen.imdb_demo.service.ImportProgress;
+import com.bramvanrensbergen.imdb_demo.service.SearchCache;
+import com.bramvanrensbergen.imdb_demo.service.TitleCache;
 import com.bramvanrensbergen.imdb_demo.service.TitleLookupService;
 
 
@@ -21,13 +51,77 @@ public class RequestController {
 	@Resource 
 	private TitleLookupService titleLookupService;
 	
+	@Resource 
+	private ImportJobService importJobService;
+	
+	@Resource 
+	private SearchCache searchCache;
+	
+	@Resource 
+	private TitleCache titleCache;
+	
+	@Resource 
+	private MeterRegistry meterRegistry;
+	
+	/**
+	 * Statistics of at least this many titles are built on the {@link #statisticsPool}, rather than on the request's thread.
+	 */
+	@Value("${imdb.statistics.parallelThreshold:20000}")
+	private int parallelThreshold;
+	
+	/**
+	 * Number of threads that build statistics in parallel; 0 for one per core.
+	 */
+	@Value("${imdb.statistics.parallelism:0}")
+	private int parallelism;
+	
+	private ForkJoinPool statisticsPool;
+	
+	/**
+	 * Time taken to build the statistics shown by a request, from titles that were already looked up.
+	 */
+	private Timer statisticsTimer;
+	
+	/**
+	 * Time taken to run a query over the titles of an import job.
+	 */
+	private Timer queryTimer;
+	
+	@PostConstruct
+	public void start() {
+		statisticsPool = new ForkJoinPool(parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors());
+		registerMeters();
+	}
+	
+	@PreDestroy
+	public void stop() {
+		statisticsPool.shutdown();
+	}
+	
+	private void registerMeters() {
+		statisticsTimer = Timer.builder("imdb.statistics.build")
+				.description("Time taken to build the statistics of a set of titles")
+				.tag("source", "request")
+				.register(meterRegistry);
+		queryTimer = Timer.builder("imdb.query")
+				.description("Time taken to run a query over the titles of an import job")
+				.register(meterRegistry);
+	}
+	
 	/**
 	 * Redirect to a page with some statistics for all provided ids.
 	 * <br>URL should contain list of ids, separated by space, comma, plus, or '%20'. 
+	 * <br>For this and all other endpoints, 'fields' optionally lists the parts of the report to include (e.g. 'fields=actors,summary'; 
+	 * any of directors, actors, and summary); the titles are only scraped for those. By default, all are included.
+	 * Unknown fields result in a 400 (Bad Request).
+	 * <br>Likewise, 'top' optionally sets how many actors, directors, and genres the report shows (e.g. 'top=actors:100,genres:5';
+	 * categories not listed keep their default of 50 actors, 20 directors, and 10 genres); malformed limits result in a 400.
 	 */
     @RequestMapping("/title/{ids}")
-    public String requestStatsFromUrl(@PathVariable("ids") String ids, Model model) throws IOException {  		
-    	model.addAttribute("stats", new Statistics(titleLookupService.createTitlesFromSingleLineOfIds(ids)));	
+    public String requestStatsFromUrl(@PathVariable("ids") String ids, @RequestParam(value="fields", required=false) String fields, @RequestParam(value="top", required=false) String top, Model model) throws IOException {  		
+    	Set<TitleField> requestedFields = parseFields(fields);
+    	RowLimits limits = parseLimits(top);
+    	model.addAttribute("stats", buildStatistics(titleLookupService.createTitlesFromSingleLineOfIds(ids, requestedFields), requestedFields, limits));	
         return "stats";
     }
     
@@ -36,25 +130,272 @@ public class RequestController {
 	 * <br>The 'titles' parameter should contain a number of titles or titleIds, each on a separate line.
 	 */
     @RequestMapping("/stats")
-    public String requestStatsFromText(@RequestParam(value="titles") String titles, Model model) throws IOException {
-    	model.addAttribute("stats", new Statistics(titleLookupService.createTitlesFromText(titles)));	
+    public String requestStatsFromText(@RequestParam(value="titles") String titles, @RequestParam(value="fields", required=false) String fields, @RequestParam(value="top", required=false) String top, Model model) throws IOException {
+    	Set<TitleField> requestedFields = parseFields(fields);
+    	RowLimits limits = parseLimits(top);
+    	model.addAttribute("stats", buildStatistics(titleLookupService.createTitlesFromText(titles, requestedFields), requestedFields, limits));	
         return "stats";
     }
     
     /**
 	 * Redirect to a page with some statistics for all provided ids.
 	 * <br>The 'titles' parameter should contain a number of titles or titleIds, each on a separate line.
+	 * <br>For this and all other endpoints handling exported ratings, 'csvOnly=true' builds the titles from the exported columns 
+	 * instead of scraping their pages (fast, but without cast lists).
 	 */
     @RequestMapping("/exportedRatings")
-    public String requestStatsFromExportedRatings(@RequestParam(value="exportedRatings") String exportedRatings, Model model) throws IOException {
-    	model.addAttribute("stats", new Statistics(titleLookupService.createTitlesFromExportedRatings(exportedRatings)));	
+    public String requestStatsFromExportedRatings(@RequestParam(value="exportedRatings") String exportedRatings, 
+    		@RequestParam(value="csvOnly", defaultValue="false") boolean csvOnly, @RequestParam(value="fields", required=false) String fields, @RequestParam(value="top", required=false) String top, Model model) throws IOException {
+    	ImportOptions options = new ImportOptions(csvOnly, parseFields(fields), parseLimits(top));
+    	model.addAttribute("stats", buildStatistics(titleLookupService.createTitlesFromExportedRatings(exportedRatings, options, null), options.getFields(), options.getLimits()));	
+        return "stats";
+    }
+
+    /**
+	 * Redirect to a page with some statistics for all titles in an uploaded file of exported ratings.
+	 * <br>The 'file' part should contain the exported ratings in csv format; they are parsed while being read.
+	 */
+    @RequestMapping(value = "/exportedRatings/upload", method = RequestMethod.POST)
+    public String requestStatsFromUploadedRatings(@RequestParam(value="file") MultipartFile file, 
+    		@RequestParam(value="csvOnly", defaultValue="false") boolean csvOnly, @RequestParam(value="fields", required=false) String fields, @RequestParam(value="top", required=false) String top, Model model) throws IOException {
+    	ImportOptions options = new ImportOptions(csvOnly, parseFields(fields), parseLimits(top));
+    	model.addAttribute("stats", buildStatistics(titleLookupService.createTitlesFromExportedRatings(file.getInputStream(), options, null), options.getFields(), options.getLimits()));	
         return "stats";
     }
 
     @RequestMapping("/sample")
-    public String requestSampleStats(Model model) throws IOException, InterruptedException, ExecutionException {     	
-    	model.addAttribute("stats", new Statistics(titleLookupService.createTitlesFromSampleData()));
+    public String requestSampleStats(@RequestParam(value="csvOnly", defaultValue="false") boolean csvOnly, @RequestParam(value="fields", required=false) String fields, @RequestParam(value="top", required=false) String top, Model model) throws IOException, InterruptedException, ExecutionException {     	
+    	ImportOptions options = new ImportOptions(csvOnly, parseFields(fields), parseLimits(top));
+    	model.addAttribute("stats", buildStatistics(titleLookupService.createTitlesFromSampleData(options, null), options.getFields(), options.getLimits()));
+        return "stats";
+    }
+    
+    /**
+	 * Start looking up the provided exported ratings in the background, and redirect to a page showing the progress of that job.
+	 * <br>The id of the job is the last part of the url redirected to.
+	 */
+    @RequestMapping(value = "/jobs/exportedRatings", method = RequestMethod.POST)
+    public String startExportedRatingsJob(@RequestParam(value="exportedRatings") String exportedRatings, 
+    		@RequestParam(value="csvOnly", defaultValue="false") boolean csvOnly, @RequestParam(value="fields", required=false) String fields, @RequestParam(value="top", required=false) String top) {
+    	return "redirect:/jobs/" + importJobService.submitExportedRatings(exportedRatings, new ImportOptions(csvOnly, parseFields(fields), parseLimits(top))).getId();
+    }
+    
+    /**
+	 * Start looking up an uploaded file of exported ratings in the background, and redirect to a page showing the progress of that job.
+	 * <br>The upload is moved to a temporary file that the job streams from, so it does not need to fit in memory;
+	 * the job deletes it once done. Invalid parameters are rejected before anything is written.
+	 */
+    @RequestMapping(value = "/jobs/exportedRatings/upload", method = RequestMethod.POST)
+    public String startUploadedRatingsJob(@RequestParam(value="file") MultipartFile file, 
+    		@RequestParam(value="csvOnly", defaultValue="false") boolean csvOnly, @RequestParam(value="fields", required=false) String fields, @RequestParam(value="top", required=false) String top) throws IOException {
+    	ImportOptions options = new ImportOptions(csvOnly, parseFields(fields), parseLimits(top));
+    	File ratingsFile = File.createTempFile("exportedRatings", ".csv");
+    	try {
+    		file.transferTo(ratingsFile);
+    		return "redirect:/jobs/" + importJobService.submitExportedRatings(ratingsFile, options).getId();
+    	} catch (IOException | RuntimeException e) {
+    		ratingsFile.delete();
+    		throw e;
+    	}
+    }
+    
+    /**
+	 * Start looking up the sample data in the background, and redirect to a page showing the progress of that job.
+	 */
+    @RequestMapping(value = "/jobs/sample", method = RequestMethod.POST)
+    public String startSampleJob(@RequestParam(value="csvOnly", defaultValue="false") boolean csvOnly, @RequestParam(value="fields", required=false) String fields, @RequestParam(value="top", required=false) String top) {
+    	return "redirect:/jobs/" + importJobService.submitSampleData(new ImportOptions(csvOnly, parseFields(fields), parseLimits(top))).getId();
+    }
+    
+    /**
+	 * Page showing the progress of the indicated job, which redirects to its statistics once it is done.
+	 */
+    @RequestMapping("/jobs/{id}")
+    public String showJob(@PathVariable("id") String id, Model model) {
+    	model.addAttribute("job", getJob(id));
+        return "job";
+    }
+    
+    /**
+	 * @return The state of the indicated job, and how many titles were fetched, failed, or remain to be looked up.
+	 */
+    @RequestMapping("/jobs/{id}/progress")
+    @ResponseBody
+    public Map<String, Object> requestJobProgress(@PathVariable("id") String id) {
+    	ImportJob job = getJob(id);
+    	ImportProgress progress = job.getProgress();
+    	
+    	Map<String, Object> result = new LinkedHashMap<String, Object>();
+    	result.put("id", job.getId());
+    	result.put("state", job.getState());
+    	result.put("total", progress.getTotal());
+    	result.put("fetched", progress.getFetched());
+    	result.put("failed", progress.getFailed());
+    	result.put("remaining", progress.getRemaining());
+    	result.put("error", job.getError());
+    	return result;
+    }
+    
+    /**
+	 * Redirect to a page with some statistics for all titles of the indicated job; 
+	 * if the job is still running, these are the statistics for the titles looked up so far.
+	 */
+    @RequestMapping("/jobs/{id}/stats")
+    public String requestJobStats(@PathVariable("id") String id, Model model) {
+    	model.addAttribute("stats", getJob(id).getPartialStatistics());
+        return "stats";
+    }
+    
+    /**
+	 * @return The result of a query over all titles of the indicated job, which should be done: the aggregate of all titles 
+	 * 	that match the filters ('fromYear', 'toYear', 'genre', 'minRating', and 'type'; each optional), 
+	 * 	and, if 'groupBy' is set (genre, director, actor, decade, or type), the aggregate of each group of matched titles;
+	 * 	the 'limit' groups with most titles are returned.
+	 * <br>Each aggregate holds the same metrics as a row of the statistics page.
+	 * An unknown type or grouping, or a limit outside 0 to 1000, results in a 400 (Bad Request).
+	 */
+    @RequestMapping("/jobs/{id}/query")
+    @ResponseBody
+    public Map<String, Object> queryJob(@PathVariable("id") String id, 
+    		@RequestParam(value="fromYear", required=false) Integer fromYear, @RequestParam(value="toYear", required=false) Integer toYear, 
+    		@RequestParam(value="genre", required=false) String genre, @RequestParam(value="minRating", required=false) Double minRating, 
+    		@RequestParam(value="type", required=false) String type, @RequestParam(value="groupBy", required=false) String groupBy, 
+    		@RequestParam(value="limit", defaultValue="50") int limit) {
+    	TitleFilter filter = new TitleFilter(fromYear, toYear, genre, minRating, parseType(type));
+    	TitleQuery query = createQuery(filter, parseGroupBy(groupBy), limit);
+    	
+    	ImportJob job = getJob(id);
+    	if (job.getState() != ImportJob.State.DONE) {
+    		throw new JobNotFinishedException(id);
+    	}
+    	
+    	long start = System.nanoTime();
+    	TitleColumns columns = job.getColumns();
+    	TitleQuery.Result queryResult = query.run(columns);
+    	queryTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+    	
+    	Map<String, Object> result = new LinkedHashMap<String, Object>();
+    	result.put("titles", columns.size());
+    	result.put("matched", queryResult.getMatched());
+    	result.put("groups", queryResult.getGroups());
+    	return result;
+    }
+    
+    /**
+	 * Redirect to a page with some statistics for titles that were looked up before, by any user, without looking up anything:
+	 * only the data stored in the {@link TitleCache} is used (expired titles are left out, or refreshed in the background if enabled).
+	 * <br>'person' optionally limits them to the titles a person (by IMDb id, e.g. 'nm0000186') acted in or directed, 
+	 * and 'genre' to a single genre (e.g. 'Sci-Fi'); by default, all stored titles are included.
+	 */
+    @RequestMapping("/corpus/stats")
+    public String requestCorpusStats(@RequestParam(value="person", required=false) String person, 
+    		@RequestParam(value="genre", required=false) String genre, @RequestParam(value="top", required=false) String top, Model model) {
+    	RowLimits limits = parseLimits(top);
+    	model.addAttribute("stats", buildStatistics(titleLookupService.createTitlesFromCache(person, genre), TitleField.ALL, limits));
         return "stats";
     }
     
+    /**
+	 * @return How many titles were looked up before (and are kept in the {@link TitleCache}), how many persons they hold, 
+	 * 	and how many titles there are of each genre.
+	 */
+    @RequestMapping("/corpus")
+    @ResponseBody
+    public Map<String, Object> requestCorpusSummary() {
+    	Map<String, Object> result = new LinkedHashMap<String, Object>();
+    	result.put("titles", titleCache.size());
+    	result.put("persons", titleCache.personCount());
+    	result.put("genres", titleCache.genreCounts());
+    	return result;
+    }
+    
+    /**
+	 * @return How many title searches were answered from the cache, and how many had to search IMDb.
+	 */
+    @RequestMapping("/cache/searches")
+    @ResponseBody
+    public Map<String, Object> requestSearchCacheStats() {
+    	Map<String, Object> result = new LinkedHashMap<String, Object>();
+    	result.put("size", searchCache.size());
+    	result.put("hits", searchCache.getHits());
+    	result.put("misses", searchCache.getMisses());
+    	return result;
+    }
+    
+    private Statistics buildStatistics(List<Title> titles, Set<TitleField> fields, RowLimits limits) {
+    	long start = System.nanoTime();
+    	try {
+    		return titles.size() >= parallelThreshold ? new Statistics(titles, fields, limits, statisticsPool) : new Statistics(titles, fields, limits);
+    	} finally {
+    		statisticsTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+    	}
+    }
+    
+    /**
+	 * @throws InvalidParameterException If an unknown field is listed.
+	 */
+    private static Set<TitleField> parseFields(String fields) {
+    	try {
+    		return TitleField.parse(fields);
+    	} catch (IllegalArgumentException e) {
+    		throw new InvalidParameterException("fields", fields, e);
+    	}
+    }
+    
+    /**
+	 * @throws InvalidParameterException If the limits are malformed, or out of range.
+	 */
+    private static RowLimits parseLimits(String top) {
+    	try {
+    		return RowLimits.parse(top);
+    	} catch (IllegalArgumentException e) {
+    		throw new InvalidParameterException("top", top, e);
+    	}
+    }
+    
+    /**
+	 * @return The type of title, or null if none is provided.
+	 * @throws InvalidParameterException If the type is unknown.
+	 */
+    private static TitleType parseType(String type) {
+    	if (type == null || type.trim().isEmpty()) {
+    		return null;
+    	}
+    	try {
+    		return TitleType.valueOf(type.trim().toUpperCase());
+    	} catch (IllegalArgumentException e) {
+    		throw new InvalidParameterException("type", type, e);
+    	}
+    }
+    
+    /**
+	 * @throws InvalidParameterException If the grouping is unknown.
+	 */
+    private static GroupBy parseGroupBy(String groupBy) {
+    	try {
+    		return GroupBy.parse(groupBy);
+    	} catch (IllegalArgumentException e) {
+    		throw new InvalidParameterException("groupBy", groupBy, e);
+    	}
+    }
+    
+    /**
+	 * @throws InvalidParameterException If the limit is out of range.
+	 */
+    private static TitleQuery createQuery(TitleFilter filter, GroupBy groupBy, int limit) {
+    	try {
+    		return new TitleQuery(filter, groupBy, limit);
+    	} catch (IllegalArgumentException e) {
+    		throw new InvalidParameterException("limit", String.valueOf(limit), e);
+    	}
+    }
+    
+    private ImportJob getJob(String id) {
+    	ImportJob job = importJobService.getJob(id);
+    	if (job == null) {
+    		throw new JobNotFoundException(id);
+    	}
+    	return job;
+    }
+    
 }
@@ -0,0 +1,25 @@
+package com.bramvanrensbergen.imdb_demo.web;
+
+import javax.annotation.Resource;
+
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurerAdapter;
+
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * Registers the interceptors of the web layer.
+ * @author Bram Van Rensbergen
+ */
+@Configuration
+public class WebConfig extends WebMvcConfigurerAdapter {
+
+	@Resource
+	private MeterRegistry meterRegistry;
+
+	@Override
+	public void addInterceptors(InterceptorRegistry registry) {
+		registry.addInterceptor(new RenderTimingInterceptor(meterRegistry));
+	}
+}
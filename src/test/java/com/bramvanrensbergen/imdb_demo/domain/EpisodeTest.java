@@ -0,0 +1,32 @@
+package com.bramvanrensbergen.imdb_demo.domain;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.util.Collections;
+
+import org.junit.Test;
+
+/**
+ * @author Bram Van Rensbergen
+ */
+public class EpisodeTest {
+
+	private static Episode createEpisode(String seriesName, String seasonAndEpisodeNumberDesc) {
+		return new Episode(new TitleData(TitleType.EPISODE, "tt4108304", Collections.<TitleField>emptySet(), "Episode",
+				Collections.<String>emptySet(), null, null, null, null, Collections.<Person>emptyList(), Collections.<Person>emptyList(),
+				seriesName, null, seasonAndEpisodeNumberDesc));
+	}
+
+	@Test
+	public void subTitleHoldsSeriesAndEpisodeNumber() {
+		assertEquals("Series, Season 1, Episode 2", createEpisode("Series", "Season 1 |Episode 2").getSubTitle());
+	}
+
+	@Test
+	public void subTitleLeavesOutWhatIsUnknown() {
+		assertEquals("Series", createEpisode("Series", null).getSubTitle());
+		assertEquals("Season 1, Episode 2", createEpisode(null, "Season 1 |Episode 2").getSubTitle());
+		assertNull(createEpisode(null, null).getSubTitle());
+	}
+}
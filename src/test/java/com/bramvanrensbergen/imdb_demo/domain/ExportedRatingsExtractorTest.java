@@ -0,0 +1,99 @@
+package com.bramvanrensbergen.imdb_demo.domain;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.LinkedHashSet;
+
+import org.apache.commons.csv.CSVFormat;
+import org.apache.commons.csv.CSVParser;
+import org.apache.commons.csv.CSVRecord;
+import org.junit.Test;
+
+/**
+ * @author Bram Van Rensbergen
+ */
+public class ExportedRatingsExtractorTest {
+
+	private static CSVRecord parse(String row) throws IOException {
+		return CSVParser.parse(row, CSVFormat.DEFAULT).getRecords().get(0);
+	}
+
+	@Test
+	public void extractsColumns() throws IOException {
+		TitleData data = new ExportedRatingsExtractor().extract(
+				parse("1,tt0090756,,,,Blue Velvet,Feature Film,David Lynch,8,7.7,120,1986,\"crime, mystery, film_noir\""));
+
+		assertEquals(TitleType.MOVIE, data.getType());
+		assertEquals("tt0090756", data.getId());
+		assertEquals("Blue Velvet", data.getTitle());
+		assertEquals(Double.valueOf(7.7), data.getRating());
+		assertEquals(Integer.valueOf(1986), data.getYearOfRelease());
+		assertEquals(new LinkedHashSet<String>(Arrays.asList("Crime", "Mystery", "Film-Noir")), data.getGenres());
+		assertEquals(1, data.getDirectorsOrCreators().size());
+		assertEquals("David Lynch", data.getDirectorsOrCreators().get(0).getName());
+		assertNull(data.getDirectorsOrCreators().get(0).getId());
+	}
+
+	@Test
+	public void leavesOutGenresUnknownToImdb() throws IOException {
+		TitleData data = new ExportedRatingsExtractor().extract(
+				parse("1,tt0090756,,,,Blue Velvet,Feature Film,,8,7.7,120,1986,\"sci_fi, reality_tv, not_a_genre, \""));
+
+		assertEquals(new LinkedHashSet<String>(Arrays.asList("Sci-Fi", "Reality-TV")), data.getGenres());
+	}
+
+	@Test
+	public void sharesDirectorsWithinAFileOnly() throws IOException {
+		CSVRecord first = parse("1,tt0090756,,,,Blue Velvet,Feature Film,\"David Lynch, Someone\",8,7.7,120,1986,crime");
+		CSVRecord second = parse("2,tt0166924,,,,Mulholland Drive,Feature Film,David Lynch,9,7.9,147,2001,drama");
+
+		ExportedRatingsExtractor extractor = new ExportedRatingsExtractor();
+		Person director = extractor.extract(first).getDirectorsOrCreators().get(0);
+		assertSame(director, extractor.extract(second).getDirectorsOrCreators().get(0));
+
+		Person other = new ExportedRatingsExtractor().extract(second).getDirectorsOrCreators().get(0);
+		assertEquals("David Lynch", other.getName());
+		assertNotSame(director, other);
+		assertNotSame(director.getKey(), other.getKey());
+	}
+
+	@Test
+	public void returnsNullForIncompleteRows() throws IOException {
+		assertNull(new ExportedRatingsExtractor().extract(parse("1,tt0090756,,,,Blue Velvet,Feature Film")));
+	}
+
+	@Test
+	public void completesDataCachedWithoutDirectors() throws IOException {
+		TitleData cached = new TitleData(TitleType.MOVIE, "tt0090756", EnumSet.of(TitleField.ACTORS), "Blue Velvet",
+				new LinkedHashSet<String>(Arrays.asList("Drama")), 7.8, null, null, 1986,
+				Collections.<Person>emptyList(), Arrays.asList(Registry.person("nm0000102", "Kyle MacLachlan")), null, null, null);
+		CSVRecord row = parse("1,tt0090756,,,,Blue Velvet,Feature Film,David Lynch,8,7.7,120,1986,crime");
+
+		TitleData data = new ExportedRatingsExtractor().complete(cached, row);
+		assertEquals(EnumSet.of(TitleField.DIRECTORS, TitleField.ACTORS), data.getFields());
+		assertEquals("David Lynch", data.getDirectorsOrCreators().get(0).getName());
+		assertEquals("Kyle MacLachlan", data.getPrimaryActors().get(0).getName());
+		assertEquals(Double.valueOf(7.8), data.getRating());
+		assertEquals(Collections.singleton("Drama"), data.getGenres());
+		assertEquals("2h", data.getRuntimeString());
+	}
+
+	@Test
+	public void keepsCachedDataHoldingAllFields() throws IOException {
+		TitleData cached = new TitleData(TitleType.MOVIE, "tt0090756", EnumSet.of(TitleField.DIRECTORS), "Blue Velvet",
+				Collections.<String>emptySet(), 7.8, null, null, 1986,
+				Arrays.asList(Registry.person("nm0000186", "David Lynch")), Collections.<Person>emptyList(), null, null, null);
+		CSVRecord row = parse("1,tt0090756,,,,Blue Velvet,Feature Film,David Lynch,8,7.7,120,1986,crime");
+
+		assertSame(cached, new ExportedRatingsExtractor().complete(cached, row));
+		assertTrue(new ExportedRatingsExtractor().complete(cached, row).getGenres().isEmpty());
+	}
+}
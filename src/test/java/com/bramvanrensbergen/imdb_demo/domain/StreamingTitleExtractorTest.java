@@ -0,0 +1,123 @@
+package com.bramvanrensbergen.imdb_demo.domain;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+
+import org.junit.Test;
+import org.springframework.util.StreamUtils;
+
+/**
+ * Checks that {@link StreamingTitleExtractor} extracts the same data as {@link DomTitleExtractor}, from the recorded pages
+ * (a movie, a series, and an episode), and from variants of them that stress the tokenizer.
+ * @author Bram Van Rensbergen
+ */
+public class StreamingTitleExtractorTest {
+
+	private static final String MOVIE_ID = "tt0090756";
+
+	private static final List<String> IDS = Arrays.asList(MOVIE_ID, "tt4093826", "tt4108304");
+
+	private final DomTitleExtractor dom = new DomTitleExtractor();
+
+	private final StreamingTitleExtractor streaming = new StreamingTitleExtractor();
+
+	private static String page(String id) throws IOException {
+		try (InputStream in = StreamingTitleExtractorTest.class.getResourceAsStream("/fixtures/" + id + ".html")) {
+			return StreamUtils.copyToString(in, StandardCharsets.UTF_8);
+		}
+	}
+
+	/**
+	 * @return The movie page, with the indicated text in place of the first part of its summary.
+	 */
+	private static String movieWithSummary(String summary) throws IOException {
+		String page = page(MOVIE_ID);
+		String original = "A college student finds a severed ear in a field,";
+		assertTrue(page.contains(original));
+		return page.replace(original, summary);
+	}
+
+	private void assertSameData(String id, String page, TitleType type, Set<TitleField> fields) throws IOException {
+		byte[] bytes = page.getBytes(StandardCharsets.UTF_8);
+		String expected = describe(dom.extract(id, new ByteArrayInputStream(bytes), null, type, fields));
+		String actual = describe(streaming.extract(id, new ByteArrayInputStream(bytes), null, type, fields));
+		assertEquals(id + ", fields " + fields + ", type " + type, expected, actual);
+	}
+
+	@Test
+	public void extractsSameDataAsDomForAllFields() throws IOException {
+		for (String id : IDS) {
+			String page = page(id);
+			TitleType type = dom.extract(id, new ByteArrayInputStream(page.getBytes(StandardCharsets.UTF_8)), null, null, TitleField.ALL)
+					.getType();
+			for (Set<TitleField> fields : fieldCombinations()) {
+				assertSameData(id, page, type, fields);
+				assertSameData(id, page, null, fields);
+			}
+		}
+	}
+
+	@Test
+	public void decodesEntities() throws IOException {
+		assertSameData(MOVIE_ID, movieWithSummary("Tom &amp; Jerry&#39;s &quot;ear&quot; &eacute;t&eacute; &#x41;&#66; &copy "
+				+ "&nbsp;&lt;b&gt; &unknown; &amp"), null, TitleField.ALL);
+	}
+
+	@Test
+	public void spacesLineBreaksAndBlocks() throws IOException {
+		assertSameData(MOVIE_ID, movieWithSummary("A college<br>student<br/>finds <b>a</b><i>severed</i> ear<p>in a</p>"
+				+ "<div>field</div>,\n\t  twice"), null, TitleField.ALL);
+	}
+
+	@Test
+	public void extractsSameDataFromTruncatedPages() throws IOException {
+		for (String id : IDS) {
+			String page = page(id);
+			for (int length = 0; length < page.length(); length += page.length() / 97) {
+				assertSameData(id, page.substring(0, length), null, TitleField.ALL);
+			}
+		}
+	}
+
+	private static List<Set<TitleField>> fieldCombinations() {
+		List<Set<TitleField>> combinations = new ArrayList<Set<TitleField>>();
+		TitleField[] all = TitleField.values();
+		for (int mask = 0; mask < 1 << all.length; mask++) {
+			Set<TitleField> fields = EnumSet.noneOf(TitleField.class);
+			for (int i = 0; i < all.length; i++) {
+				if ((mask & 1 << i) != 0) {
+					fields.add(all[i]);
+				}
+			}
+			combinations.add(fields);
+		}
+		return combinations;
+	}
+
+	private static String describe(TitleData data) {
+		if (data == null) {
+			return "null";
+		}
+		return Arrays.asList(data.getType(), data.getId(), data.getFields(), data.getTitle(), data.getGenres(), data.getRating(),
+				data.getSummaryText(), data.getRuntimeString(), data.getYearOfRelease(), describe(data.getDirectorsOrCreators()),
+				describe(data.getPrimaryActors()), data.getSeriesName(), data.getSeriesId(), data.getSeasonAndEpisodeNumberDesc()).toString();
+	}
+
+	private static String describe(List<Person> persons) {
+		List<String> descriptions = new ArrayList<String>();
+		for (Person p : persons) {
+			descriptions.add(p.getId() + ":" + p.getName());
+		}
+		return descriptions.toString();
+	}
+}
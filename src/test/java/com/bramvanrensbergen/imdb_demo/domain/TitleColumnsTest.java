@@ -0,0 +1,53 @@
+package com.bramvanrensbergen.imdb_demo.domain;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+
+import org.junit.Test;
+
+/**
+ * @author Bram Van Rensbergen
+ */
+public class TitleColumnsTest {
+
+	@Test
+	public void numbersPersonsInOrderOfAppearance() {
+		Person director = Registry.person("nm0000186", "David Lynch");
+		Person actor = Registry.person("nm0000154", "Mel Gibson");
+		Person other = Registry.newPersonWithoutId("Someone");
+
+		TitleColumns columns = new TitleColumns();
+		columns.add(createData("tt0090756", Arrays.asList(director), Arrays.asList(actor, other)), 8.0);
+		columns.add(createData("tt0166924", Arrays.asList(director), Collections.<Person>emptyList()), null);
+
+		assertEquals(2, columns.size());
+		assertEquals(3, columns.personCount());
+		// actors of a title are added before its directors
+		assertSame(actor, columns.getPerson(0));
+		assertSame(other, columns.getPerson(1));
+		assertSame(director, columns.getPerson(2));
+
+		TitleColumns.Adjacency actors = columns.getActors();
+		assertEquals(2, actors.end(0) - actors.start(0));
+		assertEquals(1, actors.key(actors.start(0) + 1));
+		TitleColumns.Adjacency directors = columns.getDirectors();
+		assertEquals(2, directors.key(directors.start(0)));
+		assertEquals(2, directors.key(directors.start(1)));
+		assertEquals(actors.start(1), actors.end(1));
+
+		assertTrue(columns.hasUserRating(0));
+		assertFalse(columns.hasUserRating(1));
+	}
+
+	private static TitleData createData(String id, List<Person> directors, List<Person> actors) {
+		return new TitleData(TitleType.MOVIE, id, TitleField.ALL, id, new LinkedHashSet<String>(Arrays.asList("Drama")), 7.0, null,
+				"2h", 2001, directors, actors, null, null, null);
+	}
+}
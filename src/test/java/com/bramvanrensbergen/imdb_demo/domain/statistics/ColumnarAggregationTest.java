@@ -0,0 +1,60 @@
+package com.bramvanrensbergen.imdb_demo.domain.statistics;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+
+import org.junit.Test;
+
+import com.bramvanrensbergen.imdb_demo.domain.Title;
+import com.bramvanrensbergen.imdb_demo.domain.TitleColumns;
+import com.bramvanrensbergen.imdb_demo.domain.TitleField;
+
+/**
+ * @author Bram Van Rensbergen
+ */
+public class ColumnarAggregationTest {
+
+	private static final RowLimits ALL_ROWS = new RowLimits(RowLimits.MAX_ROWS, RowLimits.MAX_ROWS, RowLimits.MAX_ROWS);
+
+	private static Statistics assertSameAsAggregator(List<Title> titles, Set<TitleField> fields, RowLimits limits) {
+		Statistics columnar = new Statistics(titles, TitleColumns.of(titles, fields), limits);
+		TestTitles.assertIdentical(new Statistics(titles, fields, limits), columnar);
+		return columnar;
+	}
+
+	@Test
+	public void buildsSameStatisticsAsAggregator() {
+		assertSameAsAggregator(TestTitles.create(2000, 42), TitleField.ALL, ALL_ROWS);
+	}
+
+	@Test
+	public void buildsSameStatisticsForSomeFields() {
+		assertSameAsAggregator(TestTitles.create(500, 7), EnumSet.of(TitleField.DIRECTORS), ALL_ROWS);
+		assertSameAsAggregator(TestTitles.create(500, 7), EnumSet.of(TitleField.ACTORS, TitleField.SUMMARY), ALL_ROWS);
+	}
+
+	@Test
+	public void handlesFewOrNoTitles() {
+		assertSameAsAggregator(TestTitles.create(1, 3), TitleField.ALL, ALL_ROWS);
+		assertSameAsAggregator(Collections.<Title>emptyList(), TitleField.ALL, ALL_ROWS);
+	}
+
+	@Test
+	public void keepsOnlyTopRows() {
+		Statistics columnar = assertSameAsAggregator(TestTitles.create(2000, 42), TitleField.ALL, new RowLimits(10, 5, 3));
+		assertEquals(10, columnar.getActorStats().size());
+		assertEquals(5, columnar.getDirectorStats().size());
+		assertEquals(3, columnar.getGenreStats().size());
+	}
+
+	@Test
+	public void keepsNoRowsForZeroLimits() {
+		Statistics columnar = assertSameAsAggregator(TestTitles.create(200, 5), TitleField.ALL, new RowLimits(0, 0, 0));
+		assertEquals(0, columnar.getActorStats().size());
+		assertEquals(0, columnar.getGenreStats().size());
+	}
+}
@@ -0,0 +1,30 @@
+package com.bramvanrensbergen.imdb_demo.domain.statistics;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import org.junit.Test;
+
+/**
+ * @author Bram Van Rensbergen
+ */
+public class GroupByTest {
+
+	@Test
+	public void parsesAnyCase() {
+		assertEquals(GroupBy.DECADE, GroupBy.parse("decade"));
+		assertEquals(GroupBy.GENRE, GroupBy.parse(" Genre "));
+		assertEquals(GroupBy.ACTOR, GroupBy.parse("ACTOR"));
+	}
+
+	@Test
+	public void doesNotGroupWhenNoneProvided() {
+		assertNull(GroupBy.parse(null));
+		assertNull(GroupBy.parse(" "));
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void rejectsUnknownGrouping() {
+		GroupBy.parse("country");
+	}
+}
@@ -0,0 +1,66 @@
+package com.bramvanrensbergen.imdb_demo.domain.statistics;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+
+import org.junit.Test;
+
+import com.bramvanrensbergen.imdb_demo.domain.Title;
+import com.bramvanrensbergen.imdb_demo.domain.TitleField;
+
+/**
+ * @author Bram Van Rensbergen
+ */
+public class ParallelAggregationTest {
+
+	private static final RowLimits ALL_ROWS = new RowLimits(RowLimits.MAX_ROWS, RowLimits.MAX_ROWS, RowLimits.MAX_ROWS);
+
+	private static void assertSameAsSequential(List<Title> titles, Set<TitleField> fields, int threads) {
+		ForkJoinPool pool = new ForkJoinPool(threads);
+		try {
+			TestTitles.assertIdentical(new Statistics(titles, fields, ALL_ROWS), new Statistics(titles, fields, ALL_ROWS, pool));
+		} finally {
+			pool.shutdown();
+		}
+	}
+
+	@Test
+	public void buildsSameStatisticsAsSequentially() {
+		List<Title> titles = TestTitles.create(2000, 42);
+		for (int threads : new int[] { 1, 2, 3, 4, 8 }) {
+			assertSameAsSequential(titles, TitleField.ALL, threads);
+		}
+	}
+
+	@Test
+	public void buildsSameStatisticsWithoutActors() {
+		assertSameAsSequential(TestTitles.create(500, 7), EnumSet.of(TitleField.DIRECTORS), 3);
+	}
+
+	@Test
+	public void handlesFewerTitlesThanThreads() {
+		assertSameAsSequential(TestTitles.create(3, 1), TitleField.ALL, 8);
+		assertSameAsSequential(Collections.<Title>emptyList(), TitleField.ALL, 4);
+	}
+
+	@Test
+	public void keepsOnlyTopRows() {
+		List<Title> titles = TestTitles.create(2000, 42);
+		RowLimits limits = new RowLimits(10, 5, 3);
+		ForkJoinPool pool = new ForkJoinPool(4);
+		try {
+			Statistics parallel = new Statistics(titles, TitleField.ALL, limits, pool);
+			TestTitles.assertIdentical(new Statistics(titles, TitleField.ALL, limits), parallel);
+			assertEquals(10, parallel.getActorStats().size());
+			assertEquals(5, parallel.getDirectorStats().size());
+			assertEquals(3, parallel.getGenreStats().size());
+		} finally {
+			pool.shutdown();
+		}
+	}
+}
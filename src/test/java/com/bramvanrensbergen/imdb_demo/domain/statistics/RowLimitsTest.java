@@ -0,0 +1,51 @@
+package com.bramvanrensbergen.imdb_demo.domain.statistics;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+import org.junit.Test;
+
+/**
+ * @author Bram Van Rensbergen
+ */
+public class RowLimitsTest {
+
+	@Test
+	public void defaultsWhenNoneProvided() {
+		assertSame(RowLimits.DEFAULT, RowLimits.parse(null));
+		assertSame(RowLimits.DEFAULT, RowLimits.parse(" "));
+	}
+
+	@Test
+	public void parsesListedCategories() {
+		RowLimits limits = RowLimits.parse("Actors: 100, genres:0");
+		assertEquals(100, limits.getActors());
+		assertEquals(RowLimits.DEFAULT.getDirectors(), limits.getDirectors());
+		assertEquals(0, limits.getGenres());
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void rejectsUnknownCategory() {
+		RowLimits.parse("writers:5");
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void rejectsMissingLimit() {
+		RowLimits.parse("actors");
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void rejectsNonNumericLimit() {
+		RowLimits.parse("actors:many");
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void rejectsLimitAboveMaximum() {
+		RowLimits.parse("actors:" + (RowLimits.MAX_ROWS + 1));
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void rejectsNegativeLimit() {
+		new RowLimits(-1, 0, 0);
+	}
+}
@@ -0,0 +1,74 @@
+package com.bramvanrensbergen.imdb_demo.domain.statistics;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import org.junit.Test;
+
+/**
+ * @author Bram Van Rensbergen
+ */
+public class RunningStatTest {
+
+	private static final double DELTA = 1e-9;
+
+	@Test
+	public void emptySeriesHasNoValues() {
+		RunningStat stat = new RunningStat();
+
+		assertEquals(0, stat.getCount());
+		assertNull(stat.getMean());
+		assertNull(stat.getIntegerMean());
+		assertNull(stat.getMin());
+		assertNull(stat.getMax());
+		assertNull(stat.getVariance());
+	}
+
+	@Test
+	public void aggregatesSeries() {
+		RunningStat stat = new RunningStat();
+		for (double x : new double[] { 2, 4, 4, 4, 5, 5, 7, 9 }) {
+			stat.add(x);
+		}
+
+		assertEquals(8, stat.getCount());
+		assertEquals(5, stat.getMean(), DELTA);
+		assertEquals(Integer.valueOf(5), stat.getIntegerMean());
+		assertEquals(2, stat.getMin(), DELTA);
+		assertEquals(9, stat.getMax(), DELTA);
+		assertEquals(4, stat.getVariance(), DELTA);
+	}
+
+	@Test
+	public void integerMeanIsRoundedDown() {
+		RunningStat stat = new RunningStat();
+		stat.add(1);
+		stat.add(2);
+
+		assertEquals(1.5, stat.getMean(), DELTA);
+		assertEquals(Integer.valueOf(1), stat.getIntegerMean());
+	}
+
+	@Test
+	public void singleValueHasNoVariance() {
+		RunningStat stat = new RunningStat();
+		stat.add(-3.5);
+
+		assertEquals(-3.5, stat.getMin(), DELTA);
+		assertEquals(-3.5, stat.getMax(), DELTA);
+		assertEquals(0, stat.getVariance(), DELTA);
+	}
+
+	@Test
+	public void copyIsIndependent() {
+		RunningStat stat = new RunningStat();
+		stat.add(1);
+		RunningStat copy = new RunningStat(stat);
+		stat.add(3);
+
+		assertEquals(1, copy.getCount());
+		assertEquals(1, copy.getMax(), DELTA);
+		assertEquals(2, stat.getCount());
+		assertEquals(3, stat.getMax(), DELTA);
+	}
+}
@@ -0,0 +1,119 @@
+package com.bramvanrensbergen.imdb_demo.domain.statistics;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import com.bramvanrensbergen.imdb_demo.domain.Episode;
+import com.bramvanrensbergen.imdb_demo.domain.Movie;
+import com.bramvanrensbergen.imdb_demo.domain.Person;
+import com.bramvanrensbergen.imdb_demo.domain.Registry;
+import com.bramvanrensbergen.imdb_demo.domain.Series;
+import com.bramvanrensbergen.imdb_demo.domain.Title;
+import com.bramvanrensbergen.imdb_demo.domain.TitleData;
+import com.bramvanrensbergen.imdb_demo.domain.TitleField;
+import com.bramvanrensbergen.imdb_demo.domain.TitleType;
+
+/**
+ * Random, but reproducible, titles for tests of the statistics, and a check that two sets of statistics are identical.
+ * @author Bram Van Rensbergen
+ */
+final class TestTitles {
+
+	private static final String[] GENRES = { "Action", "Comedy", "Crime", "Drama", "Horror", "Romance", "Sci-Fi", "Thriller", "Western" };
+
+	private static final String[] RUNTIMES = { "1h 55min", "2h", "1h 30min", "45min", "22min" };
+
+	private TestTitles() {
+	}
+
+	/**
+	 * @return The indicated number of titles; a few actors and directors occur in many of them, most only once or twice.
+	 * 	There are fewer actors and directors than {@link RowLimits#MAX_ROWS}, so statistics can show all of them.
+	 */
+	static List<Title> create(int n, long seed) {
+		Random random = new Random(seed);
+		Person[] actors = persons("nm1", 400);
+		Person[] directors = persons("nm2", 60);
+
+		List<Title> titles = new ArrayList<Title>(n);
+		for (int i = 0; i < n; i++) {
+			List<Person> cast = new ArrayList<Person>();
+			for (int j = random.nextInt(8); j > 0; j--) {
+				cast.add(skewed(actors, random));
+			}
+
+			List<Person> directedBy = random.nextInt(10) == 0
+					? Arrays.asList(skewed(directors, random), skewed(directors, random))
+					: Collections.singletonList(skewed(directors, random));
+
+			Set<String> genres = new LinkedHashSet<String>();
+			for (int j = random.nextInt(4); j > 0; j--) {
+				genres.add(GENRES[random.nextInt(GENRES.length)]);
+			}
+
+			TitleType type = TitleType.values()[random.nextInt(TitleType.values().length)];
+			TitleData data = new TitleData(type, String.format("tt%07d", i), TitleField.ALL, "Title " + i, genres,
+					random.nextInt(5) == 0 ? null : random.nextInt(90) / 10.0 + 1, null,
+					random.nextInt(5) == 0 ? null : RUNTIMES[random.nextInt(RUNTIMES.length)],
+					type == TitleType.SERIES ? null : 1920 + random.nextInt(98), directedBy, cast, null, null, null);
+
+			Title t = type == TitleType.SERIES ? new Series(data) : type == TitleType.EPISODE ? new Episode(data) : new Movie(data);
+			if (random.nextBoolean()) {
+				t.setUserRating((double) (1 + random.nextInt(10)));
+			}
+			titles.add(t);
+		}
+		return titles;
+	}
+
+	private static Person[] persons(String idPrefix, int n) {
+		Person[] persons = new Person[n];
+		for (int i = 0; i < n; i++) {
+			persons[i] = Registry.person(String.format("%s%07d", idPrefix, i), "Person " + idPrefix + "-" + i);
+		}
+		return persons;
+	}
+
+	private static Person skewed(Person[] persons, Random random) {
+		double r = random.nextDouble();
+		return persons[(int) (r * r * persons.length)];
+	}
+
+	/**
+	 * Assert that the indicated statistics hold the same counts and rows, in the same order, with bit for bit the same aggregates.
+	 */
+	static void assertIdentical(Statistics expected, Statistics actual) {
+		assertEquals(expected.getAnalyzedTitles(), actual.getAnalyzedTitles());
+		assertEquals(expected.getnMovies(), actual.getnMovies());
+		assertEquals(expected.getnEpisodes(), actual.getnEpisodes());
+		assertEquals(expected.getnSeries(), actual.getnSeries());
+		assertEquals(describe(expected.getGlobalStats()), describe(actual.getGlobalStats()));
+		assertEquals(describe(expected.getActorStats()), describe(actual.getActorStats()));
+		assertEquals(describe(expected.getDirectorStats()), describe(actual.getDirectorStats()));
+		assertEquals(describe(expected.getGenreStats()), describe(actual.getGenreStats()));
+	}
+
+	private static List<String> describe(List<StatRow> rows) {
+		List<String> result = new ArrayList<String>(rows.size());
+		for (StatRow row : rows) {
+			result.add(describe(row));
+		}
+		return result;
+	}
+
+	private static String describe(StatRow row) {
+		return row.getName() + " " + row.getUrl() + " " + row.getNbOfOccurrences() + " " + describe(row.getRatings()) + " "
+				+ describe(row.getUserRatings()) + " " + describe(row.getRuntimesInMinutes()) + " " + describe(row.getYearsOfRelease());
+	}
+
+	private static String describe(RunningStat stat) {
+		return "[" + stat.getCount() + " " + stat.getMean() + " " + stat.getMin() + " " + stat.getMax() + " " + stat.getVariance() + "]";
+	}
+}
@@ -0,0 +1,82 @@
+package com.bramvanrensbergen.imdb_demo.domain.statistics;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.List;
+
+import org.junit.Test;
+
+import com.bramvanrensbergen.imdb_demo.domain.Title;
+import com.bramvanrensbergen.imdb_demo.domain.TitleColumns;
+import com.bramvanrensbergen.imdb_demo.domain.TitleField;
+import com.bramvanrensbergen.imdb_demo.domain.TitleType;
+
+/**
+ * @author Bram Van Rensbergen
+ */
+public class TitleFilterTest {
+
+	private static final List<Title> TITLES = TestTitles.create(1000, 11);
+
+	private static final TitleColumns COLUMNS = TitleColumns.of(TITLES, TitleField.ALL);
+
+	/**
+	 * @return Whether the indicated title meets the conditions of the filter, judged from the title itself rather than the columns.
+	 */
+	private static boolean expectedMatch(TitleFilter filter, Title t) {
+		Integer year = t.getYearOfRelease();
+		return (filter.getType() == null || t.getType() == filter.getType())
+				&& (filter.getMinRating() == null || t.getRating() != null && t.getRating() >= filter.getMinRating())
+				&& (filter.getFromYear() == null || year != null && year >= filter.getFromYear())
+				&& (filter.getToYear() == null || year != null && year <= filter.getToYear())
+				&& (filter.getGenre() == null || t.getGenresSet().contains(filter.getGenre()));
+	}
+
+	/**
+	 * @return Number of titles the filter matches.
+	 */
+	private static int assertMatchesAsTitles(TitleFilter filter) {
+		int matched = 0;
+		for (int i = 0; i < TITLES.size(); i++) {
+			boolean matches = filter.matches(COLUMNS, i);
+			assertEquals(TITLES.get(i).getId(), expectedMatch(filter, TITLES.get(i)), matches);
+			if (matches) {
+				matched++;
+			}
+		}
+		return matched;
+	}
+
+	@Test
+	public void matchesAllTitlesWithoutConditions() {
+		assertEquals(TITLES.size(), assertMatchesAsTitles(TitleFilter.ALL));
+	}
+
+	@Test
+	public void matchesEachCondition() {
+		assertTrue(assertMatchesAsTitles(new TitleFilter(1990, null, null, null, null)) > 0);
+		assertTrue(assertMatchesAsTitles(new TitleFilter(null, 1960, null, null, null)) > 0);
+		assertTrue(assertMatchesAsTitles(new TitleFilter(null, null, "Sci-Fi", null, null)) > 0);
+		assertTrue(assertMatchesAsTitles(new TitleFilter(null, null, null, 7.5, null)) > 0);
+		assertTrue(assertMatchesAsTitles(new TitleFilter(null, null, null, null, TitleType.EPISODE)) > 0);
+	}
+
+	@Test
+	public void matchesAllConditions() {
+		assertTrue(assertMatchesAsTitles(new TitleFilter(1950, 2000, "Drama", 5.0, TitleType.MOVIE)) > 0);
+	}
+
+	@Test
+	public void leavesOutTitlesLackingTheValue() {
+		// series have no year of release in the test titles
+		assertEquals(0, assertMatchesAsTitles(new TitleFilter(null, 2100, null, null, TitleType.SERIES)));
+	}
+
+	@Test
+	public void matchesNothingForUnknownGenre() {
+		assertEquals(0, assertMatchesAsTitles(new TitleFilter(null, null, "Not a genre", null, null)));
+		assertFalse(new TitleFilter(null, null, "Not a genre", null, null).matches(COLUMNS, 0));
+	}
+}
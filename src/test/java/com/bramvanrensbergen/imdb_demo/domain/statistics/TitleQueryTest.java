@@ -0,0 +1,133 @@
+package com.bramvanrensbergen.imdb_demo.domain.statistics;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Test;
+
+import com.bramvanrensbergen.imdb_demo.domain.Person;
+import com.bramvanrensbergen.imdb_demo.domain.Title;
+import com.bramvanrensbergen.imdb_demo.domain.TitleColumns;
+import com.bramvanrensbergen.imdb_demo.domain.TitleField;
+
+/**
+ * @author Bram Van Rensbergen
+ */
+public class TitleQueryTest {
+
+	private static final List<Title> TITLES = TestTitles.create(1000, 13);
+
+	private static final TitleColumns COLUMNS = TitleColumns.of(TITLES, TitleField.ALL);
+
+	private static final TitleFilter DRAMA = new TitleFilter(null, null, "Drama", null, null);
+
+	/**
+	 * @return Names of the groups the indicated title is in, judged from the title itself rather than the columns.
+	 */
+	private static List<String> groupsOf(Title t, GroupBy groupBy) {
+		List<String> groups = new ArrayList<String>();
+		switch (groupBy) {
+		case GENRE:
+			groups.addAll(t.getGenresSet());
+			break;
+		case DIRECTOR:
+			for (Person p : t.getDirectorsOrCreators()) {
+				groups.add(p.getName());
+			}
+			break;
+		case ACTOR:
+			for (Person p : t.getPrimaryActors()) {
+				groups.add(p.getName());
+			}
+			break;
+		case DECADE:
+			if (t.getYearOfRelease() != null) {
+				groups.add(t.getYearOfRelease() / 10 * 10 + "s");
+			}
+			break;
+		case TYPE:
+			groups.add(t.getType().name().toLowerCase());
+			break;
+		}
+		return groups;
+	}
+
+	/**
+	 * @return Name and number of titles of the groups with most titles, in order; ties in the order the groups first occurred.
+	 */
+	private static List<String> expectedGroups(TitleFilter filter, GroupBy groupBy, int limit) {
+		final Map<String, Integer> counts = new LinkedHashMap<String, Integer>();
+		for (int i = 0; i < TITLES.size(); i++) {
+			if (filter.matches(COLUMNS, i)) {
+				for (String group : groupsOf(TITLES.get(i), groupBy)) {
+					Integer count = counts.get(group);
+					counts.put(group, count == null ? 1 : count + 1);
+				}
+			}
+		}
+
+		List<String> names = new ArrayList<String>(counts.keySet());
+		Collections.sort(names, new Comparator<String>() {
+			@Override
+			public int compare(String a, String b) {
+				return Integer.compare(counts.get(b), counts.get(a));
+			}
+		});
+
+		List<String> groups = new ArrayList<String>();
+		for (String name : names.subList(0, Math.min(limit, names.size()))) {
+			groups.add(name + " " + counts.get(name));
+		}
+		return groups;
+	}
+
+	private static List<String> describe(List<StatRow> rows) {
+		List<String> result = new ArrayList<String>();
+		for (StatRow row : rows) {
+			result.add(row.getName() + " " + row.getNbOfOccurrences());
+		}
+		return result;
+	}
+
+	@Test
+	public void groupsMatchedTitles() {
+		for (GroupBy groupBy : GroupBy.values()) {
+			TitleQuery.Result result = new TitleQuery(DRAMA, groupBy, RowLimits.MAX_ROWS).run(COLUMNS);
+			assertEquals(groupBy.name(), expectedGroups(DRAMA, groupBy, RowLimits.MAX_ROWS), describe(result.getGroups()));
+		}
+	}
+
+	@Test
+	public void keepsGroupsWithMostTitles() {
+		TitleQuery.Result result = new TitleQuery(TitleFilter.ALL, GroupBy.ACTOR, 5).run(COLUMNS);
+		assertEquals(expectedGroups(TitleFilter.ALL, GroupBy.ACTOR, 5), describe(result.getGroups()));
+	}
+
+	@Test
+	public void aggregatesMatchedTitles() {
+		StatRow expected = new StatRow();
+		for (Title t : TITLES) {
+			if (t.getGenresSet().contains("Drama")) {
+				expected.addTitle(t);
+			}
+		}
+
+		TitleQuery.Result result = new TitleQuery(DRAMA, null, 10).run(COLUMNS);
+		assertTrue(expected.getNbOfOccurrences() > 0);
+		assertEquals(expected.getNbOfOccurrences(), result.getMatched().getNbOfOccurrences());
+		assertEquals(expected.getAvgRating(), result.getMatched().getAvgRating());
+		assertEquals(Collections.<StatRow>emptyList(), result.getGroups());
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void rejectsLimitAboveMaximum() {
+		new TitleQuery(TitleFilter.ALL, GroupBy.GENRE, RowLimits.MAX_ROWS + 1);
+	}
+}
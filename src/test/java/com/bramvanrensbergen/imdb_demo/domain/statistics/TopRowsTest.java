@@ -0,0 +1,79 @@
+package com.bramvanrensbergen.imdb_demo.domain.statistics;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Test;
+
+/**
+ * @author Bram Van Rensbergen
+ */
+public class TopRowsTest {
+
+	/**
+	 * @return Positions of the k rows that occurred most often, by a stable sort of all rows.
+	 */
+	private static int[] sortAll(final int[] occurrences, int k) {
+		List<Integer> positions = new ArrayList<Integer>();
+		for (int i = 0; i < occurrences.length; i++) {
+			positions.add(i);
+		}
+		Collections.sort(positions, new Comparator<Integer>() {
+			@Override
+			public int compare(Integer i, Integer j) {
+				return Integer.compare(occurrences[j], occurrences[i]);
+			}
+		});
+
+		int[] top = new int[Math.min(k, positions.size())];
+		for (int i = 0; i < top.length; i++) {
+			top[i] = positions.get(i);
+		}
+		return top;
+	}
+
+	@Test
+	public void selectsSameRowsAsStableSort() {
+		Random random = new Random(42);
+		for (int n : new int[] { 0, 1, 2, 10, 1000 }) {
+			int[] occurrences = new int[n];
+			for (int i = 0; i < n; i++) {
+				// few distinct values, so there are many ties
+				occurrences[i] = random.nextInt(5);
+			}
+			for (int k : new int[] { 0, 1, 3, 50, 2000 }) {
+				assertArrayEquals("n=" + n + " k=" + k, sortAll(occurrences, k), TopRows.select(occurrences, n, k));
+			}
+		}
+	}
+
+	@Test
+	public void keepsOrderOfTies() {
+		assertArrayEquals(new int[] { 3, 0, 2 }, TopRows.select(new int[] { 2, 1, 2, 5, 2 }, 5, 3));
+	}
+
+	@Test
+	public void onlyUsesFirstRows() {
+		assertArrayEquals(new int[] { 1, 0 }, TopRows.select(new int[] { 1, 2, 9, 9 }, 2, 5));
+	}
+
+	@Test
+	public void selectsRows() {
+		StatRow a = createRow("a", 1);
+		StatRow b = createRow("b", 3);
+		StatRow c = createRow("c", 2);
+
+		assertEquals(Arrays.asList(b, c), TopRows.select(Arrays.asList(a, b, c), 2));
+	}
+
+	private static StatRow createRow(String name, int occurrences) {
+		return new StatRow(name, null, occurrences, new RunningStat(), new RunningStat(), new RunningStat(), new RunningStat());
+	}
+}
@@ -0,0 +1,133 @@
+package com.bramvanrensbergen.imdb_demo.service;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+import com.bramvanrensbergen.imdb_demo.service.AimdLimit.Outcome;
+
+/**
+ * @author Bram Van Rensbergen
+ */
+public class AimdLimitTest {
+
+	private static final long TARGET_LATENCY = TimeUnit.SECONDS.toNanos(60);
+
+	/**
+	 * @return A limit that was created (and last decreased) before any request acquired later on.
+	 */
+	private static AimdLimit createLimit(int min, int max, long targetLatencyNanos) throws InterruptedException {
+		AimdLimit limit = new AimdLimit(min, max, targetLatencyNanos);
+		Thread.sleep(1);
+		return limit;
+	}
+
+	@Test
+	public void startsAtMaximum() throws InterruptedException {
+		AimdLimit limit = createLimit(1, 8, TARGET_LATENCY);
+		assertEquals(8, limit.getLimit());
+
+		long startedAt = limit.acquire();
+		assertEquals(1, limit.getInFlight());
+		limit.release(startedAt, Outcome.COMPLETED);
+		assertEquals(0, limit.getInFlight());
+		assertEquals(8, limit.getLimit());
+	}
+
+	@Test
+	public void halvesOncePerRoundWhenOverloaded() throws InterruptedException {
+		AimdLimit limit = createLimit(1, 8, TARGET_LATENCY);
+		long first = limit.acquire();
+		long second = limit.acquire();
+
+		limit.release(first, Outcome.OVERLOADED);
+		assertEquals(4, limit.getLimit());
+
+		// started before the decrease, so it does not count again
+		limit.release(second, Outcome.OVERLOADED);
+		assertEquals(4, limit.getLimit());
+
+		Thread.sleep(1);
+		limit.release(limit.acquire(), Outcome.OVERLOADED);
+		assertEquals(2, limit.getLimit());
+	}
+
+	@Test
+	public void lowersByAQuarterWhenSlow() throws InterruptedException {
+		AimdLimit limit = createLimit(1, 8, 0);
+		long startedAt = limit.acquire();
+		Thread.sleep(1);
+		limit.release(startedAt, Outcome.COMPLETED);
+		assertEquals(6, limit.getLimit());
+	}
+
+	@Test
+	public void staysWithinBounds() throws InterruptedException {
+		AimdLimit limit = createLimit(2, 3, TARGET_LATENCY);
+		limit.release(limit.acquire(), Outcome.OVERLOADED);
+		assertEquals(2, limit.getLimit());
+
+		for (int i = 0; i < 100; i++) {
+			limit.release(limit.acquire(), Outcome.COMPLETED);
+		}
+		assertEquals(3, limit.getLimit());
+	}
+
+	@Test
+	public void raisesByAboutOnePerRound() throws InterruptedException {
+		AimdLimit limit = createLimit(1, 8, TARGET_LATENCY);
+		limit.release(limit.acquire(), Outcome.OVERLOADED);
+		assertEquals(4, limit.getLimit());
+
+		for (int i = 0; i < 4; i++) {
+			limit.release(limit.acquire(), Outcome.COMPLETED);
+		}
+		assertEquals(4, limit.getLimit());
+		limit.release(limit.acquire(), Outcome.COMPLETED);
+		assertEquals(5, limit.getLimit());
+	}
+
+	@Test
+	public void ignoresUnrelatedFailures() throws InterruptedException {
+		AimdLimit limit = createLimit(1, 8, 0);
+		long startedAt = limit.acquire();
+		Thread.sleep(1);
+		limit.release(startedAt, Outcome.IGNORED);
+		assertEquals(8, limit.getLimit());
+	}
+
+	@Test
+	public void waitsForARequestToFinishAtTheLimit() throws InterruptedException {
+		final AimdLimit limit = createLimit(1, 1, TARGET_LATENCY);
+		long startedAt = limit.acquire();
+
+		final CountDownLatch acquired = new CountDownLatch(1);
+		Thread waiting = new Thread() {
+			@Override
+			public void run() {
+				try {
+					limit.acquire();
+					acquired.countDown();
+				} catch (InterruptedException e) {
+					// test fails on the latch
+				}
+			}
+		};
+		waiting.start();
+
+		assertFalse(acquired.await(100, TimeUnit.MILLISECONDS));
+		limit.release(startedAt, Outcome.COMPLETED);
+		assertTrue(acquired.await(5, TimeUnit.SECONDS));
+		assertEquals(1, limit.getInFlight());
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void rejectsMinimumAboveMaximum() {
+		new AimdLimit(4, 2, TARGET_LATENCY);
+	}
+}
@@ -0,0 +1,171 @@
+package com.bramvanrensbergen.imdb_demo.service;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.After;
+import org.junit.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.util.StreamUtils;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+/**
+ * Runs the {@link FetchScheduler}, with the actual {@link HttpPageFetcher}, against a local {@link StubImdbServer}.
+ * @author Bram Van Rensbergen
+ */
+public class FetchSchedulerTest {
+
+	private static final String MOVIE_ID = "tt0090756";
+
+	private static final int READ_TIMEOUT_MILLIS = 300;
+
+	private static final PageFetcher.PageReader<byte[]> READ_ALL = new PageFetcher.PageReader<byte[]>() {
+		@Override
+		public byte[] read(InputStream page, String charset) throws IOException {
+			return StreamUtils.copyToByteArray(page);
+		}
+	};
+
+	private StubImdbServer server;
+
+	private HttpPageFetcher fetcher;
+
+	@After
+	public void tearDown() throws IOException {
+		if (fetcher != null) {
+			fetcher.stop();
+		}
+		if (server != null) {
+			server.stop();
+		}
+	}
+
+	/**
+	 * @return A scheduler that retries quickly (10ms, doubling), and gives up after the indicated number of attempts.
+	 */
+	private FetchScheduler createScheduler(int maxAttempts) {
+		fetcher = new HttpPageFetcher();
+		ReflectionTestUtils.setField(fetcher, "connectTimeoutMillis", 1000);
+		ReflectionTestUtils.setField(fetcher, "readTimeoutMillis", READ_TIMEOUT_MILLIS);
+		ReflectionTestUtils.setField(fetcher, "maxConnectionsPerHost", 8);
+		ReflectionTestUtils.setField(fetcher, "maxConnections", 8);
+		ReflectionTestUtils.setField(fetcher, "idleConnectionSeconds", 30L);
+		ReflectionTestUtils.setField(fetcher, "maxSkippedBytes", 262144L);
+		fetcher.start();
+
+		FetchScheduler scheduler = new FetchScheduler();
+		ReflectionTestUtils.setField(scheduler, "requestsPerSecond", 1000.0);
+		ReflectionTestUtils.setField(scheduler, "burst", 100);
+		ReflectionTestUtils.setField(scheduler, "maxConnectionsPerHost", 8);
+		ReflectionTestUtils.setField(scheduler, "targetLatencyMillis", 1000L);
+		ReflectionTestUtils.setField(scheduler, "maxAttempts", maxAttempts);
+		ReflectionTestUtils.setField(scheduler, "backoffMillis", 10L);
+		ReflectionTestUtils.setField(scheduler, "maxBackoffMillis", 5000L);
+		ReflectionTestUtils.setField(scheduler, "pageFetcher", fetcher);
+		ReflectionTestUtils.setField(scheduler, "meterRegistry", new SimpleMeterRegistry());
+		scheduler.registerMeters();
+		return scheduler;
+	}
+
+	@Test
+	public void retriesThrottledRequestAfterTheDelayAskedFor() throws IOException {
+		server = new StubImdbServer();
+		server.throttleNext("1");
+		FetchScheduler scheduler = createScheduler(3);
+
+		assertArrayEquals(StubImdbServer.page(MOVIE_ID), scheduler.fetch(server.titleUrl(MOVIE_ID), READ_ALL));
+		assertEquals(2, server.getRequests());
+		assertTrue("retried too soon", server.getMillisBefore(1) >= 1000);
+		assertEquals(1, scheduler.getRetries());
+		assertEquals(1, scheduler.getThrottled());
+	}
+
+	@Test
+	public void retriesTimedOutRequest() throws IOException {
+		server = new StubImdbServer();
+		server.stallNext(READ_TIMEOUT_MILLIS * 4);
+		FetchScheduler scheduler = createScheduler(3);
+
+		assertArrayEquals(StubImdbServer.page(MOVIE_ID), scheduler.fetch(server.titleUrl(MOVIE_ID), READ_ALL));
+		assertEquals(2, server.getRequests());
+		assertEquals(1, scheduler.getRetries());
+		assertEquals(1, scheduler.getThrottled());
+	}
+
+	@Test
+	public void doesNotRetryMissingPage() throws IOException {
+		server = new StubImdbServer();
+		FetchScheduler scheduler = createScheduler(3);
+
+		try {
+			scheduler.fetch(server.titleUrl("tt0000000"), READ_ALL);
+			fail("Fetched a page that does not exist");
+		} catch (FileNotFoundException e) {
+			assertEquals(1, server.getRequests());
+			assertEquals(0, scheduler.getRetries());
+		}
+	}
+
+	@Test
+	public void givesUpOnceAllAttemptsFailed() throws IOException {
+		server = new StubImdbServer();
+		for (int i = 0; i < 4; i++) {
+			server.throttleNext(null);
+		}
+		FetchScheduler scheduler = createScheduler(3);
+
+		try {
+			scheduler.fetch(server.titleUrl(MOVIE_ID), READ_ALL);
+			fail("Fetched a page the server kept refusing");
+		} catch (ThrottledException e) {
+			assertEquals(429, e.getStatusCode());
+			assertEquals(3, server.getRequests());
+			assertEquals(2, scheduler.getRetries());
+			assertEquals(3, scheduler.getThrottled());
+		}
+	}
+
+	@Test
+	public void getsEveryPageThroughBusyServer() throws Exception {
+		server = new StubImdbServer(4, 0.05, 0.02, READ_TIMEOUT_MILLIS * 4);
+		final FetchScheduler scheduler = createScheduler(8);
+		final List<String> ids = Arrays.asList(MOVIE_ID, "tt4093826", "tt4108304");
+
+		ExecutorService workers = Executors.newFixedThreadPool(12);
+		try {
+			List<Future<Boolean>> results = new ArrayList<Future<Boolean>>();
+			for (int i = 0; i < 90; i++) {
+				final String id = ids.get(i % ids.size());
+				results.add(workers.submit(new Callable<Boolean>() {
+					@Override
+					public Boolean call() throws Exception {
+						return Arrays.equals(StubImdbServer.page(id), scheduler.fetch(server.titleUrl(id), READ_ALL));
+					}
+				}));
+			}
+			for (Future<Boolean> result : results) {
+				assertTrue(result.get());
+			}
+		} finally {
+			workers.shutdownNow();
+		}
+
+		// every request the server throttled was retried (a retry may also follow a dropped connection)
+		assertTrue(server.getThrottled() > 0);
+		assertTrue(scheduler.getRetries() >= server.getThrottled());
+	}
+}
@@ -0,0 +1,136 @@
+package com.bramvanrensbergen.imdb_demo.service;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+import com.bramvanrensbergen.imdb_demo.domain.Movie;
+import com.bramvanrensbergen.imdb_demo.domain.Registry;
+import com.bramvanrensbergen.imdb_demo.domain.Title;
+import com.bramvanrensbergen.imdb_demo.domain.TitleData;
+import com.bramvanrensbergen.imdb_demo.domain.TitleField;
+import com.bramvanrensbergen.imdb_demo.domain.TitleType;
+
+/**
+ * @author Bram Van Rensbergen
+ */
+public class ImportJobServiceTest {
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+	/**
+	 * @return A started service that runs a single job at a time; jobs reading files cannot run, as there is no lookup service.
+	 */
+	private ImportJobService createService() {
+		ImportJobService service = new ImportJobService();
+		ReflectionTestUtils.setField(service, "maxConcurrentJobs", 1);
+		ReflectionTestUtils.setField(service, "retentionMinutes", 60);
+		ReflectionTestUtils.setField(service, "meterRegistry", meterRegistry);
+		service.start();
+		return service;
+	}
+
+	/**
+	 * Occupy the only runner of the service until the returned latch is released.
+	 */
+	private static CountDownLatch block(ImportJobService service) throws InterruptedException {
+		final CountDownLatch started = new CountDownLatch(1);
+		final CountDownLatch release = new CountDownLatch(1);
+		service.submit(ImportOptions.DEFAULT, new ImportJobService.Import() {
+			@Override
+			public List<Title> run(ImportProgress progress) throws IOException {
+				started.countDown();
+				try {
+					release.await();
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+				}
+				return Collections.emptyList();
+			}
+		});
+		started.await();
+		return release;
+	}
+
+	@Test
+	public void deletesUploadOfJobThatNeverRan() throws Exception {
+		ImportJobService service = createService();
+		CountDownLatch release = block(service);
+		File upload = folder.newFile("ratings.csv");
+
+		ImportJob job = service.submitExportedRatings(upload, ImportOptions.DEFAULT);
+		assertEquals(ImportJob.State.QUEUED, job.getState());
+		assertTrue(upload.exists());
+
+		service.stop();
+		release.countDown();
+		assertEquals(ImportJob.State.FAILED, job.getState());
+		assertFalse(upload.exists());
+	}
+
+	@Test
+	public void deletesUploadOfJobThatCannotBeQueued() throws Exception {
+		ImportJobService service = createService();
+		service.stop();
+		File upload = folder.newFile("ratings.csv");
+
+		try {
+			service.submitExportedRatings(upload, ImportOptions.DEFAULT);
+			fail("Job was queued after the service stopped");
+		} catch (RejectedExecutionException e) {
+			assertFalse(upload.exists());
+		}
+	}
+
+	@Test
+	public void timesAggregationOfImportedTitles() throws Exception {
+		ImportJobService service = createService();
+		final List<Title> titles = new ArrayList<Title>();
+		for (int i = 0; i < 1000; i++) {
+			titles.add(new Movie(new TitleData(TitleType.MOVIE, String.format("tt%07d", i), TitleField.ALL, "Title " + i,
+					Collections.singleton("Drama"), 7.0, null, "2h", 1990, Collections.singletonList(Registry.person("nm0000001", "Director")),
+					Collections.singletonList(Registry.person("nm0000002", "Actor")), null, null, null)));
+		}
+
+		ImportJob job = service.submit(ImportOptions.DEFAULT, new ImportJobService.Import() {
+			@Override
+			public List<Title> run(ImportProgress progress) throws IOException {
+				for (Title t : titles) {
+					progress.completed(t);
+				}
+				return titles;
+			}
+		});
+		// the time is recorded right after the job finishes
+		Timer timer = meterRegistry.get("imdb.statistics.build").tag("source", "job").timer();
+		while (timer.count() == 0) {
+			Thread.sleep(10);
+		}
+		service.stop();
+
+		assertEquals(ImportJob.State.DONE, job.getState());
+		assertTrue(job.getProgress().getAggregationNanos() > 0);
+		assertTrue(timer.totalTime(TimeUnit.NANOSECONDS) >= job.getProgress().getAggregationNanos());
+	}
+}
@@ -0,0 +1,223 @@
+package com.bramvanrensbergen.imdb_demo.service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.Random;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.springframework.util.StreamUtils;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * A local stand-in for IMDb that serves the recorded title pages at '/title/{id}', while misbehaving the way a busy server does:
+ * it answers 429 (Too Many Requests) to requests beyond its concurrency capacity, and to a random fraction of the others;
+ * and stalls a random fraction of requests for longer than clients are expected to wait.
+ * <br>Scripted misbehavior (see {@link #throttleNext(String)} and {@link #stallNext(long)}) is applied to the next requests first, in order.
+ * @author Bram Van Rensbergen
+ */
+final class StubImdbServer {
+
+	/**
+	 * What to do with a single request, instead of serving the page.
+	 */
+	private static final class Misbehavior {
+		/**
+		 * Value of the Retry-After header of a 429; null to stall instead.
+		 */
+		final String retryAfter;
+
+		final long stallMillis;
+
+		Misbehavior(String retryAfter, long stallMillis) {
+			this.retryAfter = retryAfter;
+			this.stallMillis = stallMillis;
+		}
+	}
+
+	private final HttpServer server;
+
+	private final ExecutorService handlers = Executors.newCachedThreadPool();
+
+	private final Random random = new Random(42);
+
+	private final int capacity;
+
+	private final double throttleRate;
+
+	private final double stallRate;
+
+	private final long stallMillis;
+
+	private final Queue<Misbehavior> script = new ConcurrentLinkedQueue<Misbehavior>();
+
+	private final List<Long> requestTimes = new ArrayList<Long>();
+
+	private final AtomicInteger active = new AtomicInteger();
+
+	private final AtomicInteger peakActive = new AtomicInteger();
+
+	private final AtomicInteger throttled = new AtomicInteger();
+
+	private final AtomicInteger stalled = new AtomicInteger();
+
+	/**
+	 * Start a server on a free local port that only misbehaves as scripted.
+	 */
+	StubImdbServer() throws IOException {
+		this(Integer.MAX_VALUE, 0, 0, 0);
+	}
+
+	/**
+	 * Start a server on a free local port.
+	 * @param capacity Number of requests handled at once; any more are answered with 429.
+	 * @param throttleRate Fraction of the other requests answered with 429, asking to retry after a second.
+	 * @param stallRate Fraction of the other requests that are only answered after {@code stallMillis}.
+	 */
+	StubImdbServer(int capacity, double throttleRate, double stallRate, long stallMillis) throws IOException {
+		this.capacity = capacity;
+		this.throttleRate = throttleRate;
+		this.stallRate = stallRate;
+		this.stallMillis = stallMillis;
+
+		server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+		server.setExecutor(handlers);
+		server.createContext("/title/", new HttpHandler() {
+			@Override
+			public void handle(HttpExchange exchange) throws IOException {
+				try {
+					serve(exchange);
+				} finally {
+					exchange.close();
+				}
+			}
+		});
+		server.start();
+	}
+
+	/**
+	 * @return The url of the page of the indicated title on this server.
+	 */
+	String titleUrl(String id) {
+		return "http://127.0.0.1:" + server.getAddress().getPort() + "/title/" + id;
+	}
+
+	/**
+	 * Answer a next request with 429, with the indicated Retry-After header (or none, if null).
+	 */
+	void throttleNext(String retryAfter) {
+		script.add(new Misbehavior(retryAfter == null ? "" : retryAfter, 0));
+	}
+
+	/**
+	 * Answer a next request only after the indicated time.
+	 */
+	void stallNext(long millis) {
+		script.add(new Misbehavior(null, millis));
+	}
+
+	void stop() {
+		server.stop(0);
+		handlers.shutdownNow();
+	}
+
+	/**
+	 * @return The recorded page of the indicated title, or null if there is none.
+	 */
+	static byte[] page(String id) throws IOException {
+		try (InputStream in = StubImdbServer.class.getResourceAsStream("/fixtures/" + id + ".html")) {
+			return in == null ? null : StreamUtils.copyToByteArray(in);
+		}
+	}
+
+	private void serve(HttpExchange exchange) throws IOException {
+		synchronized (requestTimes) {
+			requestTimes.add(System.nanoTime());
+		}
+		int current = active.incrementAndGet();
+		try {
+			int peak;
+			while (current > (peak = peakActive.get()) && !peakActive.compareAndSet(peak, current)) {
+				// raced with another request
+			}
+
+			Misbehavior scripted = script.poll();
+			String retryAfter = scripted != null ? scripted.retryAfter
+					: current > capacity ? "0" : random.nextDouble() < throttleRate ? "1" : null;
+			if (retryAfter != null) {
+				throttled.incrementAndGet();
+				if (!retryAfter.isEmpty()) {
+					exchange.getResponseHeaders().set("Retry-After", retryAfter);
+				}
+				exchange.sendResponseHeaders(429, -1);
+				return;
+			}
+
+			long stall = scripted != null ? scripted.stallMillis : random.nextDouble() < stallRate ? stallMillis : 0;
+			if (stall > 0) {
+				stalled.incrementAndGet();
+				try {
+					Thread.sleep(stall);
+				} catch (InterruptedException e) {
+					return;
+				}
+			}
+
+			String path = exchange.getRequestURI().getPath();
+			byte[] page = page(path.substring(path.lastIndexOf('/') + 1));
+			if (page == null) {
+				exchange.sendResponseHeaders(404, -1);
+				return;
+			}
+			exchange.getResponseHeaders().set("Content-Type", "text/html; charset=utf-8");
+			exchange.sendResponseHeaders(200, page.length);
+			try (OutputStream out = exchange.getResponseBody()) {
+				out.write(page);
+			}
+		} catch (IOException e) {
+			// the client gave up on a stalled request
+		} finally {
+			active.decrementAndGet();
+		}
+	}
+
+	int getRequests() {
+		synchronized (requestTimes) {
+			return requestTimes.size();
+		}
+	}
+
+	/**
+	 * @return Time between the start of the indicated request and the one before it, in milliseconds.
+	 */
+	long getMillisBefore(int request) {
+		synchronized (requestTimes) {
+			return (requestTimes.get(request) - requestTimes.get(request - 1)) / 1000000;
+		}
+	}
+
+	int getThrottled() {
+		return throttled.get();
+	}
+
+	int getStalled() {
+		return stalled.get();
+	}
+
+	/**
+	 * @return The largest number of requests the server was handling at once.
+	 */
+	int getPeakActive() {
+		return peakActive.get();
+	}
+}
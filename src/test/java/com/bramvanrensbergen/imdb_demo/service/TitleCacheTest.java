@@ -0,0 +1,221 @@
+package com.bramvanrensbergen.imdb_demo.service;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.bramvanrensbergen.imdb_demo.domain.Person;
+import com.bramvanrensbergen.imdb_demo.domain.Registry;
+import com.bramvanrensbergen.imdb_demo.domain.TitleData;
+import com.bramvanrensbergen.imdb_demo.domain.TitleField;
+import com.bramvanrensbergen.imdb_demo.domain.TitleType;
+
+/**
+ * @author Bram Van Rensbergen
+ */
+public class TitleCacheTest {
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	private TitleCache createCache(long ttlHours, int maxEntries, boolean refreshStale) throws IOException {
+		TitleCache cache = new TitleCache();
+		ReflectionTestUtils.setField(cache, "enabled", true);
+		ReflectionTestUtils.setField(cache, "dir", folder.getRoot());
+		ReflectionTestUtils.setField(cache, "ttlHours", ttlHours);
+		ReflectionTestUtils.setField(cache, "maxEntries", maxEntries);
+		ReflectionTestUtils.setField(cache, "refreshStale", refreshStale);
+		cache.load();
+		return cache;
+	}
+
+	private TitleCache createCache() throws IOException {
+		return createCache(168, 100, true);
+	}
+
+	private static TitleData createData(String id) {
+		return new TitleData(TitleType.MOVIE, id, EnumSet.of(TitleField.DIRECTORS, TitleField.ACTORS), "Title " + id,
+				new LinkedHashSet<String>(Arrays.asList("Drama", "Sci-Fi")), 7.5, null, "1h 49min", 1986,
+				Arrays.asList(Registry.person("nm0000001", "Director")),
+				Arrays.asList(Registry.person("nm0000002", "Actor"), Registry.newPersonWithoutId("Extra")),
+				null, null, null);
+	}
+
+	@Test
+	public void returnsStoredData() throws IOException {
+		TitleCache cache = createCache();
+		TitleData data = createData("tt0090756");
+		cache.put(data);
+
+		assertSameData(data, cache.get("tt0090756"));
+		assertNull(cache.get("tt0000001"));
+	}
+
+	@Test
+	public void keepsDataAndIndexAcrossRestarts() throws IOException {
+		TitleData data = createData("tt0090756");
+		createCache().put(data);
+
+		TitleCache cache = createCache();
+		assertEquals(1, cache.size());
+		assertSameData(data, cache.get("tt0090756"));
+		assertEquals(Collections.singletonList("tt0090756"), cache.idsWithPerson("nm0000002"));
+		assertEquals(Collections.singletonList("tt0090756"), cache.idsWithGenre("Sci-Fi"));
+		assertEquals(2, cache.personCount());
+	}
+
+	@Test
+	public void evictsLeastRecentlyUsed() throws IOException {
+		TitleCache cache = createCache(168, 2, true);
+		cache.put(createData("tt0000001"));
+		cache.put(createData("tt0000002"));
+		cache.get("tt0000001");
+		cache.put(createData("tt0000003"));
+
+		assertEquals(2, cache.size());
+		assertNull(cache.get("tt0000002"));
+		assertFalse(new File(folder.getRoot(), "tt0000002.title").exists());
+		assertNotNull(cache.get("tt0000001"));
+		assertNotNull(cache.get("tt0000003"));
+	}
+
+	@Test
+	public void peekingDoesNotCountAsUse() throws IOException {
+		TitleCache cache = createCache(168, 2, true);
+		cache.put(createData("tt0000001"));
+		cache.put(createData("tt0000002"));
+		File f = new File(folder.getRoot(), "tt0000001.title");
+		assertTrue(f.setLastModified(1000000000000L));
+
+		assertSameData(createData("tt0000001"), cache.peek("tt0000001"));
+		assertEquals(1000000000000L, f.lastModified());
+		cache.put(createData("tt0000003"));
+
+		assertNull(cache.peek("tt0000001"));
+		assertNotNull(cache.peek("tt0000002"));
+		assertNotNull(cache.peek("tt0000003"));
+	}
+
+	@Test
+	public void expiresStaleEntriesUnlessRefreshed() throws IOException {
+		TitleCache expiring = createCache(-1, 100, false);
+		expiring.put(createData("tt0090756"));
+		assertFalse(expiring.isStale("tt0090756"));
+		assertNull(expiring.peek("tt0090756"));
+		assertEquals(1, expiring.size());
+		assertNull(expiring.get("tt0090756"));
+		assertEquals(0, expiring.size());
+
+		TitleCache refreshing = createCache(-1, 100, true);
+		refreshing.put(createData("tt0090756"));
+		assertTrue(refreshing.isStale("tt0090756"));
+		assertNotNull(refreshing.peek("tt0090756"));
+		assertNotNull(refreshing.get("tt0090756"));
+	}
+
+	@Test
+	public void ignoresMalformedIds() throws IOException {
+		TitleCache cache = createCache();
+		cache.put(createData("../tt0090756"));
+		cache.put(createData("tt0090756/x"));
+
+		assertEquals(0, cache.size());
+		assertEquals(0, folder.getRoot().list().length);
+		assertNull(cache.get("../tt0090756"));
+	}
+
+	@Test
+	public void deletesFilesInAnOldFormat() throws IOException {
+		File old = new File(folder.getRoot(), "tt0090756.title");
+		try (DataOutputStream out = new DataOutputStream(new FileOutputStream(old))) {
+			out.writeInt(0);
+		}
+
+		TitleCache cache = createCache();
+		assertEquals(0, cache.size());
+		assertFalse(old.exists());
+	}
+
+	@Test
+	public void deletesIncompleteWrites() throws IOException {
+		File incomplete = folder.newFile("tt0090756123.tmp");
+
+		TitleCache cache = createCache();
+		assertEquals(0, cache.size());
+		assertFalse(incomplete.exists());
+	}
+
+	@Test
+	public void leavesNoFilesBehindWhenWriteFails() throws IOException {
+		TitleCache cache = createCache();
+		// a directory in place of the title's file makes the rename fail
+		assertTrue(new File(folder.getRoot(), "tt0090756.title/x").mkdirs());
+		cache.put(createData("tt0090756"));
+
+		assertEquals(0, cache.size());
+		assertEquals(1, folder.getRoot().list().length);
+	}
+
+	@Test
+	public void disablesCachingWhenDirectoryCannotBeListed() throws IOException {
+		// e.g. because of an I/O error
+		File unlistable = new File(folder.getRoot().getPath()) {
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			public File[] listFiles() {
+				return null;
+			}
+		};
+		TitleCache cache = new TitleCache();
+		ReflectionTestUtils.setField(cache, "enabled", true);
+		ReflectionTestUtils.setField(cache, "dir", unlistable);
+		ReflectionTestUtils.setField(cache, "ttlHours", 168L);
+		ReflectionTestUtils.setField(cache, "maxEntries", 100);
+		cache.load();
+
+		cache.put(createData("tt0090756"));
+		assertNull(cache.get("tt0090756"));
+		assertEquals(0, cache.size());
+	}
+
+	private static void assertSameData(TitleData expected, TitleData actual) {
+		assertNotNull(actual);
+		assertEquals(expected.getType(), actual.getType());
+		assertEquals(expected.getId(), actual.getId());
+		assertEquals(expected.getFields(), actual.getFields());
+		assertEquals(expected.getTitle(), actual.getTitle());
+		assertEquals(expected.getGenres(), actual.getGenres());
+		assertEquals(expected.getRating(), actual.getRating());
+		assertEquals(expected.getRuntimeString(), actual.getRuntimeString());
+		assertEquals(expected.getYearOfRelease(), actual.getYearOfRelease());
+		assertEquals(describe(expected.getDirectorsOrCreators()), describe(actual.getDirectorsOrCreators()));
+		assertEquals(describe(expected.getPrimaryActors()), describe(actual.getPrimaryActors()));
+	}
+
+	private static List<String> describe(List<Person> persons) {
+		List<String> result = new ArrayList<String>();
+		for (Person p : persons) {
+			result.add(p.getId() + " " + p.getName());
+		}
+		return result;
+	}
+}
@@ -0,0 +1,53 @@
+package com.bramvanrensbergen.imdb_demo.service;
+
+import static org.junit.Assert.assertTrue;
+
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+/**
+ * @author Bram Van Rensbergen
+ */
+public class TokenBucketTest {
+
+	@Test
+	public void allowsBurstThenLimitsRate() throws InterruptedException {
+		TokenBucket bucket = new TokenBucket(20, 2);
+
+		long start = System.nanoTime();
+		bucket.acquire();
+		bucket.acquire();
+		long burstMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+		assertTrue("burst took " + burstMillis + " ms", burstMillis < 40);
+
+		// four more tokens at 20 per second take at least 200 ms to be added
+		for (int i = 0; i < 4; i++) {
+			bucket.acquire();
+		}
+		long totalMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+		assertTrue("took " + totalMillis + " ms", totalMillis >= 190);
+	}
+
+	@Test
+	public void refillsWhileIdle() throws InterruptedException {
+		TokenBucket bucket = new TokenBucket(10, 1);
+		bucket.acquire();
+		Thread.sleep(150);
+
+		long start = System.nanoTime();
+		bucket.acquire();
+		long millis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+		assertTrue("took " + millis + " ms", millis < 50);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void rejectsNonPositiveRate() {
+		new TokenBucket(0, 1);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void rejectsEmptyBurst() {
+		new TokenBucket(1, 0);
+	}
+}
@@ -0,0 +1,73 @@
+package com.bramvanrensbergen.imdb_demo.web;
+
+import static org.junit.Assert.assertEquals;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.fileUpload;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import java.io.File;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+
+/**
+ * Requests with invalid parameters are rejected before anything is looked up, so the controller needs no services here.
+ * @author Bram Van Rensbergen
+ */
+public class RequestControllerTest {
+
+	private MockMvc mvc;
+
+	@Before
+	public void setUp() {
+		mvc = MockMvcBuilders.standaloneSetup(new RequestController()).build();
+	}
+
+	@Test
+	public void rejectsUnknownFields() throws Exception {
+		mvc.perform(get("/title/tt0090756").param("fields", "actors,budget")).andExpect(status().isBadRequest());
+		mvc.perform(get("/stats").param("titles", "tt0090756").param("fields", "budget")).andExpect(status().isBadRequest());
+		mvc.perform(get("/sample").param("fields", "budget")).andExpect(status().isBadRequest());
+		mvc.perform(post("/jobs/sample").param("fields", "budget")).andExpect(status().isBadRequest());
+	}
+
+	@Test
+	public void rejectsMalformedLimits() throws Exception {
+		mvc.perform(get("/title/tt0090756").param("top", "actors:many")).andExpect(status().isBadRequest());
+		mvc.perform(get("/sample").param("top", "actors")).andExpect(status().isBadRequest());
+		mvc.perform(get("/corpus/stats").param("top", "writers:5")).andExpect(status().isBadRequest());
+		mvc.perform(post("/jobs/sample").param("top", "genres:5000")).andExpect(status().isBadRequest());
+	}
+
+	@Test
+	public void rejectsMalformedQueries() throws Exception {
+		mvc.perform(get("/jobs/1/query").param("type", "documentary")).andExpect(status().isBadRequest());
+		mvc.perform(get("/jobs/1/query").param("groupBy", "country")).andExpect(status().isBadRequest());
+		mvc.perform(get("/jobs/1/query").param("limit", "5000")).andExpect(status().isBadRequest());
+		mvc.perform(get("/jobs/1/query").param("limit", "-1")).andExpect(status().isBadRequest());
+	}
+
+	@Test
+	public void rejectsUploadWithoutWritingIt() throws Exception {
+		MockMultipartFile upload = new MockMultipartFile("file", "ratings.csv", "text/csv", "Const,Your Rating\n".getBytes("UTF-8"));
+		int before = countUploads();
+		mvc.perform(fileUpload("/jobs/exportedRatings/upload").file(upload).param("fields", "budget")).andExpect(status().isBadRequest());
+		mvc.perform(fileUpload("/jobs/exportedRatings/upload").file(upload).param("top", "actors")).andExpect(status().isBadRequest());
+		assertEquals(before, countUploads());
+	}
+
+	private static int countUploads() {
+		String[] names = new File(System.getProperty("java.io.tmpdir")).list();
+		int count = 0;
+		for (String name : names) {
+			if (name.startsWith("exportedRatings") && name.endsWith(".csv")) {
+				count++;
+			}
+		}
+		return count;
+	}
+}